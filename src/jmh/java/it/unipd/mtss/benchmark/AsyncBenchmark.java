@@ -0,0 +1,94 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.AsyncBill;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to price {@value #REQUESTS} concurrent requests, synchronously on the caller thread and through
+ * {@link AsyncBill} on its default executor (virtual threads when available) or on a fixed pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class AsyncBenchmark {
+
+    static final int REQUESTS = 10_000;
+
+    @Param({"sync", "default", "fixed"})
+    public String executor;
+
+    private SinglePassBillImpl engine;
+    private AsyncBill bill;
+    private ExecutorService pool;
+    private SampleOrder[] orders;
+
+    @Setup
+    public void setUp() {
+        engine = new SinglePassBillImpl(new Random(42));
+        if (executor.equals("default")) {
+            bill = new AsyncBill(engine);
+        } else if (executor.equals("fixed")) {
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            bill = new AsyncBill(engine, pool);
+        }
+        orders = OrderMix.UNIFORM.generate(10, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (bill != null) {
+            bill.close();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public double price() {
+        var total = 0.0;
+        if (bill == null) {
+            for (int i = 0; i < REQUESTS; i++) {
+                final var order = orders[i % orders.length];
+                total += engine.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+            }
+            return total;
+        }
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Double>[] futures = new CompletableFuture[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            final var order = orders[i % orders.length];
+            futures[i] = bill.getOrderPriceAsync(order.items(), order.user(), order.purchaseTime());
+        }
+        for (final var future : futures) {
+            total += future.join();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,130 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.Bill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput (ops/s) and sampled latency (p99 is in the percentiles of the SampleTime results) of
+ * {@link Bill#getOrderPrice} for each {@link OrderMix}, single-threaded and under contention.
+ * <p>
+ * Run with {@code mvn -P benchmark verify}, the profile adds {@code -prof gc} so the allocation rate
+ * per operation is reported as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class BillBenchmark {
+
+    @Param({"BillImpl", "SinglePassBillImpl", "RuleChainBillImpl"})
+    public String engine;
+
+    @Param
+    public OrderMix mix;
+
+    @Param({"1", "10", "30"})
+    public int items;
+
+    private Bill bill;
+    private SampleOrder[] orders;
+
+    @Setup
+    public void setUp() {
+        // the default quota runs out after ten gifts, leaving the underage mix measuring an exhausted quota
+        bill = Engines.create(engine, new Random(42), new UnlimitedGiftQuota());
+        orders = mix.generate(items, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        SampleOrder next(SampleOrder[] orders) {
+            final var order = orders[next];
+            next = (next + 1) % orders.length;
+            return order;
+        }
+    }
+
+    private double price(Cursor cursor) {
+        final var order = cursor.next(orders);
+        return bill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double throughput1(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double throughput4(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double throughput16(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public double throughput64(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double latency1(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double latency4(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double latency16(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double latency64(Cursor cursor) {
+        return price(cursor);
+    }
+}
@@ -0,0 +1,90 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.business.Cart;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What-if pricing of upsell candidates on a cart, against repricing the cart with each candidate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class CartUpsellBenchmark {
+
+    private static final LocalTime PURCHASE_TIME = LocalTime.of(12, 0);
+
+    @Param({"MOUSE_HEAVY", "MOUSE_KEYBOARD_PARITY", "UNIFORM"})
+    public OrderMix mix;
+
+    @Param({"10", "29"})
+    public int items;
+
+    @Param({"300"})
+    public int candidates;
+
+    private Cart cart;
+    private List<EItem> candidateItems;
+    private SinglePassBillImpl bill;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        final var order = mix.generate(items, 42)[0];
+        order.items().forEach(cart::add);
+        final var random = new Random(42);
+        final var types = ItemType.values();
+        candidateItems = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            candidateItems.add(new EItem(types[random.nextInt(types.length)], "candidate" + i,
+                    1 + random.nextInt(30_000) / 100.0));
+        }
+        bill = new SinglePassBillImpl(new Random(42));
+        user = new User(false);
+    }
+
+    @Benchmark
+    public double[] addedPrices() {
+        return cart.getAddedPrices(candidateItems);
+    }
+
+    @Benchmark
+    public double[] repriceEach() {
+        final var total = cart.getTotal();
+        final var addedPrices = new double[candidateItems.size()];
+        final var order = new ArrayList<>(cart.getItems());
+        for (int i = 0; i < addedPrices.length; i++) {
+            order.add(candidateItems.get(i));
+            addedPrices[i] = bill.getOrderPrice(order, user, PURCHASE_TIME) - total;
+            order.remove(order.size() - 1);
+        }
+        return addedPrices;
+    }
+}
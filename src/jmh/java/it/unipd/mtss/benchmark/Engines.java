@@ -0,0 +1,34 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.DefaultDiscountRules;
+import it.unipd.mtss.business.FixedPointBillImpl;
+import it.unipd.mtss.business.RuleChainBillImpl;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import it.unipd.mtss.business.UnderageGiftQuota;
+
+import java.util.Random;
+
+/**
+ * Maps the {@code engine} benchmark parameter to a {@link Bill} implementation.
+ */
+final class Engines {
+
+    private Engines() {
+    }
+
+    static Bill create(String engine, Random rnd, UnderageGiftQuota giftQuota) {
+        return switch (engine) {
+            case "BillImpl" -> new BillImpl(rnd, giftQuota);
+            case "SinglePassBillImpl" -> new SinglePassBillImpl(rnd, giftQuota);
+            case "FixedPointBillImpl" -> new FixedPointBillImpl(rnd, giftQuota);
+            case "RuleChainBillImpl" -> new RuleChainBillImpl(rnd, giftQuota, DefaultDiscountRules.chain());
+            default -> throw new IllegalArgumentException("Unknown engine " + engine);
+        };
+    }
+}
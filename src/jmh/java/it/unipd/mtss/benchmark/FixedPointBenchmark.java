@@ -0,0 +1,71 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.FixedPointBillImpl;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed point millicents pricing against the double pricing of the same single pass engine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    @Param({"PROCESSOR_HEAVY", "MOUSE_KEYBOARD_PARITY", "UNIFORM"})
+    public OrderMix mix;
+
+    @Param({"10", "30"})
+    public int items;
+
+    private SinglePassBillImpl doubleBill;
+    private FixedPointBillImpl fixedPointBill;
+    private SampleOrder[] orders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        doubleBill = new SinglePassBillImpl(new Random(42));
+        fixedPointBill = new FixedPointBillImpl(new Random(42));
+        orders = mix.generate(items, 42);
+    }
+
+    private SampleOrder nextOrder() {
+        final var order = orders[next];
+        next = (next + 1) % orders.length;
+        return order;
+    }
+
+    @Benchmark
+    public double doublePrice() {
+        final var order = nextOrder();
+        return doubleBill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+    }
+
+    @Benchmark
+    public long fixedPointPrice() {
+        final var order = nextOrder();
+        return fixedPointBill.getOrderPriceInMillicents(order.items(), order.user(), order.purchaseTime());
+    }
+}
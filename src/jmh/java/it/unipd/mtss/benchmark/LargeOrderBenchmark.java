@@ -0,0 +1,77 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.business.InMemoryUnderageGiftQuota;
+import it.unipd.mtss.business.LargeOrderBillImpl;
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to price a B2B order with {@link LargeOrderBillImpl} on pools of increasing parallelism, the speedup
+ * over {@code parallelism = 1} shows how the reduction scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class LargeOrderBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int lines;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private LargeOrderBillImpl bill;
+    private CompactOrder order;
+    private final User user = new User(false);
+    private final LocalTime purchaseTime = LocalTime.of(12, 0);
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(parallelism);
+        bill = new LargeOrderBillImpl(new Random(42),
+                new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()), 1_000_000, pool);
+        final var random = new Random(42);
+        final var types = ItemType.values();
+        order = new CompactOrder();
+        for (int i = 0; i < lines; i++) {
+            order.add(types[random.nextInt(types.length)], (100 + random.nextInt(39_901)) / 100.0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double price() {
+        return bill.getOrderPrice(order, user, purchaseTime);
+    }
+}
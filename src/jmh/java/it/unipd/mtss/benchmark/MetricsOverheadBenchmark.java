@@ -0,0 +1,79 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import it.unipd.mtss.business.metrics.MeteredBill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link MeteredBill} over the bare engine, with metrics disabled and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"bare", "disabled", "enabled"})
+    public String metrics;
+
+    private Bill bill;
+    private SampleOrder[] orders;
+
+    @Setup
+    public void setUp() {
+        final var engine = new SinglePassBillImpl(new Random(42));
+        if (metrics.equals("bare")) {
+            bill = engine;
+        } else {
+            final var metered = new MeteredBill(engine);
+            metered.getMetrics().setEnabled(metrics.equals("enabled"));
+            bill = metered;
+        }
+        orders = OrderMix.UNIFORM.generate(10, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    private double price(Cursor cursor) {
+        final var order = orders[cursor.next];
+        cursor.next = (cursor.next + 1) % orders.length;
+        return bill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double singleThread(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double sixteenThreads(Cursor cursor) {
+        return price(cursor);
+    }
+}
@@ -0,0 +1,86 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Realistic order shapes used by the benchmarks.
+ */
+public enum OrderMix {
+    /** Mostly processors, enough of them to trigger the half price processor. */
+    PROCESSOR_HEAVY(new double[]{0.7, 0.1, 0.1, 0.1}, false),
+    /** Mostly mouses, enough of them to trigger the gifted mouse. */
+    MOUSE_HEAVY(new double[]{0.05, 0.05, 0.8, 0.1}, false),
+    /** Same number of mouses and keyboards, triggering the mouse/keyboard gift. */
+    MOUSE_KEYBOARD_PARITY(null, false),
+    /**
+     * Uniform item types ordered by underage users inside the 18:00-19:00 window. Every order draws a gift only
+     * with a quota that never runs out, like {@link UnlimitedGiftQuota}.
+     */
+    UNDERAGE_WINDOW(new double[]{0.25, 0.25, 0.25, 0.25}, true),
+    /** Uniform item types ordered by adults outside the gift window. */
+    UNIFORM(new double[]{0.25, 0.25, 0.25, 0.25}, false);
+
+    private static final int ORDER_POOL_SIZE = 1024;
+
+    // indexed by ItemType ordinal
+    private final double[] typeWeights;
+    private final boolean underageWindow;
+
+    OrderMix(double[] typeWeights, boolean underageWindow) {
+        this.typeWeights = typeWeights;
+        this.underageWindow = underageWindow;
+    }
+
+    public record SampleOrder(List<EItem> items, User user, LocalTime purchaseTime) {
+    }
+
+    /**
+     * Generates a pool of orders with exactly {@code itemCount} items each, deterministically from {@code seed}.
+     */
+    public SampleOrder[] generate(int itemCount, long seed) {
+        final var random = new Random(seed);
+        final var orders = new SampleOrder[ORDER_POOL_SIZE];
+        for (int i = 0; i < orders.length; i++) {
+            final var items = new ArrayList<EItem>(itemCount);
+            for (int j = 0; j < itemCount; j++) {
+                items.add(new EItem(pickType(random, j), "item" + j, randomPrice(random)));
+            }
+            final var time = underageWindow
+                    ? LocalTime.of(18, random.nextInt(60), random.nextInt(60))
+                    : LocalTime.of(9 + random.nextInt(9), random.nextInt(60));
+            orders[i] = new SampleOrder(List.copyOf(items), new User(underageWindow), time);
+        }
+        return orders;
+    }
+
+    private ItemType pickType(Random random, int index) {
+        if (typeWeights == null) {
+            return index % 2 == 0 ? ItemType.MOUSE : ItemType.KEYBOARD;
+        }
+        var roll = random.nextDouble();
+        final var types = ItemType.values();
+        for (int i = 0; i < types.length - 1; i++) {
+            roll -= typeWeights[i];
+            if (roll < 0) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    private static double randomPrice(Random random) {
+        // cents prices between 1.00 and 400.00
+        return (100 + random.nextInt(39_901)) / 100.0;
+    }
+}
@@ -0,0 +1,101 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.PricingClient;
+import it.unipd.mtss.business.PricingServer;
+import it.unipd.mtss.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip latency and pipelined throughput of {@link PricingServer} over the loopback interface.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PricingServerBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private PricingServer server;
+    private InetSocketAddress address;
+    private SampleOrder[] orders;
+    private List<Order> batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new PricingServer(new BillImpl(new Random(42)),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        address = server.getAddress();
+        orders = OrderMix.UNIFORM.generate(10, 42);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final var order = orders[i % orders.length];
+            batch.add(new Order(order.items(), order.user(), order.purchaseTime()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+        private PricingClient client;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void connect(PricingServerBenchmark benchmark) throws IOException {
+            client = new PricingClient(benchmark.address);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double roundTrip(Connection connection) {
+        final var order = orders[connection.next];
+        connection.next = (connection.next + 1) % orders.length;
+        return connection.client.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public double[] pipelined(Connection connection) {
+        return connection.client.getOrderPrices(batch).getTotals();
+    }
+}
@@ -0,0 +1,83 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.benchmark.OrderMix.SampleOrder;
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.ShadowBill;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ShadowBill} on the primary path over the bare engine, at several sample rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ShadowOverheadBenchmark {
+
+    @Param({"bare", "0", "0.01", "1"})
+    public String sampleRate;
+
+    private Bill bill;
+    private SampleOrder[] orders;
+
+    @Setup
+    public void setUp() {
+        final var engine = new SinglePassBillImpl(new Random(42));
+        bill = sampleRate.equals("bare")
+                ? engine
+                : new ShadowBill(engine, new SinglePassBillImpl(new Random(42)), Double.parseDouble(sampleRate));
+        orders = OrderMix.UNIFORM.generate(10, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (bill instanceof ShadowBill shadow) {
+            shadow.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    private double price(Cursor cursor) {
+        final var order = orders[cursor.next];
+        cursor.next = (cursor.next + 1) % orders.length;
+        return bill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double singleThread(Cursor cursor) {
+        return price(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double sixteenThreads(Cursor cursor) {
+        return price(cursor);
+    }
+}
@@ -0,0 +1,34 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.business.UnderageGiftQuota;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quota granting every gift, so that {@link OrderMix#UNDERAGE_WINDOW} orders reach the gift draw for the whole
+ * run instead of the daily quota running out after the first ten gifts.
+ */
+final class UnlimitedGiftQuota implements UnderageGiftQuota {
+
+    private final LongAdder granted = new LongAdder();
+
+    @Override
+    public boolean canGrant(int userId) {
+        return true;
+    }
+
+    @Override
+    public boolean tryGrant(int userId) {
+        granted.increment();
+        return true;
+    }
+
+    @Override
+    public int getGrantedCount() {
+        return granted.intValue();
+    }
+}
@@ -0,0 +1,136 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.User;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link Bill} decorator pricing orders asynchronously on an executor.
+ * <p>
+ * By default every order is priced on its own virtual thread when the runtime supports them (Java 21+),
+ * otherwise on a thread pool sized on the available processors. The pricing path only uses CAS based and
+ * {@link java.util.concurrent.locks.Lock} based synchronization, so it doesn't pin carrier threads.
+ * <p>
+ * With a concurrency limit at most that many orders are in flight at once and further orders are rejected
+ * right away with a {@link RejectedExecutionException}, instead of queueing up behind a spike.
+ */
+public class AsyncBill implements Bill, AutoCloseable {
+
+    private final Bill delegate;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Semaphore admission;
+
+    public AsyncBill(Bill delegate) {
+        this(delegate, defaultExecutor(), 0, true);
+    }
+
+    public AsyncBill(Bill delegate, Executor executor) {
+        this(delegate, executor, 0, false);
+    }
+
+    /**
+     * @param maxConcurrency maximum number of orders being priced at the same time, 0 for no limit
+     */
+    public AsyncBill(Bill delegate, Executor executor, int maxConcurrency) {
+        this(delegate, executor, maxConcurrency, false);
+    }
+
+    private AsyncBill(Bill delegate, Executor executor, int maxConcurrency, boolean owned) {
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("Concurrency limit must be >=0");
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        this.admission = maxConcurrency == 0 ? null : new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Executor running each task on a new virtual thread if the runtime has them, otherwise a fixed pool with a
+     * thread per available processor.
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            final var factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                final var thread = new Thread(runnable, "async-bill");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can't create the virtual thread executor", e);
+        }
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        return delegate.getOrderPrice(itemsOrdered, user, purchaseTime);
+    }
+
+    @Override
+    public PromotionSchedule getPromotionSchedule() {
+        return delegate.getPromotionSchedule();
+    }
+
+    /**
+     * Prices the order on the executor. Any failure, {@link it.unipd.mtss.model.exception.BillException} and
+     * {@link Error}s included, completes the future exceptionally.
+     */
+    public CompletableFuture<Double> getOrderPriceAsync(List<EItem> itemsOrdered, User user,
+                                                        LocalTime purchaseTime) {
+        if (admission != null && !admission.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many orders in flight"));
+        }
+        final var result = new CompletableFuture<Double>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(delegate.getOrderPrice(itemsOrdered, user, purchaseTime));
+                } catch (Throwable e) {
+                    // errors too, or the caller would wait forever
+                    result.completeExceptionally(e);
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void release() {
+        if (admission != null) {
+            admission.release();
+        }
+    }
+
+    /**
+     * Shuts down the executor if it was created by this bill.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
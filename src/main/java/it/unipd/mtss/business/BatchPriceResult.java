@@ -0,0 +1,58 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.exception.BillException;
+
+/**
+ * Outcome of {@link Bill#getOrderPrices(java.util.List)}, indexed like the priced orders.
+ * <p>
+ * Orders that were rejected have a {@code NaN} total and a non null error.
+ */
+public final class BatchPriceResult {
+
+    private final double[] totals;
+    private final BillException[] errors;
+    private final int errorCount;
+
+    BatchPriceResult(double[] totals, BillException[] errors) {
+        this.totals = totals;
+        this.errors = errors;
+        var count = 0;
+        for (var error : errors) {
+            if (error != null) {
+                count++;
+            }
+        }
+        this.errorCount = count;
+    }
+
+    public int size() {
+        return totals.length;
+    }
+
+    /**
+     * Returns the backing array of totals, without copying it.
+     */
+    public double[] getTotals() {
+        return totals;
+    }
+
+    public double getTotal(int order) {
+        return totals[order];
+    }
+
+    public boolean isSuccessful(int order) {
+        return errors[order] == null;
+    }
+
+    public BillException getError(int order) {
+        return errors[order];
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+}
@@ -4,12 +4,65 @@
 ////////////////////////////////////////////////////////////////////
 package it.unipd.mtss.business;
 
+import it.unipd.mtss.model.CompactOrder;
 import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.ProductCatalog;
 import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
 
 import java.time.LocalTime;
 import java.util.List;
 
 public interface Bill {
     double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime);
+
+    /**
+     * Schedule of the promotions applied to the orders, for the decorators that must tell the orders whose
+     * total depends on them. Decorators return the one of the bill they wrap, other bills are assumed to apply
+     * the default promotions.
+     */
+    default PromotionSchedule getPromotionSchedule() {
+        return PromotionSchedule.DEFAULT_WINDOWS;
+    }
+
+    /**
+     * Same as {@link #getOrderPrice(List, User, LocalTime)} for an order in columnar form.
+     */
+    default double getOrderPrice(CompactOrder order, User user, LocalTime purchaseTime) {
+        return getOrderPrice(order.toItems(), user, purchaseTime);
+    }
+
+    /**
+     * Same as {@link #getOrderPrice(List, User, LocalTime)} for an order of catalog products, priced with the
+     * prices of {@code catalog}.
+     *
+     * @throws it.unipd.mtss.model.exception.ItemException if a product isn't in the catalog
+     */
+    default double getOrderPrice(ProductCatalog.Snapshot catalog, int[] productIds, User user,
+                                 LocalTime purchaseTime) {
+        return getOrderPrice(catalog.toCompactOrder(productIds), user, purchaseTime);
+    }
+
+    /**
+     * Prices many orders at once, collecting rejected orders instead of throwing.
+     * <p>
+     * Totals and underage gift side effects are the same of calling
+     * {@link #getOrderPrice(List, User, LocalTime)} on each order, in order.
+     */
+    default BatchPriceResult getOrderPrices(List<Order> orders) {
+        final var totals = new double[orders.size()];
+        final var errors = new BillException[totals.length];
+        var i = 0;
+        for (var order : orders) {
+            try {
+                totals[i] = getOrderPrice(order.items(), order.user(), order.purchaseTime());
+            } catch (BillException e) {
+                totals[i] = Double.NaN;
+                errors[i] = e;
+            }
+            i++;
+        }
+        return new BatchPriceResult(totals, errors);
+    }
 }
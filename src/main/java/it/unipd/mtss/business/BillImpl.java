@@ -4,88 +4,273 @@
 ////////////////////////////////////////////////////////////////////
 package it.unipd.mtss.business;
 
+import it.unipd.mtss.model.CompactOrder;
 import it.unipd.mtss.model.EItem;
 import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
 import it.unipd.mtss.model.User;
 import it.unipd.mtss.model.exception.BillException;
 
+import java.time.Clock;
 import java.time.LocalTime;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 import java.util.OptionalDouble;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Stream;
 
 public class BillImpl implements Bill{
 
-    private static final int MAX_ITEM_COUNT = 30;
-    private static final int MIN_PROCESSORS_FOR_DISCOUNT = 5;
-    private static final double MIN_TOTAL_DISCOUNT = 1000;
-    private static final double TOTAL_DISCOUNT_AMOUNT = 0.1;
-    private static final int MIN_MOUSES_FOR_DISCOUNT = 10;
-    private static final double MIN_TOTAL_WITHOUT_COMMISSION = 10;
-    private static final double SMALL_ORDER_COMMISSION = 2;
+    public static final int MAX_ITEM_COUNT = 30;
+    static final int MIN_PROCESSORS_FOR_DISCOUNT = 5;
+    static final double MIN_TOTAL_DISCOUNT = 1000;
+    static final double TOTAL_DISCOUNT_AMOUNT = 0.1;
+    static final int MIN_MOUSES_FOR_DISCOUNT = 10;
+    static final double MIN_TOTAL_WITHOUT_COMMISSION = 10;
+    static final double SMALL_ORDER_COMMISSION = 2;
 
-    private static final int MAX_UNDERAGE_GIFTS_PER_DAY = 10;
-    private static final LocalTime UNDERAGE_GIFT_START_TIME = LocalTime.of(18, 0);
-    private static final LocalTime UNDERAGE_GIFT_END_TIME = LocalTime.of(19, 0);
+    public static final int MAX_UNDERAGE_GIFTS_PER_DAY = 10;
 
-    private static int underageGiftCount = 0;
-    private static final Set<User> giftedUsers = new HashSet<>();
+    private static final int BATCH_SPLIT_THRESHOLD = 512;
+    private static final List<String> RULE_NAMES = DefaultDiscountRules.chain().getRuleNames();
 
-    private final Random rnd;
+    private final UnderageGiftPromotion underageGift;
+    private volatile PromotionSchedule promotionSchedule;
 
     public BillImpl(Random rnd) {
-        this.rnd = rnd;
+        this(rnd, new InMemoryUnderageGiftQuota(MAX_UNDERAGE_GIFTS_PER_DAY, Clock.systemDefaultZone()));
+    }
+
+    public BillImpl(Random rnd, UnderageGiftQuota giftQuota) {
+        this(GiftRandomSource.shared(rnd), giftQuota, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock gives the day the gift draws are seeded with
+     */
+    public BillImpl(GiftRandomSource randomSource, UnderageGiftQuota giftQuota, Clock clock) {
+        this.underageGift = new UnderageGiftPromotion(giftQuota, randomSource, clock);
+        this.promotionSchedule = PromotionSchedule.of(underageGift);
     }
 
     private static Stream<EItem> filteredItems(List<EItem> itemsOrdered, ItemType type) {
         return itemsOrdered.stream().filter(item -> item.itemType() == type);
     }
 
-    public static int getUnderageGiftCount() {
-        return underageGiftCount;
+    public int getUnderageGiftCount() {
+        return underageGift.getGrantedCount();
     }
 
-    public static void resetUnderageGift() {
-        underageGiftCount = 0;
+    /**
+     * The underage gift of this bill, to be kept in the schedules replacing the default one.
+     */
+    public UnderageGiftPromotion getUnderageGift() {
+        return underageGift;
     }
 
-    private boolean checkUnderageGift(User user, LocalTime orderTime) {
-        return user.isUnderage()
-                && underageGiftCount < MAX_UNDERAGE_GIFTS_PER_DAY
-                && !giftedUsers.contains(user)
-                && (
-                orderTime.isAfter(UNDERAGE_GIFT_START_TIME)
-                        || orderTime.equals(UNDERAGE_GIFT_START_TIME)
-        ) && orderTime.isBefore(UNDERAGE_GIFT_END_TIME)
-                && rnd.nextBoolean();
+    /**
+     * Names of the pricing rules, in the order they are applied, as reported by a {@link PricingTrace}.
+     */
+    public List<String> getRuleNames() {
+        return RULE_NAMES;
+    }
+
+    /**
+     * Whether the results of {@link #getOrderPricing} have a {@link Receipt}, that is whether the engine
+     * applies the default pricing rules.
+     */
+    public boolean hasReceipts() {
+        return true;
     }
 
     @Override
-    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime orderTime) throws BillException {
-        if(itemsOrdered.isEmpty()){
-            throw new BillException("Order can't be empty");
+    public PromotionSchedule getPromotionSchedule() {
+        return promotionSchedule;
+    }
+
+    /**
+     * Replaces the promotions applied to the orders, without blocking the orders being priced.
+     */
+    public void setPromotionSchedule(PromotionSchedule promotionSchedule) {
+        this.promotionSchedule = promotionSchedule;
+    }
+
+    double applyPromotions(double orderTotal, User user, LocalTime orderTime, long orderId) {
+        return promotionSchedule.apply(orderTotal, user.getId(), user.isUnderage(), orderTime.toSecondOfDay(),
+                orderId);
+    }
+
+    static void checkOrderSize(int itemCount) throws BillException {
+        checkOrderSize(itemCount, MAX_ITEM_COUNT);
+    }
+
+    static void checkOrderSize(int itemCount, int maxItemCount) throws BillException {
+        if (itemCount == 0) {
+            throw new BillException(BillException.Reason.EMPTY_ORDER, "Order can't be empty");
         }
 
-        if (itemsOrdered.size() > MAX_ITEM_COUNT) {
-            throw new BillException("Order can't contain more than " + MAX_ITEM_COUNT + " elements");
+        if (itemCount > maxItemCount) {
+            throw new BillException(BillException.Reason.TOO_MANY_ITEMS,
+                    "Order can't contain more than " + maxItemCount + " elements");
         }
+    }
+
+    /**
+     * Checks the size of an order before pricing it, subclasses can accept larger orders.
+     */
+    void validateOrderSize(int itemCount) throws BillException {
+        checkOrderSize(itemCount);
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime orderTime) throws BillException {
+        return getOrderPrice(itemsOrdered, user, orderTime, Order.NO_ID);
+    }
 
-        if (checkUnderageGift(user, orderTime)) {
-            underageGiftCount++;
-            giftedUsers.add(user);
-            return 0;
+    /**
+     * Prices an order with a known id, so that its underage gift draw can be replayed with a deterministic
+     * {@link GiftRandomSource}.
+     */
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime orderTime, long orderId)
+            throws BillException {
+        validateOrderSize(itemsOrdered.size());
+
+        return applyPromotions(computeOrderTotal(itemsOrdered), user, orderTime, orderId);
+    }
+
+    /**
+     * Prices an order like {@link #getOrderPrice(List, User, LocalTime, long)}, recording in {@code trace} the
+     * rules applied and whether the order was gifted.
+     */
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime orderTime, long orderId,
+                                PricingTrace trace) throws BillException {
+        validateOrderSize(itemsOrdered.size());
+
+        trace.reset();
+        return promotionSchedule.apply(computeOrderTotal(itemsOrdered, trace), user.getId(), user.isUnderage(),
+                orderTime.toSecondOfDay(), orderId, null, trace);
+    }
+
+    public PricingResult getOrderPricing(List<EItem> itemsOrdered, User user, LocalTime orderTime)
+            throws BillException {
+        return getOrderPricing(itemsOrdered, user, orderTime, Order.NO_ID);
+    }
+
+    /**
+     * Prices an order like {@link #getOrderPrice(List, User, LocalTime, long)}, recording the decisions of the
+     * engine and the promotions applied so that its {@link Receipt} can be built later. Results of engines
+     * without {@linkplain #hasReceipts() receipts} only have the totals and the promotions.
+     */
+    public PricingResult getOrderPricing(List<EItem> itemsOrdered, User user, LocalTime orderTime, long orderId)
+            throws BillException {
+        validateOrderSize(itemsOrdered.size());
+
+        final var trace = new PricingTrace();
+        final var subtotal = computeOrderTotal(itemsOrdered, trace);
+        final var applied = new ArrayList<Promotion>();
+        final var total = promotionSchedule.apply(subtotal, user.getId(), user.isUnderage(),
+                orderTime.toSecondOfDay(), orderId, applied);
+        return new PricingResult(List.copyOf(itemsOrdered), trace, hasReceipts(), subtotal, applied, total);
+    }
+
+    @Override
+    public double getOrderPrice(CompactOrder order, User user, LocalTime orderTime) throws BillException {
+        return getOrderPrice(order, user, orderTime, Order.NO_ID);
+    }
+
+    /**
+     * Prices a columnar order with a known id, see {@link #getOrderPrice(List, User, LocalTime, long)}.
+     */
+    public double getOrderPrice(CompactOrder order, User user, LocalTime orderTime, long orderId)
+            throws BillException {
+        validateOrderSize(order.size());
+
+        return applyPromotions(computeOrderTotal(order), user, orderTime, orderId);
+    }
+
+    /**
+     * Prices a columnar order given the user and purchase time as primitives, for callers that never
+     * materialize {@link User} and {@link LocalTime} objects.
+     */
+    double getOrderPrice(CompactOrder order, int userId, boolean underage, int secondOfDay, long orderId)
+            throws BillException {
+        validateOrderSize(order.size());
+
+        return promotionSchedule.apply(computeOrderTotal(order), userId, underage, secondOfDay, orderId);
+    }
+
+    /**
+     * Validates the orders, computes the totals of the valid ones in parallel since they don't touch any shared
+     * state, then applies the promotions sequentially, so that the gifts are drawn in input order.
+     */
+    @Override
+    public BatchPriceResult getOrderPrices(List<Order> orders) {
+        final var batch = orders.toArray(new Order[0]);
+        final var totals = new double[batch.length];
+        final var errors = new BillException[batch.length];
+        final var pending = new boolean[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            final var order = batch[i];
+            try {
+                validateOrderSize(order.items().size());
+            } catch (BillException e) {
+                totals[i] = Double.NaN;
+                errors[i] = e;
+                continue;
+            }
+            pending[i] = true;
         }
 
+        new BatchPricingTask(batch, totals, pending, 0, batch.length).invoke();
+        final var schedule = promotionSchedule;
+        for (int i = 0; i < batch.length; i++) {
+            if (pending[i]) {
+                final var order = batch[i];
+                totals[i] = schedule.apply(totals[i], order.user().getId(), order.user().isUnderage(),
+                        order.purchaseTime().toSecondOfDay(), order.id());
+            }
+        }
+        return new BatchPriceResult(totals, errors);
+    }
+
+    /**
+     * Whether the engine prices {@link CompactOrder}s faster than item lists, so that callers holding both
+     * pass the former.
+     */
+    public boolean prefersCompactOrders() {
+        return false;
+    }
+
+    /**
+     * Columnar counterpart of {@link #computeOrderTotal(List)}.
+     */
+    double computeOrderTotal(CompactOrder order) {
+        return PricingKernel.price(order.typeOrdinals(), order.prices(), order.size());
+    }
+
+    /**
+     * Applies the pricing rules to an already validated order, before the promotions.
+     */
+    final double computeOrderTotal(List<EItem> itemsOrdered) {
+        return computeOrderTotal(itemsOrdered, null);
+    }
+
+    /**
+     * Applies the pricing rules to an already validated order, before the promotions, recording the items total
+     * and the rules applied in {@code trace} when not null. Engines override this one.
+     */
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
         var orderTotal = itemsOrdered.stream().mapToDouble(EItem::price).sum();
+        final var itemsTotal = orderTotal;
+        var applied = 0L;
 
         if (filteredItems(itemsOrdered, ItemType.PROCESSOR).count() > MIN_PROCESSORS_FOR_DISCOUNT) {
             // this can't throw because we already checked that there are more than 5 processors.
             orderTotal -= filteredItems(itemsOrdered, ItemType.PROCESSOR)
                     .mapToDouble(EItem::price)
                     .min().orElseThrow() / 2;
+            applied |= PricingKernel.PROCESSOR_HALF_PRICE_RULE;
         }
 
         OptionalDouble giftedMouse = OptionalDouble.empty();
@@ -96,6 +281,7 @@ public class BillImpl implements Bill{
                     .mapToDouble(EItem::price)
                     .min().orElseThrow());
             orderTotal -= giftedMouse.getAsDouble();
+            applied |= PricingKernel.MOUSE_GIFT_RULE;
         }
         if (mouseCount != 0 && mouseCount == filteredItems(itemsOrdered, ItemType.KEYBOARD).count()) {
             var giftPicks = itemsOrdered.stream()
@@ -106,16 +292,51 @@ public class BillImpl implements Bill{
                     .toArray();
             // gift second pick if a mouse was gifted and it is the first pick
             orderTotal -= giftPicks[giftedMouse.isPresent() && giftPicks[0] == giftedMouse.getAsDouble() ? 1 : 0];
+            applied |= PricingKernel.MOUSE_KEYBOARD_GIFT_RULE;
         }
         if (orderTotal > MIN_TOTAL_DISCOUNT) {
             orderTotal *= 1 - TOTAL_DISCOUNT_AMOUNT;
+            applied |= PricingKernel.BULK_DISCOUNT_RULE;
         }
 
         if (orderTotal < MIN_TOTAL_WITHOUT_COMMISSION) {
             orderTotal += SMALL_ORDER_COMMISSION;
+            applied |= PricingKernel.SMALL_ORDER_COMMISSION_RULE;
+        }
+        if (trace != null) {
+            trace.record(itemsTotal, applied);
         }
         return orderTotal;
     }
 
+    private final class BatchPricingTask extends RecursiveAction {
+        private final Order[] batch;
+        private final double[] totals;
+        private final boolean[] pending;
+        private final int from;
+        private final int to;
 
+        private BatchPricingTask(Order[] batch, double[] totals, boolean[] pending, int from, int to) {
+            this.batch = batch;
+            this.totals = totals;
+            this.pending = pending;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (pending[i]) {
+                        totals[i] = computeOrderTotal(batch[i].items());
+                    }
+                }
+                return;
+            }
+            final var middle = (from + to) >>> 1;
+            invokeAll(new BatchPricingTask(batch, totals, pending, from, middle),
+                    new BatchPricingTask(batch, totals, pending, middle, to));
+        }
+    }
 }
@@ -0,0 +1,191 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Bill} decorator caching order totals by order content.
+ * <p>
+ * Orders are keyed by the multiset of their (type, price) lines, since the pricing rules ignore item names
+ * and line order. The cache is split in independently locked LRU segments to keep contention low.
+ * Orders of underage users and orders inside the window of a promotion of a {@link BillImpl} delegate, or of the
+ * underage gift for other delegates, always reach the delegate, since their total depends on the time of day,
+ * the gift quota and a random draw.
+ * <p>
+ * A reordered cart gets the cached total of the first ordering priced, which can differ from a fresh
+ * computation in the last bit because floating point sums depend on the order of the addends.
+ */
+public class CachingBill implements Bill {
+
+    private static final int TYPE_COUNT = ItemType.values().length;
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final Bill delegate;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    public record Stats(long hits, long misses, long evictions, long bypasses) {
+    }
+
+    public CachingBill(Bill delegate, int maxSize) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Cache size must be at least " + SEGMENTS);
+        }
+        this.delegate = delegate;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        if (user.isUnderage() || hasActivePromotions(purchaseTime)) {
+            bypasses.increment();
+            return delegate.getOrderPrice(itemsOrdered, user, purchaseTime);
+        }
+
+        final var key = new OrderKey(itemsOrdered);
+        final var segment = segments[segmentIndex(key.hash)];
+        final var cached = segment.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        final var total = delegate.getOrderPrice(itemsOrdered, user, purchaseTime);
+        segment.put(key, total);
+        return total;
+    }
+
+    /**
+     * Picks the segment from the high bits of the hash, the low ones pick the bucket inside the segment.
+     */
+    static int segmentIndex(int hash) {
+        return hash >>> (Integer.SIZE - SEGMENT_BITS);
+    }
+
+    private boolean hasActivePromotions(LocalTime purchaseTime) {
+        return delegate.getPromotionSchedule().hasActivePromotions(purchaseTime);
+    }
+
+    @Override
+    public PromotionSchedule getPromotionSchedule() {
+        return delegate.getPromotionSchedule();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), bypasses.sum());
+    }
+
+    public int size() {
+        var size = 0;
+        for (var segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Canonical form of an order: the number of lines of each type followed by the price bits of each type's
+     * lines, sorted.
+     */
+    static final class OrderKey {
+        private final long[] words;
+        private final int hash;
+
+        OrderKey(List<EItem> itemsOrdered) {
+            final var offsets = new int[TYPE_COUNT + 1];
+            for (var item : itemsOrdered) {
+                offsets[item.itemType().ordinal() + 1]++;
+            }
+            words = new long[TYPE_COUNT + itemsOrdered.size()];
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                words[type] = offsets[type + 1];
+                offsets[type + 1] += offsets[type];
+            }
+            final var next = Arrays.copyOf(offsets, TYPE_COUNT);
+            for (var item : itemsOrdered) {
+                words[TYPE_COUNT + next[item.itemType().ordinal()]++] = Double.doubleToLongBits(item.price());
+            }
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                Arrays.sort(words, TYPE_COUNT + offsets[type], TYPE_COUNT + offsets[type + 1]);
+            }
+            hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof OrderKey key && hash == key.hash && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<OrderKey, Double> entries;
+
+        private Segment(int maxSize) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<OrderKey, Double> eldest) {
+                    if (size() > maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private Double get(OrderKey key) {
+            lock.lock();
+            try {
+                return entries.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(OrderKey key, double total) {
+            lock.lock();
+            try {
+                entries.put(key, total);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static it.unipd.mtss.business.BillImpl.MAX_ITEM_COUNT;
+
+/**
+ * Live shopping cart priced incrementally, with the rules of {@link BillImpl}.
+ * <p>
+ * The cart keeps the compensated running sum after every item, so adding an item is a single summation step
+ * and removing one only re-sums the items after it, and the prices of each type sorted, so the cheapest
+ * processor, the cheapest mouse and the two cheapest mice or keyboards are read in constant time.
+ * {@link #getTotal()} is bit for bit the total {@link BillImpl#getOrderPrice} computes for {@link #getItems()}
+ * when no underage gift is drawn. The same state prices what-if additions, for upsell suggestions, without
+ * touching the cart.
+ * <p>
+ * Not thread safe, a cart belongs to a single session.
+ */
+public class Cart {
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private final List<EItem> items = new ArrayList<>(MAX_ITEM_COUNT);
+    // compensated summation state after the first i items, index 0 being the empty cart
+    private final double[] sums = new double[MAX_ITEM_COUNT + 1];
+    private final double[] compensations = new double[MAX_ITEM_COUNT + 1];
+    private final double[] simpleSums = new double[MAX_ITEM_COUNT + 1];
+    private final SortedPrices[] typePrices = new SortedPrices[TYPES.length];
+
+    public Cart() {
+        for (int i = 0; i < typePrices.length; i++) {
+            typePrices[i] = new SortedPrices();
+        }
+    }
+
+    /**
+     * Adds an item to the cart.
+     *
+     * @return the new cart total
+     * @throws BillException if the cart already holds the maximum number of items
+     */
+    public double add(EItem item) throws BillException {
+        if (items.size() == MAX_ITEM_COUNT) {
+            throw new BillException(BillException.Reason.TOO_MANY_ITEMS,
+                    "Order can't contain more than " + MAX_ITEM_COUNT + " elements");
+        }
+        items.add(item);
+        accumulate(items.size() - 1);
+        typePrices[item.itemType().ordinal()].insert(item.price());
+        return getTotal();
+    }
+
+    /**
+     * Removes the item at {@code index} from the cart.
+     *
+     * @return the removed item
+     */
+    public EItem remove(int index) {
+        final var item = items.remove(index);
+        for (int i = index; i < items.size(); i++) {
+            accumulate(i);
+        }
+        typePrices[item.itemType().ordinal()].delete(item.price());
+        return item;
+    }
+
+    /**
+     * Removes the first occurrence of {@code item} from the cart.
+     *
+     * @return false if the cart doesn't contain the item
+     */
+    public boolean remove(EItem item) {
+        final var index = items.indexOf(item);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    public void clear() {
+        items.clear();
+        for (var prices : typePrices) {
+            prices.size = 0;
+        }
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<EItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public int getCount(ItemType type) {
+        return typePrices[type.ordinal()].size;
+    }
+
+    /**
+     * Returns the price of the cheapest item of the given type, {@code NaN} if there is none.
+     */
+    public double getCheapestPrice(ItemType type) {
+        return typePrices[type.ordinal()].get(0);
+    }
+
+    /**
+     * Returns the sum of the prices of the items of the given type.
+     */
+    public double getTypeTotal(ItemType type) {
+        final var prices = typePrices[type.ordinal()];
+        return Arrays.stream(prices.values, 0, prices.size).sum();
+    }
+
+    /**
+     * Returns the cart total with the discounts and the commission applied.
+     *
+     * @throws BillException if the cart is empty
+     */
+    public double getTotal() throws BillException {
+        final var size = items.size();
+        BillImpl.checkOrderSize(size);
+
+        final var processors = typePrices[PricingKernel.PROCESSOR];
+        final var mice = typePrices[PricingKernel.MOUSE];
+        final var keyboards = typePrices[PricingKernel.KEYBOARD];
+        return applyRules(PricingKernel.finalSum(sums[size], compensations[size], simpleSums[size]),
+                processors.size, processors.get(0),
+                mice.size, mice.get(0), mice.get(1),
+                keyboards.size, keyboards.get(0), keyboards.get(1));
+    }
+
+    /**
+     * Returns how much the total would grow if {@code candidate} were added, the empty cart costing nothing.
+     *
+     * @throws BillException if the cart already holds the maximum number of items
+     */
+    public double getAddedPrice(EItem candidate) throws BillException {
+        return getAddedPrices(List.of(candidate))[0];
+    }
+
+    /**
+     * Returns, for each candidate, how much the total would grow if only that candidate were added, without
+     * changing the cart. The empty cart costs nothing.
+     * <p>
+     * A candidate only moves the running sum by one summation step and its type's aggregates by one item, so
+     * it is priced in constant time from the cart state, bit for bit as {@link #getTotal()} would after
+     * {@link #add(EItem)}.
+     *
+     * @throws BillException if the cart already holds the maximum number of items
+     */
+    public double[] getAddedPrices(List<EItem> candidates) throws BillException {
+        final var size = items.size();
+        if (size == MAX_ITEM_COUNT) {
+            throw new BillException(BillException.Reason.TOO_MANY_ITEMS,
+                    "Order can't contain more than " + MAX_ITEM_COUNT + " elements");
+        }
+        final var total = size == 0 ? 0 : getTotal();
+        final var addedPrices = new double[candidates.size()];
+        for (int i = 0; i < addedPrices.length; i++) {
+            addedPrices[i] = getTotalWith(candidates.get(i)) - total;
+        }
+        return addedPrices;
+    }
+
+    /**
+     * Returns the index of the candidate saving the most when added, that is whose price exceeds by the most
+     * how much the total grows, or -1 if adding any of them costs at least its price.
+     *
+     * @throws BillException if the cart already holds the maximum number of items
+     */
+    public int getBestUpsell(List<EItem> candidates) throws BillException {
+        final var addedPrices = getAddedPrices(candidates);
+        var best = -1;
+        var bestSaving = 0.0;
+        for (int i = 0; i < addedPrices.length; i++) {
+            final var saving = candidates.get(i).price() - addedPrices[i];
+            if (saving > bestSaving) {
+                best = i;
+                bestSaving = saving;
+            }
+        }
+        return best;
+    }
+
+    private double getTotalWith(EItem candidate) {
+        final var size = items.size();
+        final var price = candidate.price();
+        final var type = candidate.itemType().ordinal();
+        // the summation step of accumulate, without storing it
+        final var tmp = price - compensations[size];
+        final var sum = sums[size] + tmp;
+        final var orderTotal = PricingKernel.finalSum(sum, (sum - sums[size]) - tmp, simpleSums[size] + price);
+
+        final var processors = typePrices[PricingKernel.PROCESSOR];
+        final var mice = typePrices[PricingKernel.MOUSE];
+        final var keyboards = typePrices[PricingKernel.KEYBOARD];
+        final var processorCount = processors.size + (type == PricingKernel.PROCESSOR ? 1 : 0);
+        final var cheapestProcessor = type == PricingKernel.PROCESSOR
+                ? min(price, processors.get(0)) : processors.get(0);
+        if (type == PricingKernel.MOUSE) {
+            return applyRules(orderTotal, processorCount, cheapestProcessor,
+                    mice.size + 1, mice.getWith(0, price), mice.getWith(1, price),
+                    keyboards.size, keyboards.get(0), keyboards.get(1));
+        }
+        if (type == PricingKernel.KEYBOARD) {
+            return applyRules(orderTotal, processorCount, cheapestProcessor,
+                    mice.size, mice.get(0), mice.get(1),
+                    keyboards.size + 1, keyboards.getWith(0, price), keyboards.getWith(1, price));
+        }
+        return applyRules(orderTotal, processorCount, cheapestProcessor,
+                mice.size, mice.get(0), mice.get(1),
+                keyboards.size, keyboards.get(0), keyboards.get(1));
+    }
+
+    /**
+     * Minimum in the order of {@link Double#compare}, where the NaN of a missing price sorts last.
+     */
+    private static double min(double a, double b) {
+        return Double.compare(a, b) <= 0 ? a : b;
+    }
+
+    private static double applyRules(double orderTotal,
+                                     int processorCount, double cheapestProcessor,
+                                     int mouseCount, double firstMouse, double secondMouse,
+                                     int keyboardCount, double firstKeyboard, double secondKeyboard) {
+        // merges the two cheapest mice with the two cheapest keyboards, NaN sorting last when missing
+        final double firstPick;
+        final double secondPick;
+        if (Double.compare(firstMouse, firstKeyboard) <= 0) {
+            firstPick = firstMouse;
+            secondPick = Double.compare(secondMouse, firstKeyboard) <= 0 ? secondMouse : firstKeyboard;
+        } else {
+            firstPick = firstKeyboard;
+            secondPick = Double.compare(firstMouse, secondKeyboard) <= 0 ? firstMouse : secondKeyboard;
+        }
+        return PricingKernel.applyRules(orderTotal, processorCount, cheapestProcessor,
+                mouseCount, firstMouse, keyboardCount, firstPick, secondPick);
+    }
+
+    /**
+     * Prices the cart at checkout, applying the promotions of {@code bill}.
+     */
+    public double checkout(BillImpl bill, User user, LocalTime orderTime) throws BillException {
+        return bill.applyPromotions(getTotal(), user, orderTime, Order.NO_ID);
+    }
+
+    /**
+     * Adds the item at {@code index} to the summation state after the previous items, the same step of
+     * {@link java.util.stream.DoubleStream#sum()}.
+     */
+    private void accumulate(int index) {
+        final var price = items.get(index).price();
+        final var tmp = price - compensations[index];
+        final var next = sums[index] + tmp;
+        compensations[index + 1] = (next - sums[index]) - tmp;
+        sums[index + 1] = next;
+        simpleSums[index + 1] = simpleSums[index] + price;
+    }
+
+    private static final class SortedPrices {
+        private final double[] values = new double[MAX_ITEM_COUNT];
+        private int size;
+
+        double get(int index) {
+            return index < size ? values[index] : Double.NaN;
+        }
+
+        /**
+         * Returns the price at {@code index}, 0 or 1, as if {@code price} were inserted.
+         */
+        double getWith(int index, double price) {
+            final var first = get(0);
+            if (Double.compare(price, first) < 0) {
+                return index == 0 ? price : first;
+            }
+            return index == 0 ? first : min(price, get(1));
+        }
+
+        void insert(double price) {
+            var index = Arrays.binarySearch(values, 0, size, price);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = price;
+            size++;
+        }
+
+        void delete(double price) {
+            final var index = Arrays.binarySearch(values, 0, size, price);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.ItemType;
+
+import java.util.Set;
+
+import static it.unipd.mtss.business.BillImpl.MIN_MOUSES_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_PROCESSORS_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_WITHOUT_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.SMALL_ORDER_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.TOTAL_DISCOUNT_AMOUNT;
+
+/**
+ * The {@link BillImpl} pricing rules, as a {@link RuleChain}.
+ */
+public enum DefaultDiscountRules implements DiscountRule {
+    PROCESSOR_HALF_PRICE {
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            if (context.getItemCount(ItemType.PROCESSOR) > MIN_PROCESSORS_FOR_DISCOUNT) {
+                return orderTotal - context.getCheapestPrice(ItemType.PROCESSOR) / 2;
+            }
+            return orderTotal;
+        }
+    },
+    MOUSE_GIFT {
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            if (context.getItemCount(ItemType.MOUSE) > MIN_MOUSES_FOR_DISCOUNT) {
+                return orderTotal - context.giftCheapest(ItemType.MOUSE);
+            }
+            return orderTotal;
+        }
+    },
+    MOUSE_KEYBOARD_GIFT {
+        @Override
+        public Set<String> dependsOn() {
+            // the mouse gifted by MOUSE_GIFT can't be gifted again
+            return Set.of(MOUSE_GIFT.name());
+        }
+
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            final var mouseCount = context.getItemCount(ItemType.MOUSE);
+            if (mouseCount != 0 && mouseCount == context.getItemCount(ItemType.KEYBOARD)) {
+                return orderTotal - context.giftCheapest(ItemType.MOUSE, ItemType.KEYBOARD);
+            }
+            return orderTotal;
+        }
+    },
+    BULK_DISCOUNT {
+        @Override
+        public Set<String> dependsOn() {
+            return Set.of(PROCESSOR_HALF_PRICE.name(), MOUSE_GIFT.name(), MOUSE_KEYBOARD_GIFT.name());
+        }
+
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            if (orderTotal > MIN_TOTAL_DISCOUNT) {
+                return orderTotal * (1 - TOTAL_DISCOUNT_AMOUNT);
+            }
+            return orderTotal;
+        }
+    },
+    SMALL_ORDER_COMMISSION_FEE {
+        @Override
+        public Set<String> dependsOn() {
+            return Set.of(BULK_DISCOUNT.name());
+        }
+
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            if (orderTotal < MIN_TOTAL_WITHOUT_COMMISSION) {
+                return orderTotal + SMALL_ORDER_COMMISSION;
+            }
+            return orderTotal;
+        }
+    };
+
+    /**
+     * Builder already containing all the default rules, more rules can be added before building it.
+     */
+    public static RuleChain.Builder builder() {
+        return RuleChain.builder().addAll(values());
+    }
+
+    public static RuleChain chain() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,32 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.util.Set;
+
+/**
+ * A single pricing rule of a {@link RuleChain}.
+ */
+public interface DiscountRule {
+
+    /**
+     * Unique name of the rule inside its chain, used to declare dependencies.
+     */
+    String name();
+
+    /**
+     * Names of the rules that must be applied before this one.
+     */
+    default Set<String> dependsOn() {
+        return Set.of();
+    }
+
+    /**
+     * Applies the rule to the running order total.
+     *
+     * @return the new order total
+     */
+    double apply(double orderTotal, PricingContext context);
+}
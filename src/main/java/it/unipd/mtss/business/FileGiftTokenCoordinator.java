@@ -0,0 +1,239 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link GiftTokenCoordinator} keeping the state of the current day in a small file, for the nodes of a
+ * single host and for tests.
+ * <p>
+ * Every operation reads the whole state, the active leases and the gifted users, under an exclusive
+ * {@link java.nio.channels.FileLock} and writes it back, so processes sharing the file share
+ * the quota. The state is bounded by the daily limit. Expired leases are dropped by the first operation
+ * after their expiry, according to {@code clock}, which must agree between the processes.
+ * <p>
+ * Writes are not atomic, a crash while writing can corrupt the file: a real coordinator keeps its state in
+ * a replicated store, this one stands in for it.
+ */
+public class FileGiftTokenCoordinator implements GiftTokenCoordinator, Closeable {
+
+    static final int MAGIC = 0x4D54544B;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int LEASE_BYTES = 24;
+
+    // FileLocks are held by the whole JVM, so instances sharing a file serialize on the same lock first
+    private static final ConcurrentHashMap<Path, ReentrantLock> FILE_MUTEXES = new ConcurrentHashMap<>();
+
+    private final int maxGiftsPerDay;
+    private final Clock clock;
+    private final FileChannel channel;
+    private final ReentrantLock mutex;
+
+    public FileGiftTokenCoordinator(Path file, int maxGiftsPerDay, Clock clock) throws IOException {
+        this.maxGiftsPerDay = maxGiftsPerDay;
+        this.clock = clock;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        this.mutex = FILE_MUTEXES.computeIfAbsent(file.toRealPath(), path -> new ReentrantLock());
+        mutex.lock();
+        try (var lock = channel.lock()) {
+            if (channel.size() == 0) {
+                write(new State(Long.MIN_VALUE, 0));
+            } else {
+                read();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public Lease acquire(long day, int tokens, Duration duration) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("At least a token must be requested");
+        }
+        final var now = clock.instant();
+        final var expiresAt = now.plus(duration);
+        return update(day, now, state -> {
+            if (day != state.day) {
+                return new Lease(-1, day, 0, expiresAt);
+            }
+            final var granted = Math.min(tokens, state.available());
+            final var lease = new Lease(state.nextLeaseId++, day, granted, expiresAt);
+            if (granted > 0) {
+                state.leases.add(new LeaseState(lease.id(), granted, 0, expiresAt.toEpochMilli()));
+            }
+            return lease;
+        });
+    }
+
+    @Override
+    public ClaimResult claim(Lease lease, int userId) {
+        return update(lease.day(), clock.instant(), state -> {
+            final var active = lease.day() == state.day ? state.find(lease.id()) : null;
+            if (active == null || active.consumed == active.tokens) {
+                return ClaimResult.LEASE_EXPIRED;
+            }
+            if (!state.giftedUsers.add(userId)) {
+                return ClaimResult.ALREADY_GIFTED;
+            }
+            active.consumed++;
+            return ClaimResult.CLAIMED;
+        });
+    }
+
+    @Override
+    public void release(Lease lease) {
+        update(lease.day(), clock.instant(), state -> {
+            final var active = lease.day() == state.day ? state.find(lease.id()) : null;
+            return active != null && state.leases.remove(active);
+        });
+    }
+
+    @Override
+    public int getGrantedCount(long day) {
+        return update(day, clock.instant(), state -> day == state.day ? state.giftedUsers.size() : 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private interface Operation<T> {
+        T apply(State state);
+    }
+
+    /**
+     * Applies the operation to the current state, after moving it to {@code day} if that is a later day and
+     * dropping the leases expired at {@code now}.
+     */
+    private <T> T update(long day, Instant now, Operation<T> operation) {
+        mutex.lock();
+        try (var lock = channel.lock()) {
+            final var state = read();
+            if (day > state.day) {
+                state.day = day;
+                state.leases.clear();
+                state.giftedUsers.clear();
+            }
+            state.leases.removeIf(lease -> lease.expiresAtMillis <= now.toEpochMilli());
+            final var result = operation.apply(state);
+            write(state);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private State read() throws IOException {
+        final var buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a gift token state file");
+        }
+        final var state = new State(buffer.getLong(), buffer.getLong());
+        final var leaseCount = buffer.getInt();
+        final var userCount = buffer.getInt();
+        if (buffer.remaining() != leaseCount * LEASE_BYTES + userCount * Integer.BYTES) {
+            throw new IOException("Truncated gift token state file");
+        }
+        for (int i = 0; i < leaseCount; i++) {
+            state.leases.add(new LeaseState(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong()));
+        }
+        for (int i = 0; i < userCount; i++) {
+            state.giftedUsers.add(buffer.getInt());
+        }
+        return state;
+    }
+
+    private void write(State state) throws IOException {
+        final var buffer = ByteBuffer.allocate(HEADER_BYTES + state.leases.size() * LEASE_BYTES
+                + state.giftedUsers.size() * Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(state.day).putLong(state.nextLeaseId)
+                .putInt(state.leases.size()).putInt(state.giftedUsers.size());
+        for (var lease : state.leases) {
+            buffer.putLong(lease.id).putInt(lease.tokens).putInt(lease.consumed).putLong(lease.expiresAtMillis);
+        }
+        for (var userId : state.giftedUsers) {
+            buffer.putInt(userId);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.truncate(buffer.limit());
+    }
+
+    private final class State {
+        private long day;
+        private long nextLeaseId;
+        private final List<LeaseState> leases = new ArrayList<>();
+        private final Set<Integer> giftedUsers = new HashSet<>();
+
+        private State(long day, long nextLeaseId) {
+            this.day = day;
+            this.nextLeaseId = nextLeaseId;
+        }
+
+        private int available() {
+            var leased = 0;
+            for (var lease : leases) {
+                leased += lease.tokens - lease.consumed;
+            }
+            return Math.max(0, maxGiftsPerDay - giftedUsers.size() - leased);
+        }
+
+        private LeaseState find(long id) {
+            for (var lease : leases) {
+                if (lease.id == id) {
+                    return lease;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class LeaseState {
+        private final long id;
+        private final int tokens;
+        private final long expiresAtMillis;
+        private int consumed;
+
+        private LeaseState(long id, int tokens, int consumed, long expiresAtMillis) {
+            this.id = id;
+            this.tokens = tokens;
+            this.consumed = consumed;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
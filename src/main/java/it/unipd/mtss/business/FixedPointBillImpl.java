@@ -0,0 +1,71 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.Money;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link BillImpl} pricing orders in fixed point, see {@link FixedPointPricingKernel} for the rounding rules.
+ * <p>
+ * {@link #getOrderPriceInMillicents} returns the exact total, {@link #getOrderPrice} the same total
+ * converted back to a double.
+ */
+public class FixedPointBillImpl extends BillImpl {
+
+    public FixedPointBillImpl(Random rnd) {
+        super(rnd);
+    }
+
+    public FixedPointBillImpl(Random rnd, UnderageGiftQuota giftQuota) {
+        super(rnd, giftQuota);
+    }
+
+    public FixedPointBillImpl(GiftRandomSource randomSource, UnderageGiftQuota giftQuota, Clock clock) {
+        super(randomSource, giftQuota, clock);
+    }
+
+    public long getOrderPriceInMillicents(List<EItem> itemsOrdered, User user, LocalTime orderTime)
+            throws BillException {
+        validateOrderSize(itemsOrdered.size());
+
+        return applyPromotions(FixedPointPricingKernel.price(itemsOrdered), user, orderTime);
+    }
+
+    public long getOrderPriceInMillicents(CompactOrder order, User user, LocalTime orderTime) throws BillException {
+        validateOrderSize(order.size());
+
+        return applyPromotions(FixedPointPricingKernel.price(order.typeOrdinals(), order.prices(), order.size()),
+                user, orderTime);
+    }
+
+    /**
+     * Applies the promotions to an exact total, which is kept as it is unless a promotion changes it.
+     */
+    private long applyPromotions(long orderTotal, User user, LocalTime orderTime) {
+        final var total = Money.toDouble(orderTotal);
+        final var promoted = applyPromotions(total, user, orderTime, Order.NO_ID);
+        return promoted == total ? orderTotal : Money.toMillicents(promoted);
+    }
+
+    @Override
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
+        return Money.toDouble(FixedPointPricingKernel.price(itemsOrdered, trace));
+    }
+
+    @Override
+    double computeOrderTotal(CompactOrder order) {
+        return Money.toDouble(FixedPointPricingKernel.price(order.typeOrdinals(), order.prices(), order.size()));
+    }
+}
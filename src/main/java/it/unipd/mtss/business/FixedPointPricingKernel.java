@@ -0,0 +1,163 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Money;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+import static it.unipd.mtss.business.BillImpl.MIN_MOUSES_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_PROCESSORS_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_WITHOUT_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.SMALL_ORDER_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.TOTAL_DISCOUNT_AMOUNT;
+import static it.unipd.mtss.business.PricingKernel.KEYBOARD;
+import static it.unipd.mtss.business.PricingKernel.MOUSE;
+import static it.unipd.mtss.business.PricingKernel.PROCESSOR;
+
+/**
+ * {@link PricingKernel} counterpart working on {@code long} millicents.
+ * <p>
+ * Sums are exact, the half price processor and the bulk discount are rounded half to even to the nearest
+ * millicent right after being computed, and overflows throw {@link ArithmeticException} instead of wrapping.
+ */
+final class FixedPointPricingKernel {
+
+    private static final long BASIS_POINTS = 10_000;
+    private static final long DISCOUNTED_BASIS_POINTS = BASIS_POINTS - Math.round(TOTAL_DISCOUNT_AMOUNT * BASIS_POINTS);
+    private static final long MIN_TOTAL_DISCOUNT_MILLICENTS = Money.toMillicents(MIN_TOTAL_DISCOUNT);
+    private static final long MIN_TOTAL_WITHOUT_COMMISSION_MILLICENTS = Money.toMillicents(
+            MIN_TOTAL_WITHOUT_COMMISSION);
+    private static final long SMALL_ORDER_COMMISSION_MILLICENTS = Money.toMillicents(SMALL_ORDER_COMMISSION);
+
+    private FixedPointPricingKernel() {
+    }
+
+    static long price(List<EItem> itemsOrdered) {
+        return price(itemsOrdered, null);
+    }
+
+    /**
+     * Prices the order, recording the items total and the rules applied in {@code trace} when not null.
+     */
+    static long price(List<EItem> itemsOrdered, PricingTrace trace) {
+        long total = 0;
+        int processorCount = 0;
+        int mouseCount = 0;
+        int keyboardCount = 0;
+        long cheapestProcessor = Long.MAX_VALUE;
+        long cheapestMouse = Long.MAX_VALUE;
+        long firstPick = Long.MAX_VALUE;
+        long secondPick = Long.MAX_VALUE;
+
+        final var size = itemsOrdered.size();
+        final var randomAccess = itemsOrdered instanceof RandomAccess;
+        final var iterator = randomAccess ? null : itemsOrdered.iterator();
+        for (int i = 0; i < size; i++) {
+            final var item = randomAccess ? itemsOrdered.get(i) : iterator.next();
+            final var price = item.priceInMillicents();
+            total = Math.addExact(total, price);
+
+            final var type = item.itemType();
+            if (type == ItemType.PROCESSOR) {
+                cheapestProcessor = Math.min(cheapestProcessor, price);
+                processorCount++;
+            } else if (type == ItemType.MOUSE || type == ItemType.KEYBOARD) {
+                if (type == ItemType.MOUSE) {
+                    cheapestMouse = Math.min(cheapestMouse, price);
+                    mouseCount++;
+                } else {
+                    keyboardCount++;
+                }
+                if (price < firstPick) {
+                    secondPick = firstPick;
+                    firstPick = price;
+                } else if (price < secondPick) {
+                    secondPick = price;
+                }
+            }
+        }
+
+        return applyRules(total, processorCount, cheapestProcessor, mouseCount, cheapestMouse,
+                keyboardCount, firstPick, secondPick, trace);
+    }
+
+    static long price(byte[] typeOrdinals, double[] prices, int size) {
+        long total = 0;
+        int processorCount = 0;
+        int mouseCount = 0;
+        int keyboardCount = 0;
+        long cheapestProcessor = Long.MAX_VALUE;
+        long cheapestMouse = Long.MAX_VALUE;
+        long firstPick = Long.MAX_VALUE;
+        long secondPick = Long.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            final var price = Money.toMillicents(prices[i]);
+            total = Math.addExact(total, price);
+
+            final var type = typeOrdinals[i];
+            if (type == PROCESSOR) {
+                cheapestProcessor = Math.min(cheapestProcessor, price);
+                processorCount++;
+            } else if (type == MOUSE || type == KEYBOARD) {
+                if (type == MOUSE) {
+                    cheapestMouse = Math.min(cheapestMouse, price);
+                    mouseCount++;
+                } else {
+                    keyboardCount++;
+                }
+                if (price < firstPick) {
+                    secondPick = firstPick;
+                    firstPick = price;
+                } else if (price < secondPick) {
+                    secondPick = price;
+                }
+            }
+        }
+
+        return applyRules(total, processorCount, cheapestProcessor, mouseCount, cheapestMouse,
+                keyboardCount, firstPick, secondPick, null);
+    }
+
+    static long applyRules(long orderTotal,
+                           int processorCount, long cheapestProcessor,
+                           int mouseCount, long cheapestMouse,
+                           int keyboardCount, long firstPick, long secondPick,
+                           PricingTrace trace) {
+        var applied = 0L;
+        final var itemsTotal = orderTotal;
+        if (processorCount > MIN_PROCESSORS_FOR_DISCOUNT) {
+            orderTotal -= Money.divideHalfEven(cheapestProcessor, 2);
+            applied |= PricingKernel.PROCESSOR_HALF_PRICE_RULE;
+        }
+        final var mouseGifted = mouseCount > MIN_MOUSES_FOR_DISCOUNT;
+        if (mouseGifted) {
+            orderTotal -= cheapestMouse;
+            applied |= PricingKernel.MOUSE_GIFT_RULE;
+        }
+        if (mouseCount != 0 && mouseCount == keyboardCount) {
+            // gift second pick if a mouse was gifted and it is the first pick
+            orderTotal -= mouseGifted && firstPick == cheapestMouse ? secondPick : firstPick;
+            applied |= PricingKernel.MOUSE_KEYBOARD_GIFT_RULE;
+        }
+        if (orderTotal > MIN_TOTAL_DISCOUNT_MILLICENTS) {
+            orderTotal = Money.divideHalfEven(Math.multiplyExact(orderTotal, DISCOUNTED_BASIS_POINTS), BASIS_POINTS);
+            applied |= PricingKernel.BULK_DISCOUNT_RULE;
+        }
+        if (orderTotal < MIN_TOTAL_WITHOUT_COMMISSION_MILLICENTS) {
+            orderTotal += SMALL_ORDER_COMMISSION_MILLICENTS;
+            applied |= PricingKernel.SMALL_ORDER_COMMISSION_RULE;
+        }
+        if (trace != null) {
+            trace.record(Money.toDouble(itemsTotal), applied);
+        }
+        return orderTotal;
+    }
+}
@@ -0,0 +1,26 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.time.LocalTime;
+
+/**
+ * Takes {@code discount} off the total of every order purchased inside the window, {@code 0.2} being 20% off.
+ * A discount of {@code 1} makes the orders free, they are not underage gifts for the metrics and receipts.
+ */
+public record FlashDiscountPromotion(String name, LocalTime startTime, LocalTime endTime, double discount)
+        implements Promotion {
+
+    public FlashDiscountPromotion {
+        if (!(discount > 0 && discount <= 1)) {
+            throw new IllegalArgumentException("Discount must be in (0, 1]");
+        }
+    }
+
+    @Override
+    public double apply(double orderTotal, int userId, boolean underage, long orderId) {
+        return orderTotal * (1 - discount);
+    }
+}
@@ -0,0 +1,62 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Supplies the generator used to draw the underage gift of an order.
+ */
+@FunctionalInterface
+public interface GiftRandomSource {
+
+    /**
+     * Returns the generator for the gift draw of an order, {@link RandomGenerator#nextBoolean()} is called once.
+     */
+    RandomGenerator forOrder(long epochDay, int userId, long orderId);
+
+    /**
+     * Draws every gift from the same generator, ignoring the order. {@link Random} instances are contended
+     * by concurrent orders, this is the behaviour of {@link BillImpl#BillImpl(Random)}.
+     */
+    static GiftRandomSource shared(RandomGenerator rnd) {
+        return (epochDay, userId, orderId) -> rnd;
+    }
+
+    /**
+     * Draws each gift from the current thread generator: contention free but not reproducible.
+     */
+    static GiftRandomSource threadLocal() {
+        return (epochDay, userId, orderId) -> ThreadLocalRandom.current();
+    }
+
+    /**
+     * Draws each gift from a fresh generator seeded from {@code seed}, the day, the user and the order,
+     * so any gift decision can be replayed offline knowing those four values.
+     */
+    static GiftRandomSource deterministic(long seed) {
+        return (epochDay, userId, orderId) -> new SplittableRandom(seed(seed, epochDay, userId, orderId));
+    }
+
+    /**
+     * Seed of the generator returned by {@link #deterministic(long)} for an order.
+     */
+    static long seed(long seed, long epochDay, int userId, long orderId) {
+        var hash = seed;
+        hash = mix(hash ^ epochDay);
+        hash = mix(hash ^ userId);
+        return mix(hash ^ orderId);
+    }
+
+    private static long mix(long value) {
+        // murmur3 64 bit finalizer
+        var hash = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
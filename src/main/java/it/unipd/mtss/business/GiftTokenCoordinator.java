@@ -0,0 +1,56 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Owner of the daily underage gifts of a cluster of pricing nodes, which lease them in blocks of tokens.
+ * <p>
+ * A token is consumed by {@link #claim(Lease, int) claiming} a user with it, which also keeps every user to a
+ * single gift per day across the nodes. Tokens a lease didn't consume go back to the day's pool when the
+ * lease is {@link #release(Lease) released} or expires, so a node that dies never holds gifts for long.
+ * At any time the users gifted plus the tokens still leased never exceed the daily limit.
+ */
+public interface GiftTokenCoordinator {
+
+    /**
+     * Tokens leased to a node for a day, valid until {@code expiresAt}.
+     */
+    record Lease(long id, long day, int tokens, Instant expiresAt) {
+    }
+
+    enum ClaimResult {
+        /** The user is gifted, a token of the lease was consumed. */
+        CLAIMED,
+        /** The user was already gifted today, by any node, no token was consumed. */
+        ALREADY_GIFTED,
+        /** The lease expired, was released, is of another day or has no tokens left. */
+        LEASE_EXPIRED
+    }
+
+    /**
+     * Leases up to {@code tokens} of the gifts left for the epoch day {@code day}.
+     *
+     * @return the lease, with no tokens if no gift is left
+     */
+    Lease acquire(long day, int tokens, Duration duration);
+
+    /**
+     * Gifts the user with one of the tokens of the lease.
+     */
+    ClaimResult claim(Lease lease, int userId);
+
+    /**
+     * Ends the lease, giving its unconsumed tokens back.
+     */
+    void release(Lease lease);
+
+    /**
+     * Number of users gifted on the epoch day {@code day} by any node.
+     */
+    int getGrantedCount(long day);
+}
@@ -0,0 +1,84 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free {@link UnderageGiftQuota} kept in memory.
+ * <p>
+ * Gifts are reserved with a CAS on the daily counter and gifted users are tracked in a concurrent set,
+ * so reading the quota never contends. The whole state is swapped when {@code clock} moves to a new day.
+ */
+public class InMemoryUnderageGiftQuota implements UnderageGiftQuota {
+
+    private final int maxGiftsPerDay;
+    private final Clock clock;
+    private final AtomicReference<DailyState> state;
+
+    public InMemoryUnderageGiftQuota(int maxGiftsPerDay, Clock clock) {
+        this.maxGiftsPerDay = maxGiftsPerDay;
+        this.clock = clock;
+        this.state = new AtomicReference<>(new DailyState(LocalDate.now(clock)));
+    }
+
+    private DailyState today() {
+        final var today = LocalDate.now(clock);
+        var current = state.get();
+        while (today.isAfter(current.day)) {
+            final var next = new DailyState(today);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+            current = state.get();
+        }
+        return current;
+    }
+
+    @Override
+    public boolean canGrant(int userId) {
+        final var current = today();
+        return current.granted.get() < maxGiftsPerDay && !current.giftedUsers.contains(userId);
+    }
+
+    @Override
+    public boolean tryGrant(int userId) {
+        final var current = today();
+        int granted;
+        do {
+            granted = current.granted.get();
+            if (granted >= maxGiftsPerDay) {
+                return false;
+            }
+        } while (!current.granted.compareAndSet(granted, granted + 1));
+
+        if (!current.giftedUsers.add(userId)) {
+            // another order of the same user won the race, give the reserved gift back
+            current.granted.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int getGrantedCount() {
+        return today().granted.get();
+    }
+
+    private static final class DailyState {
+        private final LocalDate day;
+        private final AtomicInteger granted = new AtomicInteger();
+        private final Set<Integer> giftedUsers = ConcurrentHashMap.newKeySet();
+
+        private DailyState(LocalDate day) {
+            this.day = day;
+        }
+    }
+}
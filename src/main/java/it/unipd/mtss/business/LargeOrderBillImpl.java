@@ -0,0 +1,203 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * {@link BillImpl} for B2B purchase orders with up to {@code maxItemCount} lines.
+ * <p>
+ * The per type counts, sums and minimums the rules need are computed by a fork/join reduction over slices of
+ * {@value #LEAF_SIZE} lines, and the two cheapest mice or keyboards are selected in linear time instead of
+ * sorting them. Slices don't depend on the pool parallelism, so an order always gets the same total; orders
+ * that fit a single slice, like every order {@link BillImpl} accepts, get exactly the total of {@link BillImpl}.
+ */
+public class LargeOrderBillImpl extends BillImpl {
+
+    static final int LEAF_SIZE = 4096;
+
+    private static final int TYPE_COUNT = ItemType.values().length;
+
+    private final int maxItemCount;
+    private final ForkJoinPool pool;
+
+    public LargeOrderBillImpl(Random rnd, int maxItemCount) {
+        this(rnd, new InMemoryUnderageGiftQuota(MAX_UNDERAGE_GIFTS_PER_DAY, Clock.systemDefaultZone()),
+                maxItemCount, ForkJoinPool.commonPool());
+    }
+
+    public LargeOrderBillImpl(Random rnd, UnderageGiftQuota giftQuota, int maxItemCount, ForkJoinPool pool) {
+        super(rnd, giftQuota);
+        if (maxItemCount < MAX_ITEM_COUNT) {
+            throw new IllegalArgumentException("Large orders can't be limited below " + MAX_ITEM_COUNT + " lines");
+        }
+        this.maxItemCount = maxItemCount;
+        this.pool = pool;
+    }
+
+    public int getMaxItemCount() {
+        return maxItemCount;
+    }
+
+    @Override
+    void validateOrderSize(int itemCount) throws BillException {
+        checkOrderSize(itemCount, maxItemCount);
+    }
+
+    @Override
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
+        final var items = itemsOrdered instanceof RandomAccess ? itemsOrdered : new ArrayList<>(itemsOrdered);
+        return reduce(new ReductionTask(items, null, null, 0, items.size())).price(trace);
+    }
+
+    @Override
+    double computeOrderTotal(CompactOrder order) {
+        return reduce(new ReductionTask(null, order.typeOrdinals(), order.prices(), 0, order.size())).price(null);
+    }
+
+    private Aggregate reduce(ReductionTask task) {
+        // orders of a single slice are not worth a trip through the pool
+        if (task.to - task.from <= LEAF_SIZE) {
+            return task.compute();
+        }
+        return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+    }
+
+    /**
+     * Partial aggregates of a slice of an order.
+     */
+    private static final class Aggregate {
+        private final long[] counts = new long[TYPE_COUNT];
+        private final double[] minimums = new double[TYPE_COUNT];
+        private double sum;
+        private double compensation;
+        private double simpleSum;
+        // NaN sorts after every other value, so it is a neutral starting point for the picks
+        private double firstPick = Double.NaN;
+        private double secondPick = Double.NaN;
+
+        private Aggregate() {
+            Arrays.fill(minimums, Double.NaN);
+        }
+
+        private void add(int type, double price) {
+            // same compensated step of DoubleStream.sum()
+            final var tmp = price - compensation;
+            final var next = sum + tmp;
+            compensation = (next - sum) - tmp;
+            sum = next;
+            simpleSum += price;
+
+            minimums[type] = counts[type] == 0 ? price : Math.min(minimums[type], price);
+            counts[type]++;
+            if (type == PricingKernel.MOUSE || type == PricingKernel.KEYBOARD) {
+                pick(price);
+            }
+        }
+
+        private void pick(double price) {
+            if (Double.compare(price, firstPick) < 0) {
+                secondPick = firstPick;
+                firstPick = price;
+            } else if (Double.compare(price, secondPick) < 0) {
+                secondPick = price;
+            }
+        }
+
+        private void addCompensated(double value) {
+            final var tmp = value - compensation;
+            final var next = sum + tmp;
+            compensation = (next - sum) - tmp;
+            sum = next;
+        }
+
+        private Aggregate combine(Aggregate other) {
+            // same combination of DoubleSummaryStatistics
+            addCompensated(other.sum);
+            addCompensated(-other.compensation);
+            simpleSum += other.simpleSum;
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                if (other.counts[type] != 0) {
+                    minimums[type] = counts[type] == 0
+                            ? other.minimums[type]
+                            : Math.min(minimums[type], other.minimums[type]);
+                    counts[type] += other.counts[type];
+                }
+            }
+            pick(other.firstPick);
+            pick(other.secondPick);
+            return this;
+        }
+
+        private double price(PricingTrace trace) {
+            final int processor = PricingKernel.PROCESSOR;
+            final int mouse = PricingKernel.MOUSE;
+            final int keyboard = PricingKernel.KEYBOARD;
+            // the thresholds are tiny, saturating the counts keeps the rules exact
+            return PricingKernel.applyRules(PricingKernel.finalSum(sum, compensation, simpleSum),
+                    saturate(counts[processor]), minimums[processor],
+                    saturate(counts[mouse]), minimums[mouse],
+                    saturate(counts[keyboard]), firstPick, secondPick, trace);
+        }
+
+        private int saturate(long count) {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+    }
+
+    private static final class ReductionTask extends RecursiveTask<Aggregate> {
+        private final List<EItem> items;
+        private final byte[] typeOrdinals;
+        private final double[] prices;
+        private final int from;
+        private final int to;
+
+        private ReductionTask(List<EItem> items, byte[] typeOrdinals, double[] prices, int from, int to) {
+            this.items = items;
+            this.typeOrdinals = typeOrdinals;
+            this.prices = prices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from <= LEAF_SIZE) {
+                final var aggregate = new Aggregate();
+                if (items != null) {
+                    for (int i = from; i < to; i++) {
+                        final var item = items.get(i);
+                        aggregate.add(item.itemType().ordinal(), item.price());
+                    }
+                } else {
+                    for (int i = from; i < to; i++) {
+                        aggregate.add(typeOrdinals[i], prices[i]);
+                    }
+                }
+                return aggregate;
+            }
+            // split on slice boundaries, so the summation tree only depends on the order size
+            final var middle = from + (to - from + LEAF_SIZE - 1) / LEAF_SIZE / 2 * LEAF_SIZE;
+            final var left = new ReductionTask(items, typeOrdinals, prices, from, middle);
+            final var right = new ReductionTask(items, typeOrdinals, prices, middle, to);
+            left.fork();
+            final var rightAggregate = right.compute();
+            return left.join().combine(rightAggregate);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link UnderageGiftQuota} of a pricing node sharing the daily limit with other nodes through a
+ * {@link GiftTokenCoordinator}.
+ * <p>
+ * The node leases blocks of {@code blockSize} gift tokens and answers {@link #canGrant(int)} from its block
+ * alone, so pricing orders never waits on the coordinator. A gift still claims the user on the coordinator,
+ * as that's the only place that knows whether another node gifted them already, but that happens at most
+ * once per gift and per token; users found gifted are remembered, so they are rejected locally afterwards.
+ * A new block is leased when the current one runs out or expires, if the coordinator had none left it is
+ * asked again only after {@code retryInterval}. Blocks are given back on {@link #close()}, or when they expire
+ * if the node dies.
+ * <p>
+ * Tokens are taken from the block and users are checked without locking, and claims are made without holding
+ * any lock, so a slow coordinator only delays the gifts being claimed. Only the threads that need a new block
+ * wait for the one leasing it. A token of a user found gifted is put back in its block, or if the block was
+ * replaced meanwhile its lease is released, making the claims still in flight on it retry on the new block.
+ */
+public class LeasedUnderageGiftQuota implements UnderageGiftQuota, Closeable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 2;
+    public static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private final GiftTokenCoordinator coordinator;
+    private final int blockSize;
+    private final Duration leaseDuration;
+    private final Duration retryInterval;
+    private final Clock clock;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(Block.startOfDay(Long.MIN_VALUE));
+    // held while leasing a block, never while checking or claiming
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    public LeasedUnderageGiftQuota(GiftTokenCoordinator coordinator, Clock clock) {
+        this(coordinator, DEFAULT_BLOCK_SIZE, DEFAULT_LEASE_DURATION, DEFAULT_RETRY_INTERVAL, clock);
+    }
+
+    public LeasedUnderageGiftQuota(GiftTokenCoordinator coordinator, int blockSize, Duration leaseDuration,
+                                   Duration retryInterval, Clock clock) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Blocks must have at least a token");
+        }
+        this.coordinator = coordinator;
+        this.blockSize = blockSize;
+        this.leaseDuration = leaseDuration;
+        this.retryInterval = retryInterval;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean canGrant(int userId) {
+        final var current = currentBlock();
+        if (current.giftedUsers.contains(userId)) {
+            return false;
+        }
+        // with no tokens left the next grant leases a block, unless the coordinator just had none
+        final var now = clock.instant();
+        return current.hasTokens(now) || !now.isBefore(current.nextAcquire);
+    }
+
+    @Override
+    public boolean tryGrant(int userId) {
+        // a lease can expire on the coordinator before it does here, the claim is then retried on a new one
+        for (int attempt = 0; attempt < 2; attempt++) {
+            var current = currentBlock();
+            if (current.giftedUsers.contains(userId)) {
+                return false;
+            }
+            while (!current.takeToken(clock.instant())) {
+                current = renew(current);
+                if (current == null) {
+                    return false;
+                }
+            }
+            switch (coordinator.claim(current.lease, userId)) {
+                case CLAIMED -> {
+                    current.giftedUsers.add(userId);
+                    return true;
+                }
+                case ALREADY_GIFTED -> {
+                    if (!current.giveBack()) {
+                        coordinator.release(current.lease);
+                    }
+                    current.giftedUsers.add(userId);
+                    return false;
+                }
+                default -> current.drain();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of users gifted today by every node, asked to the coordinator.
+     */
+    @Override
+    public int getGrantedCount() {
+        return coordinator.getGrantedCount(LocalDate.now(clock).toEpochDay());
+    }
+
+    /**
+     * Gives the tokens left back to the coordinator.
+     */
+    @Override
+    public void close() {
+        leaseLock.lock();
+        try {
+            final var current = block.get();
+            retire(current);
+            block.compareAndSet(current, new Block(current.day, null, 0, Instant.MIN, current.giftedUsers));
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /**
+     * Block of the current day, starting a new day if it changed.
+     */
+    private Block currentBlock() {
+        final var today = LocalDate.now(clock).toEpochDay();
+        final var current = block.get();
+        if (current.day == today) {
+            return current;
+        }
+        // the coordinator drops the leases of the previous day by itself
+        block.compareAndSet(current, Block.startOfDay(today));
+        return block.get();
+    }
+
+    /**
+     * Replaces a block with no tokens left with a new one, unless another thread did it already.
+     *
+     * @return the block to take a token from, null if the coordinator has no token left or was asked too
+     *     recently
+     */
+    private Block renew(Block stale) {
+        leaseLock.lock();
+        try {
+            final var current = block.get();
+            if (current != stale) {
+                return current;
+            }
+            final var now = clock.instant();
+            if (now.isBefore(current.nextAcquire)) {
+                return null;
+            }
+            retire(current);
+            final var lease = coordinator.acquire(current.day, blockSize, leaseDuration);
+            final var tokens = lease.tokens();
+            final var next = new Block(current.day, lease, tokens, tokens == 0 ? now.plus(retryInterval) : Instant.MIN,
+                    current.giftedUsers);
+            if (!block.compareAndSet(current, next)) {
+                // the day changed meanwhile, the new lease belongs to the previous one
+                return block.get();
+            }
+            return tokens == 0 ? null : next;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private void retire(Block retired) {
+        final var left = retired.remaining.getAndSet(Block.RETIRED);
+        if (retired.lease != null && left > 0) {
+            coordinator.release(retired.lease);
+        }
+    }
+
+    private static final class Block {
+        private static final int RETIRED = -1;
+
+        private final long day;
+        private final GiftTokenCoordinator.Lease lease;
+        private final AtomicInteger remaining;
+        private final Instant nextAcquire;
+        // shared by the blocks of the same day
+        private final Set<Integer> giftedUsers;
+
+        private Block(long day, GiftTokenCoordinator.Lease lease, int tokens, Instant nextAcquire,
+                      Set<Integer> giftedUsers) {
+            this.day = day;
+            this.lease = lease;
+            this.remaining = new AtomicInteger(tokens);
+            this.nextAcquire = nextAcquire;
+            this.giftedUsers = giftedUsers;
+        }
+
+        private static Block startOfDay(long day) {
+            return new Block(day, null, 0, Instant.MIN, ConcurrentHashMap.newKeySet());
+        }
+
+        private boolean hasTokens(Instant now) {
+            return remaining.get() > 0 && now.isBefore(lease.expiresAt());
+        }
+
+        private boolean takeToken(Instant now) {
+            if (lease == null || !now.isBefore(lease.expiresAt())) {
+                return false;
+            }
+            for (var left = remaining.get(); left > 0; left = remaining.get()) {
+                if (remaining.compareAndSet(left, left - 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Drops the tokens left of a block whose lease expired on the coordinator, keeping it retired if it was.
+         */
+        private void drain() {
+            remaining.getAndUpdate(left -> Math.min(left, 0));
+        }
+
+        /**
+         * @return false if the block was retired, the token can only go back with the lease
+         */
+        private boolean giveBack() {
+            return remaining.getAndUpdate(left -> left == RETIRED ? left : left + 1) != RETIRED;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link UnderageGiftQuota} persisted in a memory mapped, append only ledger of (day, user id) grants,
+ * so that a restart during the gift window neither resets the daily limit nor gifts a user twice.
+ * <p>
+ * Every grant is appended under an exclusive {@link java.nio.channels.FileLock}, after catching up with the
+ * records appended by the other processes sharing the file, so several JVMs on the same host share one quota.
+ * Grants land in the page cache, which survives a crash of the JVM; they are forced to disk in groups by a
+ * background flusher every {@code flushInterval}, or by {@link #flush()}, never on the pricing path.
+ * <p>
+ * Each record ends with a checksum written last: on startup the ledger is scanned up to the first invalid
+ * record, so a grant torn by a power loss is discarded and overwritten by the next one.
+ */
+public class MappedUnderageGiftQuota implements UnderageGiftQuota, Closeable {
+
+    static final int MAGIC = 0x4D545347;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+
+    private static final int INITIAL_MAPPED_BYTES = 4096;
+
+    // FileLocks are held by the whole JVM, so instances sharing a file serialize on the same lock first
+    private static final ConcurrentHashMap<Path, ReentrantLock> FILE_MUTEXES = new ConcurrentHashMap<>();
+
+    private final int maxGiftsPerDay;
+    private final Clock clock;
+    private final FileChannel channel;
+    private final ReentrantLock mutex;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private volatile MappedByteBuffer ledger;
+    private int tail = HEADER_BYTES;
+    private long indexedDay = Long.MIN_VALUE;
+    private final Set<Integer> giftedUsers = new HashSet<>();
+
+    public MappedUnderageGiftQuota(Path file, int maxGiftsPerDay, Clock clock) throws IOException {
+        this(file, maxGiftsPerDay, clock, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public MappedUnderageGiftQuota(Path file, int maxGiftsPerDay, Clock clock, Duration flushInterval)
+            throws IOException {
+        this.maxGiftsPerDay = maxGiftsPerDay;
+        this.clock = clock;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        this.mutex = FILE_MUTEXES.computeIfAbsent(file.toRealPath(), path -> new ReentrantLock());
+        try {
+            open(file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "gift-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var interval = Math.max(1, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flushIfDirty, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void open(Path file) throws IOException {
+        mutex.lock();
+        try (var lock = channel.lock()) {
+            final var size = channel.size();
+            ledger = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_MAPPED_BYTES));
+            if (size == 0) {
+                ledger.putInt(0, MAGIC);
+                ledger.putInt(4, VERSION);
+                ledger.force();
+            } else if (size < HEADER_BYTES || ledger.getInt(0) != MAGIC || ledger.getInt(4) != VERSION) {
+                throw new IOException("Not a gift ledger: " + file);
+            }
+            catchUp();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public boolean canGrant(int userId) {
+        mutex.lock();
+        try {
+            catchUp();
+            rollDay();
+            return giftedUsers.size() < maxGiftsPerDay && !giftedUsers.contains(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryGrant(int userId) {
+        mutex.lock();
+        try (var lock = channel.lock()) {
+            catchUp();
+            rollDay();
+            if (giftedUsers.size() >= maxGiftsPerDay || !giftedUsers.add(userId)) {
+                return false;
+            }
+            append(indexedDay, userId);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public int getGrantedCount() {
+        mutex.lock();
+        try {
+            catchUp();
+            rollDay();
+            return giftedUsers.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Forces the grants appended so far to disk.
+     */
+    public void flush() {
+        dirty.set(false);
+        ledger.force();
+    }
+
+    private void flushIfDirty() {
+        if (dirty.getAndSet(false)) {
+            ledger.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushIfDirty();
+        channel.close();
+    }
+
+    private void rollDay() {
+        final var today = LocalDate.now(clock).toEpochDay();
+        if (today > indexedDay) {
+            indexedDay = today;
+            giftedUsers.clear();
+        }
+    }
+
+    /**
+     * Indexes the valid records after {@link #tail}, appended by this or by other processes.
+     */
+    private void catchUp() throws IOException {
+        while (true) {
+            if (tail + RECORD_BYTES > ledger.capacity()) {
+                if (channel.size() <= ledger.capacity()) {
+                    return;
+                }
+                ledger = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            final var day = ledger.getLong(tail);
+            final var userId = ledger.getInt(tail + 8);
+            if (ledger.getInt(tail + 12) != checksum(day, userId)) {
+                return;
+            }
+            if (day > indexedDay) {
+                indexedDay = day;
+                giftedUsers.clear();
+            }
+            if (day == indexedDay) {
+                giftedUsers.add(userId);
+            }
+            tail += RECORD_BYTES;
+        }
+    }
+
+    private void append(long day, int userId) throws IOException {
+        if (tail + RECORD_BYTES > ledger.capacity()) {
+            // mapping past the end grows the file, the flusher must not force the old mapping anymore
+            flush();
+            ledger = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * ledger.capacity());
+        }
+        ledger.putLong(tail, day);
+        ledger.putInt(tail + 8, userId);
+        // written last, a record is only valid once complete
+        ledger.putInt(tail + 12, checksum(day, userId));
+        tail += RECORD_BYTES;
+        dirty.set(true);
+    }
+
+    static int checksum(long day, int userId) {
+        var hash = (day * 0x9E3779B97F4A7C15L) ^ (userId * 0xC2B2AE3D27D4EB4FL) ^ MAGIC;
+        hash ^= hash >>> 29;
+        final var checksum = (int) (hash ^ (hash >>> 32));
+        // never zero, so that the zero filled tail of the file is never a valid record
+        return checksum == 0 ? 1 : checksum;
+    }
+}
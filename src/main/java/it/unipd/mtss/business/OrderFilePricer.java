@@ -0,0 +1,145 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.exception.EException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static it.unipd.mtss.business.OrderFileWriter.FILE_HEADER_BYTES;
+import static it.unipd.mtss.business.OrderFileWriter.LINE_BYTES;
+import static it.unipd.mtss.business.OrderFileWriter.MAGIC;
+import static it.unipd.mtss.business.OrderFileWriter.RECORD_HEADER_BYTES;
+import static it.unipd.mtss.business.OrderFileWriter.UNDERAGE_FLAG;
+import static it.unipd.mtss.business.OrderFileWriter.VERSION;
+
+/**
+ * Prices every order of a file written by {@link OrderFileWriter}, writing one big endian double total per
+ * order to the output file, {@code NaN} for rejected orders.
+ * <p>
+ * The input is memory mapped a window at a time and each order is decoded straight into a reused
+ * {@link CompactOrder}, so the heap stays flat whatever the size of the file. Orders are priced in file order,
+ * so totals and underage gifts are the same of pricing the orders one by one with the given bill.
+ */
+public class OrderFilePricer {
+
+    private static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+    private static final int OUTPUT_BUFFER_BYTES = 1 << 16;
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final BillImpl bill;
+    private final long windowBytes;
+
+    public record Summary(long orders, long rejected) {
+    }
+
+    public OrderFilePricer(BillImpl bill) {
+        this(bill, DEFAULT_WINDOW_BYTES);
+    }
+
+    OrderFilePricer(BillImpl bill, long windowBytes) {
+        // a window must fit at least the largest possible record
+        this.windowBytes = Math.max(windowBytes,
+                RECORD_HEADER_BYTES + (long) OrderFileWriter.MAX_LINES * LINE_BYTES);
+        this.bill = bill;
+    }
+
+    public Summary price(Path input, Path output) throws IOException {
+        try (var in = FileChannel.open(input, StandardOpenOption.READ);
+             var out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var size = in.size();
+            var window = map(in, 0, size);
+            if (size < FILE_HEADER_BYTES || window.getInt() != MAGIC || window.getShort() != VERSION) {
+                throw new IOException("Not an order file: " + input);
+            }
+
+            final var order = new CompactOrder();
+            final var totals = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+            var windowStart = 0L;
+            long orders = 0;
+            long rejected = 0;
+            while (windowStart + window.position() < size) {
+                if (!hasFullRecord(window)) {
+                    windowStart += window.position();
+                    window = map(in, windowStart, size);
+                    if (!hasFullRecord(window)) {
+                        throw new IOException("Truncated order at byte " + windowStart + " of " + input);
+                    }
+                }
+
+                final var total = priceNext(window, order, orders);
+                if (Double.isNaN(total)) {
+                    rejected++;
+                }
+                orders++;
+
+                if (!totals.hasRemaining()) {
+                    flush(totals, out);
+                }
+                totals.putDouble(total);
+            }
+            flush(totals, out);
+            return new Summary(orders, rejected);
+        }
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+    }
+
+    private static boolean hasFullRecord(ByteBuffer window) {
+        if (window.remaining() < RECORD_HEADER_BYTES) {
+            return false;
+        }
+        final var lines = Short.toUnsignedInt(window.getShort(window.position() + RECORD_HEADER_BYTES - Short.BYTES));
+        return window.remaining() >= RECORD_HEADER_BYTES + lines * LINE_BYTES;
+    }
+
+    // the index of the order in the file is its id for the gift draw
+    private double priceNext(ByteBuffer window, CompactOrder order, long orderId) {
+        final var userId = window.getInt();
+        final var underage = (window.get() & UNDERAGE_FLAG) != 0;
+        final var secondOfDay = window.getInt();
+        final var lines = Short.toUnsignedInt(window.getShort());
+
+        order.clear();
+        var valid = secondOfDay >= 0 && secondOfDay < SECONDS_PER_DAY;
+        for (int i = 0; i < lines; i++) {
+            final var type = window.get();
+            final var price = window.getDouble();
+            if (valid && type >= 0 && type < TYPES.length && price > 0) {
+                order.add(TYPES[type], price);
+            } else {
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return Double.NaN;
+        }
+
+        try {
+            return bill.getOrderPrice(order, userId, underage, secondOfDay, orderId);
+        } catch (EException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static void flush(ByteBuffer totals, FileChannel out) throws IOException {
+        totals.flip();
+        while (totals.hasRemaining()) {
+            out.write(totals);
+        }
+        totals.clear();
+    }
+}
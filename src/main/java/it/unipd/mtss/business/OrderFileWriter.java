@@ -0,0 +1,77 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Writes orders in the binary format read by {@link OrderFilePricer}.
+ * <p>
+ * The file starts with the {@link #MAGIC} int and the {@link #VERSION} short, followed by one record per
+ * order: user id (int), flags (byte, {@link #UNDERAGE_FLAG} set for underage users), second of the day of the
+ * purchase (int), number of lines (unsigned short) and for each line the {@code ItemType} ordinal (byte) and
+ * the price (double). Everything is big endian.
+ */
+public class OrderFileWriter implements Closeable {
+
+    public static final int MAGIC = 0x4D54534F;
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    public static final int RECORD_HEADER_BYTES = Integer.BYTES + Byte.BYTES + Integer.BYTES + Short.BYTES;
+    public static final int LINE_BYTES = Byte.BYTES + Double.BYTES;
+    public static final int UNDERAGE_FLAG = 1;
+    public static final int MAX_LINES = 0xFFFF;
+
+    private final DataOutputStream out;
+
+    public OrderFileWriter(Path file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    private void writeHeader(int userId, boolean underage, LocalTime purchaseTime, int lines) throws IOException {
+        if (lines > MAX_LINES) {
+            throw new IllegalArgumentException("Orders can't have more than " + MAX_LINES + " lines");
+        }
+        out.writeInt(userId);
+        out.writeByte(underage ? UNDERAGE_FLAG : 0);
+        out.writeInt(purchaseTime.toSecondOfDay());
+        out.writeShort(lines);
+    }
+
+    public void write(int userId, boolean underage, LocalTime purchaseTime, List<EItem> items) throws IOException {
+        writeHeader(userId, underage, purchaseTime, items.size());
+        for (var item : items) {
+            out.writeByte(item.itemType().ordinal());
+            out.writeDouble(item.price());
+        }
+    }
+
+    public void write(int userId, boolean underage, LocalTime purchaseTime, CompactOrder order) throws IOException {
+        writeHeader(userId, underage, purchaseTime, order.size());
+        final var typeOrdinals = order.typeOrdinals();
+        final var prices = order.prices();
+        for (int i = 0; i < order.size(); i++) {
+            out.writeByte(typeOrdinals[i]);
+            out.writeDouble(prices[i]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
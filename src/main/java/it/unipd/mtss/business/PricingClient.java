@@ -0,0 +1,196 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalTime;
+import java.util.List;
+
+import static it.unipd.mtss.business.PricingServer.LINE_BYTES;
+import static it.unipd.mtss.business.PricingServer.MAX_LINES;
+import static it.unipd.mtss.business.PricingServer.REQUEST_HEADER_BYTES;
+import static it.unipd.mtss.business.PricingServer.RESPONSE_BYTES;
+
+/**
+ * {@link Bill} pricing orders on a {@link PricingServer}, over a single connection.
+ * <p>
+ * {@link #getOrderPrices(List)} pipelines the orders, keeping up to {@code window} requests in flight, so a
+ * batch costs far less than a round trip per order. Network errors are thrown as
+ * {@link UncheckedIOException}s. Calls are serialized, use a client per thread for parallel requests.
+ */
+public class PricingClient implements Bill, Closeable {
+
+    public static final int DEFAULT_WINDOW = 1024;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final int window;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long nextRequestId;
+
+    public PricingClient(InetSocketAddress address) throws IOException {
+        this(address, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window maximum number of requests in flight, small enough for the server to buffer the responses
+     */
+    public PricingClient(InetSocketAddress address, int window) throws IOException {
+        if (window < 1 || window > BUFFER_BYTES / RESPONSE_BYTES) {
+            throw new IllegalArgumentException("Window must be in [1, " + BUFFER_BYTES / RESPONSE_BYTES + "]");
+        }
+        this.window = window;
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    @Override
+    public synchronized double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        try {
+            final var requestId = encode(itemsOrdered, user, purchaseTime);
+            flush();
+            readResponse();
+            return decode(requestId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Prices the orders pipelining the requests, in the order given.
+     */
+    @Override
+    public synchronized BatchPriceResult getOrderPrices(List<Order> orders) {
+        final var batch = orders.toArray(new Order[0]);
+        final var totals = new double[batch.length];
+        final var errors = new BillException[batch.length];
+        // orders that can't even be sent are rejected right away
+        final var pending = new int[batch.length];
+        var pendingCount = 0;
+        for (int i = 0; i < batch.length; i++) {
+            if (batch[i].items().size() > MAX_LINES) {
+                totals[i] = Double.NaN;
+                errors[i] = tooManyItems();
+            } else {
+                pending[pendingCount++] = i;
+            }
+        }
+
+        final var firstRequestId = nextRequestId;
+        int sent = 0;
+        int received = 0;
+        try {
+            while (received < pendingCount) {
+                while (sent < pendingCount && sent - received < window
+                        && out.remaining() >= frameBytes(batch[pending[sent]].items())) {
+                    final var order = batch[pending[sent++]];
+                    encode(order.items(), order.user(), order.purchaseTime());
+                }
+                flush();
+                readResponse();
+                do {
+                    final var index = pending[received];
+                    try {
+                        totals[index] = decode(firstRequestId + received);
+                    } catch (BillException e) {
+                        totals[index] = Double.NaN;
+                        errors[index] = e;
+                    }
+                    received++;
+                } while (in.position() >= RESPONSE_BYTES && received < sent);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new BatchPriceResult(totals, errors);
+    }
+
+    private static int frameBytes(List<EItem> items) {
+        return Integer.BYTES + REQUEST_HEADER_BYTES + items.size() * LINE_BYTES;
+    }
+
+    private long encode(List<EItem> items, User user, LocalTime purchaseTime) {
+        if (items.size() > MAX_LINES) {
+            throw tooManyItems();
+        }
+        final var requestId = nextRequestId++;
+        out.putInt(frameBytes(items) - Integer.BYTES)
+                .putLong(requestId)
+                .putInt(user.getId())
+                .put((byte) (user.isUnderage() ? PricingServer.UNDERAGE_FLAG : 0))
+                .putInt(purchaseTime.toSecondOfDay())
+                .putShort((short) items.size());
+        for (var item : items) {
+            out.put((byte) item.itemType().ordinal()).putDouble(item.price());
+        }
+        return requestId;
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Reads until at least a response is buffered.
+     */
+    private void readResponse() throws IOException {
+        while (in.position() < RESPONSE_BYTES) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Pricing server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Consumes the first buffered response.
+     */
+    private double decode(long expectedRequestId) throws IOException {
+        in.flip();
+        final var requestId = in.getLong();
+        final var status = in.get();
+        final var total = in.getDouble();
+        in.compact();
+        if (requestId != expectedRequestId) {
+            throw new IOException("Expected response " + expectedRequestId + ", got " + requestId);
+        }
+        return switch (status) {
+            case PricingServer.STATUS_OK -> total;
+            case PricingServer.STATUS_EMPTY_ORDER ->
+                    throw new BillException(BillException.Reason.EMPTY_ORDER, "Order can't be empty");
+            case PricingServer.STATUS_TOO_MANY_ITEMS -> throw tooManyItems();
+            case PricingServer.STATUS_OTHER -> throw new BillException("Order rejected");
+            case PricingServer.STATUS_INVALID_ORDER -> throw new BillException("Invalid order");
+            default -> throw new BillException("Order rejected with status " + status);
+        };
+    }
+
+    private static BillException tooManyItems() {
+        return new BillException(BillException.Reason.TOO_MANY_ITEMS,
+                "Order can't contain more than " + BillImpl.MAX_ITEM_COUNT + " elements");
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,127 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.ItemType;
+
+import java.util.Arrays;
+
+/**
+ * Per-{@link ItemType} aggregates of the order being priced, handed to every {@link DiscountRule} of a
+ * {@link RuleChain}.
+ * <p>
+ * Rules can gift items through {@link #giftCheapest(ItemType)}: a gifted item is no longer available to
+ * the rules that follow, which is how a rule depending on another one avoids gifting the same item twice.
+ * Only the two cheapest items of each type are tracked, so at most two items per type can be gifted.
+ */
+public final class PricingContext {
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private final int[] counts = new int[TYPES.length];
+    private final double[] typeTotals = new double[TYPES.length];
+    private final double[] cheapest = new double[TYPES.length];
+    private final double[] secondCheapest = new double[TYPES.length];
+    private final int[] gifted = new int[TYPES.length];
+
+    private double sum;
+    private double compensation;
+    private double simpleSum;
+
+    PricingContext() {
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(typeTotals, 0);
+        // NaN sorts after every other value, see PricingKernel
+        Arrays.fill(cheapest, Double.NaN);
+        Arrays.fill(secondCheapest, Double.NaN);
+        Arrays.fill(gifted, 0);
+        sum = 0;
+        compensation = 0;
+        simpleSum = 0;
+    }
+
+    void add(int typeOrdinal, double price) {
+        final var tmp = price - compensation;
+        final var next = sum + tmp;
+        compensation = (next - sum) - tmp;
+        sum = next;
+        simpleSum += price;
+
+        counts[typeOrdinal]++;
+        typeTotals[typeOrdinal] += price;
+        if (Double.compare(price, cheapest[typeOrdinal]) < 0) {
+            secondCheapest[typeOrdinal] = cheapest[typeOrdinal];
+            cheapest[typeOrdinal] = price;
+        } else if (Double.compare(price, secondCheapest[typeOrdinal]) < 0) {
+            secondCheapest[typeOrdinal] = price;
+        }
+    }
+
+    /**
+     * Sum of all the item prices, before any rule is applied.
+     */
+    public double getOrderTotal() {
+        return PricingKernel.finalSum(sum, compensation, simpleSum);
+    }
+
+    public int getItemCount(ItemType type) {
+        return counts[type.ordinal()];
+    }
+
+    public double getTypeTotal(ItemType type) {
+        return typeTotals[type.ordinal()];
+    }
+
+    /**
+     * Price of the cheapest item of the given type, {@code NaN} if the order doesn't contain any.
+     */
+    public double getCheapestPrice(ItemType type) {
+        return cheapest[type.ordinal()];
+    }
+
+    public int getGiftedCount(ItemType type) {
+        return gifted[type.ordinal()];
+    }
+
+    private double cheapestAvailable(int typeOrdinal) {
+        if (gifted[typeOrdinal] >= counts[typeOrdinal]) {
+            return Double.NaN;
+        }
+        return switch (gifted[typeOrdinal]) {
+            case 0 -> cheapest[typeOrdinal];
+            case 1 -> secondCheapest[typeOrdinal];
+            default -> throw new IllegalStateException("Can't gift more than two items of type " + TYPES[typeOrdinal]);
+        };
+    }
+
+    /**
+     * Gifts the cheapest item of the given type that wasn't already gifted.
+     *
+     * @return the price of the gifted item
+     */
+    public double giftCheapest(ItemType type) {
+        final var price = cheapestAvailable(type.ordinal());
+        if (Double.isNaN(price)) {
+            throw new IllegalStateException("No " + type + " left to gift");
+        }
+        gifted[type.ordinal()]++;
+        return price;
+    }
+
+    /**
+     * Gifts the cheapest item among the two given types that wasn't already gifted.
+     *
+     * @return the price of the gifted item
+     */
+    public double giftCheapest(ItemType first, ItemType second) {
+        final var firstPrice = cheapestAvailable(first.ordinal());
+        final var secondPrice = cheapestAvailable(second.ordinal());
+        return giftCheapest(Double.compare(firstPrice, secondPrice) <= 0 ? first : second);
+    }
+}
@@ -0,0 +1,200 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+import static it.unipd.mtss.business.BillImpl.MIN_MOUSES_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_PROCESSORS_FOR_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_DISCOUNT;
+import static it.unipd.mtss.business.BillImpl.MIN_TOTAL_WITHOUT_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.SMALL_ORDER_COMMISSION;
+import static it.unipd.mtss.business.BillImpl.TOTAL_DISCOUNT_AMOUNT;
+
+/**
+ * Single pass implementation of the {@link BillImpl} pricing rules.
+ * <p>
+ * Every aggregate the rules need is collected in local variables while walking the order once, so pricing
+ * an order doesn't allocate. The order total is accumulated with the same compensated summation used by
+ * {@link java.util.stream.DoubleStream#sum()} and the two cheapest mouse/keyboard picks follow the same
+ * ordering as {@link java.util.Arrays#sort(double[])}, so results are bit for bit the ones of
+ * {@link BillImpl#computeOrderTotal(List)}.
+ */
+final class PricingKernel {
+
+    static final byte PROCESSOR = (byte) ItemType.PROCESSOR.ordinal();
+    static final byte MOUSE = (byte) ItemType.MOUSE.ordinal();
+    static final byte KEYBOARD = (byte) ItemType.KEYBOARD.ordinal();
+
+    // bits of the rules in a PricingTrace, in the order of DefaultDiscountRules
+    static final long PROCESSOR_HALF_PRICE_RULE = 1L << DefaultDiscountRules.PROCESSOR_HALF_PRICE.ordinal();
+    static final long MOUSE_GIFT_RULE = 1L << DefaultDiscountRules.MOUSE_GIFT.ordinal();
+    static final long MOUSE_KEYBOARD_GIFT_RULE = 1L << DefaultDiscountRules.MOUSE_KEYBOARD_GIFT.ordinal();
+    static final long BULK_DISCOUNT_RULE = 1L << DefaultDiscountRules.BULK_DISCOUNT.ordinal();
+    static final long SMALL_ORDER_COMMISSION_RULE = 1L << DefaultDiscountRules.SMALL_ORDER_COMMISSION_FEE.ordinal();
+
+    private PricingKernel() {
+    }
+
+    static double price(List<EItem> itemsOrdered) {
+        return price(itemsOrdered, null);
+    }
+
+    /**
+     * Prices the order, recording the items total and the rules applied in {@code trace} when not null.
+     */
+    static double price(List<EItem> itemsOrdered, PricingTrace trace) {
+        double sum = 0;
+        double compensation = 0;
+        double simpleSum = 0;
+        int processorCount = 0;
+        int mouseCount = 0;
+        int keyboardCount = 0;
+        double cheapestProcessor = Double.NaN;
+        double cheapestMouse = Double.NaN;
+        // NaN sorts after every other value, so it is a neutral starting point for the picks
+        double firstPick = Double.NaN;
+        double secondPick = Double.NaN;
+
+        final var size = itemsOrdered.size();
+        final var randomAccess = itemsOrdered instanceof RandomAccess;
+        final var iterator = randomAccess ? null : itemsOrdered.iterator();
+        for (int i = 0; i < size; i++) {
+            final var item = randomAccess ? itemsOrdered.get(i) : iterator.next();
+            final var price = item.price();
+
+            final var tmp = price - compensation;
+            final var next = sum + tmp;
+            compensation = (next - sum) - tmp;
+            sum = next;
+            simpleSum += price;
+
+            final var type = item.itemType();
+            if (type == ItemType.PROCESSOR) {
+                cheapestProcessor = processorCount == 0 ? price : Math.min(cheapestProcessor, price);
+                processorCount++;
+            } else if (type == ItemType.MOUSE || type == ItemType.KEYBOARD) {
+                if (type == ItemType.MOUSE) {
+                    cheapestMouse = mouseCount == 0 ? price : Math.min(cheapestMouse, price);
+                    mouseCount++;
+                } else {
+                    keyboardCount++;
+                }
+                if (Double.compare(price, firstPick) < 0) {
+                    secondPick = firstPick;
+                    firstPick = price;
+                } else if (Double.compare(price, secondPick) < 0) {
+                    secondPick = price;
+                }
+            }
+        }
+
+        return applyRules(finalSum(sum, compensation, simpleSum), processorCount, cheapestProcessor,
+                mouseCount, cheapestMouse, keyboardCount, firstPick, secondPick, trace);
+    }
+
+    static double price(byte[] typeOrdinals, double[] prices, int size) {
+        double sum = 0;
+        double compensation = 0;
+        double simpleSum = 0;
+        int processorCount = 0;
+        int mouseCount = 0;
+        int keyboardCount = 0;
+        double cheapestProcessor = Double.NaN;
+        double cheapestMouse = Double.NaN;
+        double firstPick = Double.NaN;
+        double secondPick = Double.NaN;
+
+        for (int i = 0; i < size; i++) {
+            final var price = prices[i];
+
+            final var tmp = price - compensation;
+            final var next = sum + tmp;
+            compensation = (next - sum) - tmp;
+            sum = next;
+            simpleSum += price;
+
+            final var type = typeOrdinals[i];
+            if (type == PROCESSOR) {
+                cheapestProcessor = processorCount == 0 ? price : Math.min(cheapestProcessor, price);
+                processorCount++;
+            } else if (type == MOUSE || type == KEYBOARD) {
+                if (type == MOUSE) {
+                    cheapestMouse = mouseCount == 0 ? price : Math.min(cheapestMouse, price);
+                    mouseCount++;
+                } else {
+                    keyboardCount++;
+                }
+                if (Double.compare(price, firstPick) < 0) {
+                    secondPick = firstPick;
+                    firstPick = price;
+                } else if (Double.compare(price, secondPick) < 0) {
+                    secondPick = price;
+                }
+            }
+        }
+
+        return applyRules(finalSum(sum, compensation, simpleSum), processorCount, cheapestProcessor,
+                mouseCount, cheapestMouse, keyboardCount, firstPick, secondPick);
+    }
+
+    static double finalSum(double sum, double compensation, double simpleSum) {
+        final var total = sum - compensation;
+        if (Double.isNaN(total) && Double.isInfinite(simpleSum)) {
+            return simpleSum;
+        }
+        return total;
+    }
+
+    static double applyRules(double orderTotal,
+                             int processorCount, double cheapestProcessor,
+                             int mouseCount, double cheapestMouse,
+                             int keyboardCount, double firstPick, double secondPick) {
+        return applyRules(orderTotal, processorCount, cheapestProcessor, mouseCount, cheapestMouse,
+                keyboardCount, firstPick, secondPick, null);
+    }
+
+    /**
+     * Applies the rules to the items total, recording it and the rules applied in {@code trace} when not null.
+     */
+    static double applyRules(double orderTotal,
+                             int processorCount, double cheapestProcessor,
+                             int mouseCount, double cheapestMouse,
+                             int keyboardCount, double firstPick, double secondPick,
+                             PricingTrace trace) {
+        var applied = 0L;
+        final var itemsTotal = orderTotal;
+        if (processorCount > MIN_PROCESSORS_FOR_DISCOUNT) {
+            orderTotal -= cheapestProcessor / 2;
+            applied |= PROCESSOR_HALF_PRICE_RULE;
+        }
+        final var mouseGifted = mouseCount > MIN_MOUSES_FOR_DISCOUNT;
+        if (mouseGifted) {
+            orderTotal -= cheapestMouse;
+            applied |= MOUSE_GIFT_RULE;
+        }
+        if (mouseCount != 0 && mouseCount == keyboardCount) {
+            // gift second pick if a mouse was gifted and it is the first pick
+            orderTotal -= mouseGifted && firstPick == cheapestMouse ? secondPick : firstPick;
+            applied |= MOUSE_KEYBOARD_GIFT_RULE;
+        }
+        if (orderTotal > MIN_TOTAL_DISCOUNT) {
+            orderTotal *= 1 - TOTAL_DISCOUNT_AMOUNT;
+            applied |= BULK_DISCOUNT_RULE;
+        }
+        if (orderTotal < MIN_TOTAL_WITHOUT_COMMISSION) {
+            orderTotal += SMALL_ORDER_COMMISSION;
+            applied |= SMALL_ORDER_COMMISSION_RULE;
+        }
+        if (trace != null) {
+            trace.record(itemsTotal, applied);
+        }
+        return orderTotal;
+    }
+}
@@ -0,0 +1,77 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Total of an order together with what is needed to explain it.
+ * <p>
+ * Pricing only records the totals and rules reported by the engine and the promotions that changed the total,
+ * the {@link Receipt} is built on the first call to {@link #getReceipt()} from that record, so it matches what
+ * the engine charged and random decisions like the underage gift are not drawn again.
+ */
+public final class PricingResult {
+
+    private final List<EItem> items;
+    private final double itemsTotal;
+    private final long appliedRules;
+    private final boolean explainable;
+    private final double subtotal;
+    private final List<Promotion> promotions;
+    private final double total;
+    private volatile Receipt receipt;
+
+    PricingResult(List<EItem> items, PricingTrace trace, boolean explainable, double subtotal,
+                  List<Promotion> promotions, double total) {
+        this.items = items;
+        this.itemsTotal = trace.getItemsTotal();
+        this.appliedRules = trace.getAppliedRules();
+        this.explainable = explainable;
+        this.subtotal = subtotal;
+        this.promotions = promotions;
+        this.total = total;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Promotions that changed the order total, in the order they were applied.
+     */
+    public List<Promotion> getPromotions() {
+        return List.copyOf(promotions);
+    }
+
+    public boolean isUnderageGift() {
+        for (var promotion : promotions) {
+            if (promotion instanceof UnderageGiftPromotion) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Receipt of the order, empty if the engine doesn't apply the default pricing rules, see
+     * {@link BillImpl#hasReceipts()}.
+     */
+    public Optional<Receipt> getReceipt() {
+        if (!explainable) {
+            return Optional.empty();
+        }
+        var current = receipt;
+        if (current == null) {
+            // building it twice on a race is harmless, receipts are immutable
+            current = Receipt.explain(items, itemsTotal, appliedRules, subtotal, promotions, total);
+            receipt = current;
+        }
+        return Optional.of(current);
+    }
+}
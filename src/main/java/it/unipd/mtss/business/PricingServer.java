@@ -0,0 +1,310 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+/**
+ * Prices orders for other processes over TCP, with a {@link BillImpl}.
+ * <p>
+ * Every request is a frame made of its length (int, not counting itself), a request id (long), the user id
+ * (int), flags (byte, {@link #UNDERAGE_FLAG} set for underage users), the second of the day of the purchase
+ * (int), the number of lines (unsigned short, at most {@link #MAX_LINES}) and for each line the
+ * {@code ItemType} ordinal (byte) and the price (double). Every response is {@value #RESPONSE_BYTES} bytes:
+ * the request id (long), a status (byte, {@link #STATUS_OK} or one of the error statuses) and the total
+ * (double, {@code NaN} on errors). Everything is big endian.
+ * <p>
+ * Clients can pipeline any number of requests, responses come back in request order. A single selector
+ * thread serves all the connections: it prices every complete request it has read before writing the
+ * responses back at once, through direct buffers allocated once per connection, and stops reading from a
+ * connection while its responses can't be written. Malformed frames close the connection, while failures of a
+ * request or of a connection never stop the server.
+ */
+public class PricingServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7070;
+    public static final int MAX_LINES = 1024;
+    public static final int UNDERAGE_FLAG = 1;
+    public static final int REQUEST_HEADER_BYTES =
+            Long.BYTES + Integer.BYTES + Byte.BYTES + Integer.BYTES + Short.BYTES;
+    public static final int LINE_BYTES = Byte.BYTES + Double.BYTES;
+    public static final int MAX_REQUEST_BYTES = REQUEST_HEADER_BYTES + MAX_LINES * LINE_BYTES;
+    public static final int RESPONSE_BYTES = Long.BYTES + Byte.BYTES + Double.BYTES;
+
+    public static final byte STATUS_OK = 0;
+    /** {@link BillException.Reason#EMPTY_ORDER}. */
+    public static final byte STATUS_EMPTY_ORDER = 1;
+    /** {@link BillException.Reason#TOO_MANY_ITEMS}. */
+    public static final byte STATUS_TOO_MANY_ITEMS = 2;
+    /** {@link BillException.Reason#OTHER}, or an unexpected failure of the engine, e.g. of a shared gift quota. */
+    public static final byte STATUS_OTHER = 3;
+    /** The order has an unknown item type, a price that isn't positive or an invalid time. */
+    public static final byte STATUS_INVALID_ORDER = 4;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private final BillImpl bill;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    // only touched by the selector thread
+    private final CompactOrder order = new CompactOrder(MAX_LINES);
+    private Thread thread;
+    private volatile boolean closed;
+
+    public PricingServer(BillImpl bill, InetSocketAddress address) throws IOException {
+        this.bill = bill;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Starts serving on a new thread.
+     */
+    public synchronized void start() {
+        if (thread != null || closed) {
+            throw new IllegalStateException("Server already started");
+        }
+        thread = new Thread(this::serve, "pricing-server");
+        thread.start();
+    }
+
+    private void serve() {
+        try {
+            while (!closed) {
+                selector.select();
+                final var keys = selector.selectedKeys();
+                for (var key : keys) {
+                    handle(key);
+                }
+                keys.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        final var channel = (SocketChannel) key.channel();
+        final var connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable() && !connection.flush(channel)) {
+                return;
+            }
+            if (key.isReadable() && channel.read(connection.in) < 0) {
+                close(key);
+                return;
+            }
+            if (!process(connection)) {
+                close(key);
+                return;
+            }
+            // keep reading only while the responses drain
+            key.interestOps(connection.flush(channel) ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close(key);
+        }
+    }
+
+    private void accept() {
+        final SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+        } catch (IOException e) {
+            // e.g. out of file descriptors, the pending connection is accepted on a later select
+            return;
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    /**
+     * Prices the complete requests read so far, as long as their responses fit the output buffer.
+     *
+     * @return false if a frame is malformed
+     */
+    private boolean process(Connection connection) {
+        final var in = connection.in.flip();
+        final var out = connection.out;
+        while (in.remaining() >= Integer.BYTES && out.remaining() >= RESPONSE_BYTES) {
+            final var length = in.getInt(in.position());
+            if (length < REQUEST_HEADER_BYTES || length > MAX_REQUEST_BYTES) {
+                return false;
+            }
+            if (in.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            final var end = in.position() + Integer.BYTES + length;
+            in.position(in.position() + Integer.BYTES);
+            if (!respond(in, end, out)) {
+                return false;
+            }
+        }
+        in.compact();
+        return true;
+    }
+
+    private boolean respond(ByteBuffer in, int end, ByteBuffer out) {
+        final var requestId = in.getLong();
+        final var userId = in.getInt();
+        final var underage = (in.get() & UNDERAGE_FLAG) != 0;
+        final var secondOfDay = in.getInt();
+        final var lines = Short.toUnsignedInt(in.getShort());
+        if (end - in.position() != lines * LINE_BYTES) {
+            return false;
+        }
+
+        order.clear();
+        var valid = secondOfDay >= 0 && secondOfDay < SECONDS_PER_DAY;
+        for (int i = 0; i < lines; i++) {
+            final var type = in.get();
+            final var price = in.getDouble();
+            if (valid && type >= 0 && type < TYPES.length && price > 0) {
+                order.add(TYPES[type], price);
+            } else {
+                valid = false;
+            }
+        }
+
+        out.putLong(requestId);
+        if (!valid) {
+            out.put(STATUS_INVALID_ORDER).putDouble(Double.NaN);
+            return true;
+        }
+        try {
+            final var total = bill.getOrderPrice(order, userId, underage, secondOfDay, Order.NO_ID);
+            out.put(STATUS_OK).putDouble(total);
+        } catch (BillException e) {
+            out.put(status(e.getReason())).putDouble(Double.NaN);
+        } catch (RuntimeException e) {
+            // e.g. an UncheckedIOException of a file backed gift quota, it fails this order only
+            out.put(STATUS_OTHER).putDouble(Double.NaN);
+        }
+        return true;
+    }
+
+    static byte status(BillException.Reason reason) {
+        return switch (reason) {
+            case EMPTY_ORDER -> STATUS_EMPTY_ORDER;
+            case TOO_MANY_ITEMS -> STATUS_TOO_MANY_ITEMS;
+            case OTHER -> STATUS_OTHER;
+        };
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    /**
+     * Stops serving and closes every connection.
+     */
+    @Override
+    public void close() throws IOException {
+        final Thread serving;
+        synchronized (this) {
+            closed = true;
+            serving = thread;
+        }
+        if (serving == null) {
+            closeAll();
+            return;
+        }
+        selector.wakeup();
+        try {
+            serving.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeAll() {
+        for (var key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    private static final class Connection {
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        /**
+         * @return true if every response was written
+         */
+        private boolean flush(SocketChannel channel) throws IOException {
+            out.flip();
+            channel.write(out);
+            final var flushed = !out.hasRemaining();
+            out.compact();
+            return flushed;
+        }
+    }
+
+    /**
+     * Serves a {@link BillImpl} on the given port, {@value #DEFAULT_PORT} by default, of the loopback address.
+     */
+    public static void main(String[] args) throws IOException {
+        final var port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final var server = new PricingServer(new BillImpl(new Random()),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.start();
+        System.out.println("Pricing server listening on " + server.getAddress());
+    }
+}
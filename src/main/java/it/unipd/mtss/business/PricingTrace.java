@@ -0,0 +1,62 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+/**
+ * Decisions taken by an engine while pricing an order, filled by the {@link BillImpl} methods taking a trace.
+ * <p>
+ * Engines record what they do in the same pass that computes the total, so tracing costs a few stores.
+ * A trace is mutable and can be reused, pricing resets it first; it is not thread safe.
+ */
+public final class PricingTrace {
+
+    private double itemsTotal;
+    private long appliedRules;
+    private boolean underageGift;
+
+    public PricingTrace() {
+    }
+
+    void reset() {
+        itemsTotal = 0;
+        appliedRules = 0;
+        underageGift = false;
+    }
+
+    /**
+     * Sum of the item prices, with the arithmetic of the engine.
+     */
+    public double getItemsTotal() {
+        return itemsTotal;
+    }
+
+    /**
+     * Bit mask of the rules that applied, bit {@code i} standing for the {@code i}-th rule of
+     * {@link BillImpl#getRuleNames()}. Only the first 64 rules are reported.
+     */
+    public long getAppliedRules() {
+        return appliedRules;
+    }
+
+    public boolean isRuleApplied(int index) {
+        return index < Long.SIZE && (appliedRules & 1L << index) != 0;
+    }
+
+    /**
+     * Whether the order was gifted by the {@link UnderageGiftPromotion}.
+     */
+    public boolean isUnderageGift() {
+        return underageGift;
+    }
+
+    void record(double itemsTotal, long appliedRules) {
+        this.itemsTotal = itemsTotal;
+        this.appliedRules = appliedRules;
+    }
+
+    void setUnderageGift(boolean underageGift) {
+        this.underageGift = underageGift;
+    }
+}
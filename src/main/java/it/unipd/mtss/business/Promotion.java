@@ -0,0 +1,27 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.time.LocalTime;
+
+/**
+ * A promotion of a {@link PromotionSchedule}, active every day from {@link #startTime()} included to
+ * {@link #endTime()} excluded. Windows with the end before the start span midnight.
+ */
+public interface Promotion {
+
+    String name();
+
+    LocalTime startTime();
+
+    LocalTime endTime();
+
+    /**
+     * Applies the promotion to an order purchased inside its window.
+     *
+     * @return the new order total
+     */
+    double apply(double orderTotal, int userId, boolean underage, long orderId);
+}
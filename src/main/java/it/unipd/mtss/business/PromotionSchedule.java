@@ -0,0 +1,173 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Immutable set of daily {@link Promotion}s, indexed by minute of the day.
+ * <p>
+ * Building the schedule precomputes, for each minute, the promotions whose window overlaps it, so finding the
+ * promotions of an order only looks at the few entries of its minute, however many promotions are scheduled.
+ * Minutes with the same promotions share the same entries. Promotions are applied in the order they were
+ * given, until one makes the order free.
+ * <p>
+ * Replace the schedule of a {@link BillImpl} with {@link BillImpl#setPromotionSchedule}, orders being priced
+ * keep using the schedule they started with.
+ */
+public final class PromotionSchedule {
+
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // windows of the promotions of a default BillImpl, only read and never applied
+    static final PromotionSchedule DEFAULT_WINDOWS = of(new UnderageGiftPromotion(
+            new InMemoryUnderageGiftQuota(0, Clock.systemDefaultZone()), GiftRandomSource.threadLocal(),
+            Clock.systemDefaultZone()));
+
+    private final Promotion[] promotions;
+    private final int[] startSeconds;
+    private final int[] endSeconds;
+    // indexes of the promotions overlapping each minute of the day
+    private final int[][] minutes;
+
+    private PromotionSchedule(Promotion[] promotions) {
+        this.promotions = promotions;
+        this.startSeconds = new int[promotions.length];
+        this.endSeconds = new int[promotions.length];
+        for (int i = 0; i < promotions.length; i++) {
+            startSeconds[i] = promotions[i].startTime().toSecondOfDay();
+            endSeconds[i] = promotions[i].endTime().toSecondOfDay();
+        }
+
+        this.minutes = new int[MINUTES_PER_DAY][];
+        final var shared = new HashMap<List<Integer>, int[]>();
+        final var overlapping = new ArrayList<Integer>();
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            overlapping.clear();
+            for (int i = 0; i < promotions.length; i++) {
+                if (overlaps(i, minute * SECONDS_PER_MINUTE, (minute + 1) * SECONDS_PER_MINUTE)) {
+                    overlapping.add(i);
+                }
+            }
+            minutes[minute] = shared.computeIfAbsent(List.copyOf(overlapping),
+                    indexes -> indexes.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    public static PromotionSchedule of(Promotion... promotions) {
+        return of(Arrays.asList(promotions));
+    }
+
+    /**
+     * @throws IllegalArgumentException if two promotions have the same name or a window is empty
+     */
+    public static PromotionSchedule of(List<? extends Promotion> promotions) {
+        final var names = new HashSet<String>();
+        for (var promotion : promotions) {
+            if (!names.add(promotion.name())) {
+                throw new IllegalArgumentException("Duplicate promotion " + promotion.name());
+            }
+            if (promotion.startTime().toSecondOfDay() == promotion.endTime().toSecondOfDay()) {
+                throw new IllegalArgumentException("Promotion " + promotion.name() + " has an empty window");
+            }
+        }
+        return new PromotionSchedule(promotions.toArray(new Promotion[0]));
+    }
+
+    /**
+     * Promotions of the schedule, in the order they are applied.
+     */
+    public List<Promotion> getPromotions() {
+        return List.of(promotions);
+    }
+
+    public List<Promotion> getActivePromotions(LocalTime time) {
+        final var second = time.toSecondOfDay();
+        final var active = new ArrayList<Promotion>();
+        for (var index : minutes[second / SECONDS_PER_MINUTE]) {
+            if (contains(index, second)) {
+                active.add(promotions[index]);
+            }
+        }
+        return active;
+    }
+
+    public boolean hasActivePromotions(LocalTime time) {
+        final var second = time.toSecondOfDay();
+        for (var index : minutes[second / SECONDS_PER_MINUTE]) {
+            if (contains(index, second)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the promotions active at {@code secondOfDay} to the order total.
+     */
+    double apply(double orderTotal, int userId, boolean underage, int secondOfDay, long orderId) {
+        return apply(orderTotal, userId, underage, secondOfDay, orderId, null);
+    }
+
+    /**
+     * Applies the promotions active at {@code secondOfDay} to the order total, adding to {@code applied} the
+     * ones that changed it when not null.
+     */
+    double apply(double orderTotal, int userId, boolean underage, int secondOfDay, long orderId,
+                 List<Promotion> applied) {
+        return apply(orderTotal, userId, underage, secondOfDay, orderId, applied, null);
+    }
+
+    /**
+     * Applies the promotions like {@link #apply(double, int, boolean, int, long, List)}, also recording in
+     * {@code trace} whether the underage gift applied when not null.
+     */
+    double apply(double orderTotal, int userId, boolean underage, int secondOfDay, long orderId,
+                 List<Promotion> applied, PricingTrace trace) {
+        for (var index : minutes[secondOfDay / SECONDS_PER_MINUTE]) {
+            if (orderTotal == 0) {
+                break;
+            }
+            if (contains(index, secondOfDay)) {
+                final var promotion = promotions[index];
+                final var promoted = promotion.apply(orderTotal, userId, underage, orderId);
+                if (promoted != orderTotal) {
+                    if (applied != null) {
+                        applied.add(promotion);
+                    }
+                    if (trace != null && promotion instanceof UnderageGiftPromotion) {
+                        trace.setUnderageGift(true);
+                    }
+                }
+                orderTotal = promoted;
+            }
+        }
+        return orderTotal;
+    }
+
+    private boolean contains(int index, int second) {
+        final var start = startSeconds[index];
+        final var end = endSeconds[index];
+        return start < end
+                ? second >= start && second < end
+                : second >= start || second < end;
+    }
+
+    private boolean overlaps(int index, int from, int to) {
+        final var start = startSeconds[index];
+        final var end = endSeconds[index];
+        if (start < end) {
+            return start < to && from < end;
+        }
+        // spans midnight: [start, end of day) and [start of day, end)
+        return start < to || from < end;
+    }
+}
@@ -0,0 +1,87 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Itemized explanation of the total of an order, see {@link PricingResult#getReceipt()}.
+ * <p>
+ * Discounted items are given as indexes in {@code items}; when several items tie for a discount the first one
+ * is reported. {@code itemsTotal} and {@code subtotal}, the total after the rules and before the promotions,
+ * are the ones computed by the engine that priced the order, {@code promotions} the promotions that changed it.
+ */
+public record Receipt(List<EItem> items,
+                      double itemsTotal,
+                      OptionalInt halvedProcessor,
+                      OptionalInt giftedMouse,
+                      OptionalInt giftedMouseOrKeyboard,
+                      boolean bulkDiscount,
+                      boolean smallOrderCommission,
+                      double subtotal,
+                      List<Promotion> promotions,
+                      double total) {
+
+    public boolean isUnderageGift() {
+        return promotions.stream().anyMatch(UnderageGiftPromotion.class::isInstance);
+    }
+
+    /**
+     * Builds the receipt of the decisions taken by the engine, as recorded in a {@link PricingTrace}, locating
+     * the discounted items the same way the rules pick them.
+     */
+    static Receipt explain(List<EItem> items, double itemsTotal, long appliedRules, double subtotal,
+                           List<Promotion> promotions, double total) {
+        var halvedProcessor = OptionalInt.empty();
+        if ((appliedRules & PricingKernel.PROCESSOR_HALF_PRICE_RULE) != 0) {
+            halvedProcessor = OptionalInt.of(cheapest(items, ItemType.PROCESSOR));
+        }
+
+        var giftedMouse = OptionalInt.empty();
+        if ((appliedRules & PricingKernel.MOUSE_GIFT_RULE) != 0) {
+            giftedMouse = OptionalInt.of(cheapest(items, ItemType.MOUSE));
+        }
+
+        var giftedMouseOrKeyboard = OptionalInt.empty();
+        if ((appliedRules & PricingKernel.MOUSE_KEYBOARD_GIFT_RULE) != 0) {
+            final var picks = new ArrayList<Integer>();
+            for (int i = 0; i < items.size(); i++) {
+                final var type = items.get(i).itemType();
+                if (type == ItemType.MOUSE || type == ItemType.KEYBOARD) {
+                    picks.add(i);
+                }
+            }
+            picks.sort(Comparator.comparingDouble(index -> items.get(index).price()));
+            // the second pick is gifted if a mouse was gifted and it is the first pick
+            final var gifted = giftedMouse.orElse(-1);
+            final var slot = gifted >= 0 && items.get(picks.get(0)).price() == items.get(gifted).price() ? 1 : 0;
+            // report an item other than the gifted mouse, the two picks have the same price in that case
+            final int pick = slot == 1 && picks.get(1) == gifted ? picks.get(0) : picks.get(slot);
+            giftedMouseOrKeyboard = OptionalInt.of(pick);
+        }
+
+        return new Receipt(List.copyOf(items), itemsTotal, halvedProcessor, giftedMouse, giftedMouseOrKeyboard,
+                (appliedRules & PricingKernel.BULK_DISCOUNT_RULE) != 0,
+                (appliedRules & PricingKernel.SMALL_ORDER_COMMISSION_RULE) != 0,
+                subtotal, List.copyOf(promotions), total);
+    }
+
+    private static int cheapest(List<EItem> items, ItemType type) {
+        var cheapest = -1;
+        for (int i = 0; i < items.size(); i++) {
+            final var item = items.get(i);
+            if (item.itemType() == type && (cheapest < 0 || item.price() < items.get(cheapest).price())) {
+                cheapest = i;
+            }
+        }
+        return cheapest;
+    }
+}
@@ -0,0 +1,189 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered chain of {@link DiscountRule}s.
+ * <p>
+ * Building the chain resolves the declared dependencies once, so pricing an order is a single pass
+ * collecting the {@link PricingContext} aggregates followed by a loop over a plain array of rules.
+ * Rules without a dependency between them keep the order they were added in.
+ * <p>
+ * A chain of exactly the {@link DefaultDiscountRules} is compiled to {@link PricingKernel} instead, which
+ * evaluates all of them in the pass over the order without calling the rules.
+ */
+public final class RuleChain {
+
+    private final DiscountRule[] rules;
+    private final boolean fused;
+    private final ThreadLocal<PricingContext> contexts = ThreadLocal.withInitial(PricingContext::new);
+
+    private RuleChain(DiscountRule[] rules) {
+        this.rules = rules;
+        this.fused = Arrays.equals(rules, DefaultDiscountRules.values());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Names of the rules, in the order they are applied.
+     */
+    public List<String> getRuleNames() {
+        return Arrays.stream(rules).map(DiscountRule::name).toList();
+    }
+
+    /**
+     * Whether the chain applies exactly the {@link DefaultDiscountRules}.
+     */
+    boolean isDefault() {
+        return fused;
+    }
+
+    private PricingContext aggregate(List<EItem> itemsOrdered) {
+        final var context = contexts.get();
+        context.reset();
+        for (var item : itemsOrdered) {
+            context.add(item.itemType().ordinal(), item.price());
+        }
+        return context;
+    }
+
+    public double price(List<EItem> itemsOrdered) {
+        if (fused) {
+            return PricingKernel.price(itemsOrdered);
+        }
+        return applyRules(aggregate(itemsOrdered));
+    }
+
+    /**
+     * Prices the order, recording in {@code trace} the items total and the rules that changed the total.
+     */
+    public double price(List<EItem> itemsOrdered, PricingTrace trace) {
+        if (fused) {
+            return PricingKernel.price(itemsOrdered, trace);
+        }
+        final var context = aggregate(itemsOrdered);
+        var applied = 0L;
+        var orderTotal = context.getOrderTotal();
+        final var itemsTotal = orderTotal;
+        for (int i = 0; i < rules.length; i++) {
+            final var next = rules[i].apply(orderTotal, context);
+            if (i < Long.SIZE && Double.compare(next, orderTotal) != 0) {
+                applied |= 1L << i;
+            }
+            orderTotal = next;
+        }
+        trace.record(itemsTotal, applied);
+        return orderTotal;
+    }
+
+    public double price(CompactOrder order) {
+        if (fused) {
+            return PricingKernel.price(order.typeOrdinals(), order.prices(), order.size());
+        }
+        final var context = contexts.get();
+        context.reset();
+        final var typeOrdinals = order.typeOrdinals();
+        final var prices = order.prices();
+        for (int i = 0, size = order.size(); i < size; i++) {
+            context.add(typeOrdinals[i], prices[i]);
+        }
+        return applyRules(context);
+    }
+
+    /**
+     * Bit mask of the rules that changed the total of the order, bit {@code i} standing for the {@code i}-th
+     * rule of {@link #getRuleNames()}. Only the first 64 rules are reported.
+     */
+    public long getAppliedRules(List<EItem> itemsOrdered) {
+        final var trace = new PricingTrace();
+        price(itemsOrdered, trace);
+        return trace.getAppliedRules();
+    }
+
+    private double applyRules(PricingContext context) {
+        var orderTotal = context.getOrderTotal();
+        for (var rule : rules) {
+            orderTotal = rule.apply(orderTotal, context);
+        }
+        return orderTotal;
+    }
+
+    public static final class Builder {
+        private final Map<String, DiscountRule> rules = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(DiscountRule rule) {
+            if (rules.putIfAbsent(rule.name(), rule) != null) {
+                throw new IllegalArgumentException("Duplicated rule " + rule.name());
+            }
+            return this;
+        }
+
+        public Builder addAll(DiscountRule... rules) {
+            for (var rule : rules) {
+                add(rule);
+            }
+            return this;
+        }
+
+        /**
+         * Orders the rules so that each one comes after its dependencies.
+         *
+         * @throws IllegalArgumentException if a dependency is missing or the dependencies contain a cycle
+         */
+        public RuleChain build() {
+            for (var rule : rules.values()) {
+                for (var dependency : rule.dependsOn()) {
+                    if (!rules.containsKey(dependency)) {
+                        throw new IllegalArgumentException(
+                                "Rule " + rule.name() + " depends on missing rule " + dependency);
+                    }
+                }
+            }
+
+            final var sorted = new ArrayList<DiscountRule>(rules.size());
+            final Map<String, Boolean> visiting = new HashMap<>();
+            for (var rule : rules.values()) {
+                visit(rule, visiting, sorted);
+            }
+            return new RuleChain(sorted.toArray(new DiscountRule[0]));
+        }
+
+        // depth first visit, visiting maps a rule to false while its dependencies are being visited
+        private void visit(DiscountRule rule, Map<String, Boolean> visiting, List<DiscountRule> sorted) {
+            final var state = visiting.get(rule.name());
+            if (Boolean.TRUE.equals(state)) {
+                return;
+            }
+            if (Boolean.FALSE.equals(state)) {
+                throw new IllegalArgumentException("Rule dependencies contain a cycle through " + rule.name());
+            }
+            visiting.put(rule.name(), false);
+            // dependencies are visited in the order the rules were added, to keep the chain stable
+            for (var candidate : rules.values()) {
+                if (rule.dependsOn().contains(candidate.name())) {
+                    visit(candidate, visiting, sorted);
+                }
+            }
+            visiting.put(rule.name(), true);
+            sorted.add(rule);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link BillImpl} whose pricing rules come from a configurable {@link RuleChain}.
+ */
+public class RuleChainBillImpl extends BillImpl {
+
+    private final RuleChain rules;
+
+    public RuleChainBillImpl(Random rnd, RuleChain rules) {
+        super(rnd);
+        this.rules = rules;
+    }
+
+    public RuleChainBillImpl(Random rnd, UnderageGiftQuota giftQuota, RuleChain rules) {
+        super(rnd, giftQuota);
+        this.rules = rules;
+    }
+
+    @Override
+    public List<String> getRuleNames() {
+        return rules.getRuleNames();
+    }
+
+    /**
+     * Only a chain of the {@link DefaultDiscountRules} can be explained by a {@link Receipt}.
+     */
+    @Override
+    public boolean hasReceipts() {
+        return rules.isDefault();
+    }
+
+    @Override
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
+        return trace == null ? rules.price(itemsOrdered) : rules.price(itemsOrdered, trace);
+    }
+
+    @Override
+    double computeOrderTotal(CompactOrder order) {
+        return rules.price(order);
+    }
+}
@@ -0,0 +1,246 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * {@link Bill} decorator pricing a sample of the orders with a candidate engine too, reporting the orders the
+ * two engines disagree on.
+ * <p>
+ * Orders are always priced by the primary bill, whose total or error is returned. Sampled orders are then
+ * handed, with the primary outcome, to a single shadow thread through a bounded queue, so the candidate never
+ * runs on the request thread; when the queue is full the order is dropped from the comparison instead of
+ * slowing down the caller.
+ * <p>
+ * Orders inside the window of a promotion of a {@link BillImpl} primary, or of the underage gift for other
+ * primaries, are never priced with the candidate, since that would take a second gift from the quota and a
+ * second random draw. When both engines are {@link BillImpl}s their totals before the promotions are compared
+ * instead, which has no side effects; otherwise the order is skipped.
+ */
+public class ShadowBill implements Bill, AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int MAX_RECORDED_MISMATCHES = 1000;
+    private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // wakes the shadow thread up on close
+    private static final Sample POISON = new Sample(List.of(), null, null, Double.NaN, null);
+
+    private final Bill primary;
+    private final Bill candidate;
+    private final double sampleRate;
+    private final BlockingQueue<Sample> queue;
+    private final Consumer<Mismatch> listener;
+    private final Thread worker;
+    // most recent mismatches, only touched by the shadow thread and the synchronized getter
+    private final ArrayDeque<Mismatch> mismatches = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public record Stats(long sampled, long compared, long mismatches, long skipped, long dropped) {
+    }
+
+    /**
+     * An order the engines disagree on. Totals are {@code NaN} when the engine threw, with its error; they are
+     * the totals before the promotions when {@code beforePromotions}.
+     */
+    public record Mismatch(List<EItem> items, User user, LocalTime purchaseTime,
+                           double primaryTotal, RuntimeException primaryError,
+                           double candidateTotal, RuntimeException candidateError,
+                           boolean beforePromotions) {
+    }
+
+    private record Sample(List<EItem> items, User user, LocalTime purchaseTime, double total,
+                          RuntimeException error) {
+    }
+
+    public ShadowBill(Bill primary, Bill candidate, double sampleRate) {
+        this(primary, candidate, sampleRate, DEFAULT_QUEUE_CAPACITY, mismatch -> {
+        });
+    }
+
+    /**
+     * @param sampleRate    fraction of the orders priced with the candidate too, in [0, 1]
+     * @param queueCapacity maximum number of sampled orders waiting for the candidate
+     * @param listener      called on the shadow thread for every mismatch, must not throw
+     */
+    public ShadowBill(Bill primary, Bill candidate, double sampleRate, int queueCapacity,
+                      Consumer<Mismatch> listener) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("Sample rate must be in [0, 1]");
+        }
+        this.primary = primary;
+        this.candidate = candidate;
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.listener = listener;
+        this.worker = new Thread(this::compareSamples, "shadow-bill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        if (!isSampled()) {
+            return primary.getOrderPrice(itemsOrdered, user, purchaseTime);
+        }
+
+        sampled.increment();
+        // the caller may reuse its list once priced
+        final var items = List.copyOf(itemsOrdered);
+        final double total;
+        try {
+            total = primary.getOrderPrice(items, user, purchaseTime);
+        } catch (RuntimeException e) {
+            enqueue(new Sample(items, user, purchaseTime, Double.NaN, e));
+            throw e;
+        }
+        enqueue(new Sample(items, user, purchaseTime, total, null));
+        return total;
+    }
+
+    private boolean isSampled() {
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void enqueue(Sample sample) {
+        if (closed || !queue.offer(sample)) {
+            dropped.increment();
+        }
+    }
+
+    private void compareSamples() {
+        final var batch = new ArrayList<Sample>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // let the samples of the next millisecond queue up, so the request threads only wake this thread up
+            // once per batch instead of on every sample, and it never wakes up while idle
+            LockSupport.parkNanos(BATCH_NANOS);
+            queue.drainTo(batch);
+            for (var sample : batch) {
+                if (sample == POISON || closed) {
+                    return;
+                }
+                compare(sample);
+            }
+            batch.clear();
+        }
+    }
+
+    private void compare(Sample sample) {
+        final var beforePromotions = hasActivePromotions(sample.purchaseTime());
+        if (beforePromotions && !(primary instanceof BillImpl && candidate instanceof BillImpl)) {
+            skipped.increment();
+            return;
+        }
+
+        var expected = sample.total();
+        var expectedError = sample.error();
+        if (beforePromotions && expectedError == null) {
+            expected = ((BillImpl) primary).computeOrderTotal(sample.items());
+        }
+
+        var actual = Double.NaN;
+        RuntimeException actualError = null;
+        try {
+            if (beforePromotions) {
+                final var bill = (BillImpl) candidate;
+                bill.validateOrderSize(sample.items().size());
+                actual = bill.computeOrderTotal(sample.items());
+            } else {
+                actual = candidate.getOrderPrice(sample.items(), sample.user(), sample.purchaseTime());
+            }
+        } catch (RuntimeException e) {
+            actualError = e;
+        }
+
+        // the mismatch is published before the comparison is counted, so a caught up reader sees it
+        if (!agree(expected, expectedError, actual, actualError)) {
+            final var mismatch = new Mismatch(sample.items(), sample.user(), sample.purchaseTime(),
+                    expected, expectedError, actual, actualError, beforePromotions);
+            synchronized (mismatches) {
+                if (mismatches.size() == MAX_RECORDED_MISMATCHES) {
+                    mismatches.removeFirst();
+                }
+                mismatches.addLast(mismatch);
+            }
+            mismatched.increment();
+            listener.accept(mismatch);
+        }
+        compared.increment();
+    }
+
+    private static boolean agree(double expected, RuntimeException expectedError,
+                                 double actual, RuntimeException actualError) {
+        if (expectedError == null || actualError == null) {
+            return expectedError == actualError && Double.compare(expected, actual) == 0;
+        }
+        if (expectedError instanceof BillException expectedBill && actualError instanceof BillException actualBill) {
+            return expectedBill.getReason() == actualBill.getReason();
+        }
+        return expectedError.getClass() == actualError.getClass();
+    }
+
+    private boolean hasActivePromotions(LocalTime purchaseTime) {
+        return primary.getPromotionSchedule().hasActivePromotions(purchaseTime);
+    }
+
+    @Override
+    public PromotionSchedule getPromotionSchedule() {
+        return primary.getPromotionSchedule();
+    }
+
+    public Stats getStats() {
+        return new Stats(sampled.sum(), compared.sum(), mismatched.sum(), skipped.sum(), dropped.sum());
+    }
+
+    /**
+     * Returns the most recent mismatches, oldest first, up to {@value #MAX_RECORDED_MISMATCHES}.
+     */
+    public List<Mismatch> getMismatches() {
+        synchronized (mismatches) {
+            return new ArrayList<>(mismatches);
+        }
+    }
+
+    Thread getWorker() {
+        return worker;
+    }
+
+    /**
+     * Stops the shadow thread, sampled orders still queued are not compared.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // the queued samples won't be compared, make room for the pill if needed
+        while (!queue.offer(POISON)) {
+            queue.poll();
+        }
+    }
+}
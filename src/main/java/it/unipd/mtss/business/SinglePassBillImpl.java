@@ -0,0 +1,35 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drop-in replacement for {@link BillImpl} that prices orders with a single allocation free pass
+ * over the items instead of multiple streams.
+ */
+public class SinglePassBillImpl extends BillImpl {
+
+    public SinglePassBillImpl(Random rnd) {
+        super(rnd);
+    }
+
+    public SinglePassBillImpl(Random rnd, UnderageGiftQuota giftQuota) {
+        super(rnd, giftQuota);
+    }
+
+    public SinglePassBillImpl(GiftRandomSource randomSource, UnderageGiftQuota giftQuota, Clock clock) {
+        super(randomSource, giftQuota, clock);
+    }
+
+    @Override
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
+        return PricingKernel.price(itemsOrdered, trace);
+    }
+}
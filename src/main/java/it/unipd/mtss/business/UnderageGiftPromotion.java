@@ -0,0 +1,71 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.Order;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives away the orders of underage users purchased between 18:00 and 19:00, each user having one chance out
+ * of two, within the daily {@link UnderageGiftQuota}.
+ */
+public final class UnderageGiftPromotion implements Promotion {
+
+    static final LocalTime START_TIME = LocalTime.of(18, 0);
+    static final LocalTime END_TIME = LocalTime.of(19, 0);
+
+    private final UnderageGiftQuota giftQuota;
+    private final GiftRandomSource randomSource;
+    private final Clock clock;
+    // ids of the orders priced without one, only drawn for orders that reach the gift draw
+    private final AtomicLong nextOrderId = new AtomicLong();
+
+    /**
+     * @param clock gives the day the gift draws are seeded with
+     */
+    UnderageGiftPromotion(UnderageGiftQuota giftQuota, GiftRandomSource randomSource, Clock clock) {
+        this.giftQuota = giftQuota;
+        this.randomSource = randomSource;
+        this.clock = clock;
+    }
+
+    @Override
+    public String name() {
+        return "UNDERAGE_GIFT";
+    }
+
+    @Override
+    public LocalTime startTime() {
+        return START_TIME;
+    }
+
+    @Override
+    public LocalTime endTime() {
+        return END_TIME;
+    }
+
+    @Override
+    public double apply(double orderTotal, int userId, boolean underage, long orderId) {
+        return underage && draw(userId, orderId) ? 0 : orderTotal;
+    }
+
+    public int getGrantedCount() {
+        return giftQuota.getGrantedCount();
+    }
+
+    private boolean draw(int userId, long orderId) {
+        if (!giftQuota.canGrant(userId)) {
+            return false;
+        }
+        final var id = orderId == Order.NO_ID ? nextOrderId.getAndIncrement() : orderId;
+        // the quota is only reserved once the random draw succeeded, so concurrent orders can't exceed it
+        return randomSource.forOrder(LocalDate.now(clock).toEpochDay(), userId, id).nextBoolean()
+                && giftQuota.tryGrant(userId);
+    }
+}
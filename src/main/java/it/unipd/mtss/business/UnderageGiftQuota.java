@@ -0,0 +1,28 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+/**
+ * Daily quota of free orders that can be gifted to underage users.
+ * <p>
+ * Implementations must be safe to share between threads and between {@link Bill} instances,
+ * and must start a fresh quota when the day changes.
+ */
+public interface UnderageGiftQuota {
+
+    /**
+     * Cheap check telling whether the user could still be gifted today, without reserving anything.
+     */
+    boolean canGrant(int userId);
+
+    /**
+     * Atomically reserves one of today's gifts for the user.
+     *
+     * @return false if the quota is exhausted or the user was already gifted today
+     */
+    boolean tryGrant(int userId);
+
+    int getGrantedCount();
+}
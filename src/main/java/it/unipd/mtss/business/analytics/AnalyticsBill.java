@@ -0,0 +1,53 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.analytics;
+
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.PromotionSchedule;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.User;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * {@link Bill} decorator feeding every priced order to a {@link RevenueAnalytics}.
+ * <p>
+ * Orders are priced with {@link BillImpl#getOrderPricing}, whose receipt tells which discounts applied.
+ * Rejected orders are not recorded.
+ */
+public class AnalyticsBill implements Bill {
+
+    private final BillImpl delegate;
+    private final RevenueAnalytics analytics;
+
+    /**
+     * @throws IllegalArgumentException if the orders priced by {@code delegate} can't be explained
+     */
+    public AnalyticsBill(BillImpl delegate, RevenueAnalytics analytics) {
+        if (!delegate.hasReceipts()) {
+            throw new IllegalArgumentException("Analytics need an engine with receipts");
+        }
+        this.delegate = delegate;
+        this.analytics = analytics;
+    }
+
+    public RevenueAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        final var result = delegate.getOrderPricing(itemsOrdered, user, purchaseTime);
+        analytics.record(result, purchaseTime);
+        return result.getTotal();
+    }
+
+    @Override
+    public PromotionSchedule getPromotionSchedule() {
+        return delegate.getPromotionSchedule();
+    }
+}
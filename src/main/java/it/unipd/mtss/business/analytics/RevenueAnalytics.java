@@ -0,0 +1,293 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.analytics;
+
+import it.unipd.mtss.business.PricingResult;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Money;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running revenue, discount and commission totals of the priced orders, per minute of purchase.
+ * <p>
+ * Orders are added to the bucket of the minute they were purchased in, taken on the current day unless that
+ * is in the future, in which case they were purchased yesterday. Buckets live in a ring covering the last
+ * {@code retainedMinutes} minutes, a bucket being reused once its minute falls out of the window, so memory
+ * is bounded however long the analytics run; orders older than the window are counted as late and dropped.
+ * Every bucket counter is a {@link LongAdder}, whose per thread cells are merged only when read, so
+ * concurrent pricing threads don't contend. Amounts are kept in millicents.
+ * <p>
+ * Queries sum the buckets of the requested minutes, never the orders.
+ */
+public final class RevenueAnalytics {
+
+    public static final int DEFAULT_RETAINED_MINUTES = 24 * 60;
+
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final Metric[] METRICS = Metric.values();
+    private static final int SALES_SLOT = METRICS.length;
+    private static final int DISCOUNT_SLOT = SALES_SLOT + TYPES.length;
+    private static final int SLOTS = DISCOUNT_SLOT + TYPES.length;
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    /**
+     * What orders are counted for. The count of {@link #REVENUE} is the number of orders, the counts of the
+     * others the number of orders they applied to.
+     */
+    public enum Metric {
+        /** Order totals. */
+        REVENUE,
+        /** Half price of the cheapest processor. */
+        PROCESSOR_HALF_PRICE,
+        /** Cheapest mouse gifted for more than 10 mice. */
+        GIFTED_MOUSE,
+        /** Cheapest mouse or keyboard gifted for as many mice as keyboards. */
+        GIFTED_MOUSE_OR_KEYBOARD,
+        /** 10% discount of large orders. */
+        BULK_DISCOUNT,
+        /** Commission charged on small orders, the only amount paid by the customer. */
+        SMALL_ORDER_COMMISSION,
+        /** Totals of the orders gifted to underage users, after any other promotion. */
+        UNDERAGE_GIFT,
+        /** Discounts of the promotions other than the underage gift. */
+        OTHER_PROMOTIONS
+    }
+
+    private final Clock clock;
+    private final int retainedMinutes;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final LongAdder late = new LongAdder();
+
+    public RevenueAnalytics(Clock clock) {
+        this(clock, DEFAULT_RETAINED_MINUTES);
+    }
+
+    public RevenueAnalytics(Clock clock, int retainedMinutes) {
+        if (retainedMinutes < 1) {
+            throw new IllegalArgumentException("At least a minute must be retained");
+        }
+        this.clock = clock;
+        this.retainedMinutes = retainedMinutes;
+        this.buckets = new AtomicReferenceArray<>(retainedMinutes);
+    }
+
+    public int getRetainedMinutes() {
+        return retainedMinutes;
+    }
+
+    /**
+     * Number of orders dropped because they were purchased before the retained window.
+     */
+    public long getLateCount() {
+        return late.sum();
+    }
+
+    /**
+     * Adds a priced order, purchased at {@code purchaseTime}.
+     *
+     * @throws IllegalArgumentException if the order has no receipt
+     */
+    public void record(PricingResult result, LocalTime purchaseTime) {
+        final var receipt = result.getReceipt().orElseThrow(
+                () -> new IllegalArgumentException("Only orders with a receipt can be recorded"));
+        final var now = LocalDateTime.now(clock);
+        final var bucket = bucket(purchaseMinute(purchaseTime, now), epochMinute(now));
+        if (bucket == null) {
+            late.increment();
+            return;
+        }
+
+        final var items = receipt.items();
+        for (var item : items) {
+            bucket.add(SALES_SLOT + item.itemType().ordinal(), item.price());
+        }
+
+        var beforeBulkDiscount = receipt.itemsTotal();
+        if (receipt.halvedProcessor().isPresent()) {
+            final var item = items.get(receipt.halvedProcessor().getAsInt());
+            beforeBulkDiscount -= item.price() / 2;
+            bucket.addDiscount(Metric.PROCESSOR_HALF_PRICE, item.itemType(), item.price() / 2);
+        }
+        if (receipt.giftedMouse().isPresent()) {
+            final var item = items.get(receipt.giftedMouse().getAsInt());
+            beforeBulkDiscount -= item.price();
+            bucket.addDiscount(Metric.GIFTED_MOUSE, item.itemType(), item.price());
+        }
+        if (receipt.giftedMouseOrKeyboard().isPresent()) {
+            final var item = items.get(receipt.giftedMouseOrKeyboard().getAsInt());
+            beforeBulkDiscount -= item.price();
+            bucket.addDiscount(Metric.GIFTED_MOUSE_OR_KEYBOARD, item.itemType(), item.price());
+        }
+        // the bulk discount and the commission exclude each other, at most one separates the two amounts
+        if (receipt.bulkDiscount()) {
+            bucket.add(Metric.BULK_DISCOUNT.ordinal(), beforeBulkDiscount - receipt.subtotal());
+        }
+        if (receipt.smallOrderCommission()) {
+            bucket.add(Metric.SMALL_ORDER_COMMISSION.ordinal(), receipt.subtotal() - beforeBulkDiscount);
+        }
+
+        if (!receipt.promotions().isEmpty()) {
+            final var metric = receipt.isUnderageGift() ? Metric.UNDERAGE_GIFT : Metric.OTHER_PROMOTIONS;
+            bucket.add(metric.ordinal(), receipt.subtotal() - receipt.total());
+        }
+        bucket.add(Metric.REVENUE.ordinal(), receipt.total());
+    }
+
+    /**
+     * Totals of the orders purchased in the last {@code minutes} minutes, the current one included.
+     */
+    public Rollup lastMinutes(int minutes) {
+        final var now = epochMinute(LocalDateTime.now(clock));
+        return rollup(now - minutes + 1, now + 1);
+    }
+
+    /**
+     * Totals of the orders purchased in the last {@code hours} hours, the current minute included.
+     */
+    public Rollup lastHours(int hours) {
+        return lastMinutes(Math.toIntExact(Duration.ofHours(hours).toMinutes()));
+    }
+
+    /**
+     * Totals of the orders purchased from {@code from}, included, to {@code to}, excluded, to the minute.
+     * Minutes out of the retained window count as empty.
+     */
+    public Rollup between(LocalDateTime from, LocalDateTime to) {
+        return rollup(epochMinute(from), epochMinute(to));
+    }
+
+    private Rollup rollup(long fromMinute, long toMinute) {
+        final var counts = new long[SLOTS];
+        final var amounts = new long[SLOTS];
+        final var now = epochMinute(LocalDateTime.now(clock));
+        final var first = Math.max(fromMinute, now - retainedMinutes + 1);
+        // purchases can only be up to a minute ahead of the clock
+        final var last = Math.min(toMinute, now + 2);
+        for (var minute = first; minute < last; minute++) {
+            final var bucket = buckets.get(index(minute));
+            if (bucket != null && bucket.minute == minute) {
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    counts[slot] += bucket.counts[slot].sum();
+                    amounts[slot] += bucket.amounts[slot].sum();
+                }
+            }
+        }
+        return new Rollup(counts, amounts);
+    }
+
+    private static long purchaseMinute(LocalTime purchaseTime, LocalDateTime now) {
+        var purchase = now.toLocalDate().atTime(purchaseTime);
+        if (purchase.isAfter(now.plusMinutes(1))) {
+            purchase = purchase.minusDays(1);
+        }
+        return epochMinute(purchase);
+    }
+
+    private static long epochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_MINUTE);
+    }
+
+    private int index(long minute) {
+        return (int) Math.floorMod(minute, (long) retainedMinutes);
+    }
+
+    /**
+     * Returns the bucket of the given minute, replacing the bucket of an older minute in its slot, or null if
+     * the minute is out of the window ending at {@code nowMinute}.
+     */
+    private Bucket bucket(long minute, long nowMinute) {
+        if (minute <= nowMinute - retainedMinutes) {
+            return null;
+        }
+        final var index = index(minute);
+        while (true) {
+            final var bucket = buckets.get(index);
+            if (bucket != null && bucket.minute >= minute) {
+                return bucket.minute == minute ? bucket : null;
+            }
+            final var replacement = new Bucket(minute);
+            if (buckets.compareAndSet(index, bucket, replacement)) {
+                return replacement;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private final long minute;
+        private final LongAdder[] counts = new LongAdder[SLOTS];
+        private final LongAdder[] amounts = new LongAdder[SLOTS];
+
+        private Bucket(long minute) {
+            this.minute = minute;
+            for (int slot = 0; slot < SLOTS; slot++) {
+                counts[slot] = new LongAdder();
+                amounts[slot] = new LongAdder();
+            }
+        }
+
+        private void add(int slot, double amount) {
+            counts[slot].increment();
+            amounts[slot].add(Money.toMillicents(amount));
+        }
+
+        private void addDiscount(Metric metric, ItemType type, double amount) {
+            add(metric.ordinal(), amount);
+            add(DISCOUNT_SLOT + type.ordinal(), amount);
+        }
+    }
+
+    /**
+     * Totals over a span of minutes.
+     */
+    public static final class Rollup {
+        private final long[] counts;
+        private final long[] amounts;
+
+        private Rollup(long[] counts, long[] amounts) {
+            this.counts = counts;
+            this.amounts = amounts;
+        }
+
+        public long getOrderCount() {
+            return counts[Metric.REVENUE.ordinal()];
+        }
+
+        public long getCount(Metric metric) {
+            return counts[metric.ordinal()];
+        }
+
+        public double getAmount(Metric metric) {
+            return Money.toDouble(amounts[metric.ordinal()]);
+        }
+
+        /**
+         * Number of items of the given type ordered.
+         */
+        public long getItemCount(ItemType type) {
+            return counts[SALES_SLOT + type.ordinal()];
+        }
+
+        /**
+         * Sum of the prices of the items of the given type, before any discount.
+         */
+        public double getSales(ItemType type) {
+            return Money.toDouble(amounts[SALES_SLOT + type.ordinal()]);
+        }
+
+        /**
+         * Sum of the item discounts, half price processor and gifted mice or keyboards, on the given type.
+         */
+        public double getDiscount(ItemType type) {
+            return Money.toDouble(amounts[DISCOUNT_SLOT + type.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import it.unipd.mtss.model.exception.BillException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters and latency histogram filled by {@link MeteredBill}.
+ * <p>
+ * Every counter is a {@link LongAdder}, so recording from many pricing threads doesn't contend; reads sum
+ * the stripes. Metrics start enabled and can be switched off at runtime, in which case {@link MeteredBill}
+ * skips all the bookkeeping.
+ */
+public final class BillMetrics implements BillMetricsMXBean {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private final List<String> ruleNames;
+    private final IntSupplier giftsToday;
+
+    private volatile boolean enabled = true;
+
+    private final LongAdder pricedOrders = new LongAdder();
+    private final LongAdder emptyOrderRejections = new LongAdder();
+    private final LongAdder tooManyItemsRejections = new LongAdder();
+    private final LongAdder underageGiftsGranted = new LongAdder();
+    private final LongAdder[] ruleHits;
+    private final LatencyHistogram latency = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY);
+
+    BillMetrics(List<String> ruleNames, IntSupplier giftsToday) {
+        this.ruleNames = List.copyOf(ruleNames);
+        this.giftsToday = giftsToday;
+        this.ruleHits = new LongAdder[Math.min(ruleNames.size(), Long.SIZE)];
+        for (int i = 0; i < ruleHits.length; i++) {
+            ruleHits[i] = new LongAdder();
+        }
+    }
+
+    void recordPriced(long appliedRules, boolean gifted, long latencyNanos) {
+        pricedOrders.increment();
+        if (gifted) {
+            underageGiftsGranted.increment();
+        }
+        for (var rules = appliedRules; rules != 0; rules &= rules - 1) {
+            ruleHits[Long.numberOfTrailingZeros(rules)].increment();
+        }
+        latency.record(latencyNanos);
+    }
+
+    void recordRejected(BillException e, long latencyNanos) {
+        switch (e.getReason()) {
+            case EMPTY_ORDER -> emptyOrderRejections.increment();
+            case TOO_MANY_ITEMS -> tooManyItemsRejections.increment();
+            default -> {
+                // other rejections are only visible in the latency histogram
+            }
+        }
+        latency.record(latencyNanos);
+    }
+
+    /**
+     * Registers these metrics on the platform MBean server.
+     *
+     * @return the name the metrics were registered with
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        final var objectName = new ObjectName("it.unipd.mtss:type=BillMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getPricedOrders() {
+        return pricedOrders.sum();
+    }
+
+    @Override
+    public long getEmptyOrderRejections() {
+        return emptyOrderRejections.sum();
+    }
+
+    @Override
+    public long getTooManyItemsRejections() {
+        return tooManyItemsRejections.sum();
+    }
+
+    @Override
+    public long getUnderageGiftsGranted() {
+        return underageGiftsGranted.sum();
+    }
+
+    @Override
+    public int getUnderageGiftsToday() {
+        return giftsToday.getAsInt();
+    }
+
+    @Override
+    public Map<String, Long> getRuleHits() {
+        final var hits = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < ruleHits.length; i++) {
+            hits.put(ruleNames.get(i), ruleHits[i].sum());
+        }
+        return hits;
+    }
+
+    public LatencyHistogram.Snapshot getLatencySnapshot() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.snapshot().getMaxValue();
+    }
+
+    @Override
+    public void reset() {
+        pricedOrders.reset();
+        emptyOrderRejections.reset();
+        tooManyItemsRejections.reset();
+        underageGiftsGranted.reset();
+        for (var hits : ruleHits) {
+            hits.reset();
+        }
+        latency.reset();
+    }
+}
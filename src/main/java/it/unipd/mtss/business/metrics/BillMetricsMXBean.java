@@ -0,0 +1,37 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link BillMetrics}.
+ */
+public interface BillMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getPricedOrders();
+
+    long getEmptyOrderRejections();
+
+    long getTooManyItemsRejections();
+
+    long getUnderageGiftsGranted();
+
+    int getUnderageGiftsToday();
+
+    Map<String, Long> getRuleHits();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyMaxNanos();
+
+    void reset();
+}
@@ -0,0 +1,118 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear histogram of non negative values, in the spirit of HdrHistogram.
+ * <p>
+ * Values below 64 are counted exactly, larger ones in buckets of 32 sub-buckets per power of two, so every
+ * recorded value is reported with a relative error below 1/32. Values above the highest trackable value
+ * are clamped to it. Buckets are {@link LongAdder}s, so concurrent recording doesn't contend.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long highestTrackableValue;
+    private final LongAdder[] buckets;
+
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < 2 * SUB_BUCKETS) {
+            throw new IllegalArgumentException("Highest trackable value must be at least " + 2 * SUB_BUCKETS);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.buckets = new LongAdder[bucketIndex(highestTrackableValue) + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        final var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Highest value counted in the given bucket.
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final var shift = index / SUB_BUCKETS - 1;
+        final long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(long value) {
+        buckets[bucketIndex(Math.max(0, Math.min(value, highestTrackableValue)))].increment();
+    }
+
+    public void reset() {
+        for (var bucket : buckets) {
+            bucket.reset();
+        }
+    }
+
+    public Snapshot snapshot() {
+        final var counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts);
+    }
+
+    /**
+     * Point in time copy of the histogram counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            var total = 0L;
+            for (var count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Smallest recorded value (up to the histogram precision) such that the given percentage of the
+         * recorded values is not greater than it, 0 when nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            final var target = Math.max(1, (long) Math.ceil(totalCount * Math.min(percentile, 100) / 100));
+            var seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return highestEquivalentValue(i);
+                }
+            }
+            return 0;
+        }
+
+        public long getMaxValue() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestEquivalentValue(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
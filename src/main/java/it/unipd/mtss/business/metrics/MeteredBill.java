@@ -0,0 +1,64 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.PricingTrace;
+import it.unipd.mtss.business.PromotionSchedule;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * {@link Bill} decorator recording {@link BillMetrics} for every priced order.
+ * <p>
+ * The decorated engine reports which of its rules applied and whether the order was gifted in a
+ * {@link PricingTrace}, filled while pricing the order, so metering never prices an order twice. Each thread
+ * reuses its own trace. With metrics disabled orders go straight to the delegate.
+ */
+public class MeteredBill implements Bill {
+
+    private final BillImpl delegate;
+    private final BillMetrics metrics;
+    private final ThreadLocal<PricingTrace> traces = ThreadLocal.withInitial(PricingTrace::new);
+
+    public MeteredBill(BillImpl delegate) {
+        this.delegate = delegate;
+        this.metrics = new BillMetrics(delegate.getRuleNames(), delegate::getUnderageGiftCount);
+    }
+
+    public BillMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public double getOrderPrice(List<EItem> itemsOrdered, User user, LocalTime purchaseTime) {
+        if (!metrics.isEnabled()) {
+            return delegate.getOrderPrice(itemsOrdered, user, purchaseTime);
+        }
+
+        final var trace = traces.get();
+        final var start = System.nanoTime();
+        final double total;
+        try {
+            total = delegate.getOrderPrice(itemsOrdered, user, purchaseTime, Order.NO_ID, trace);
+        } catch (BillException e) {
+            metrics.recordRejected(e, System.nanoTime() - start);
+            throw e;
+        }
+        metrics.recordPriced(trace.getAppliedRules(), trace.isUnderageGift(), System.nanoTime() - start);
+        return total;
+    }
+
+    @Override
+    public PromotionSchedule getPromotionSchedule() {
+        return delegate.getPromotionSchedule();
+    }
+}
@@ -0,0 +1,57 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link LoadTest} run, latencies in nanoseconds.
+ * <p>
+ * {@code latency} is measured from the time each order was due, so it includes the time spent waiting behind
+ * slow orders, {@code serviceTime} from the time it was actually sent. {@code revenue} is the sum of the totals
+ * of the accepted orders in stream order, equal for engines agreeing on every total.
+ */
+public record LoadReport(long orders,
+                         long errors,
+                         Duration elapsed,
+                         LatencyHistogram.Snapshot latency,
+                         LatencyHistogram.Snapshot serviceTime,
+                         long gcCount,
+                         Duration gcTime,
+                         double revenue) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+    /**
+     * Orders completed per second.
+     */
+    public double throughput() {
+        return elapsed.isZero() ? 0 : orders * 1e9 / elapsed.toNanos();
+    }
+
+    public String format() {
+        final var out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "orders %d, errors %d, %.1f orders/s in %.3f s%n",
+                orders, errors, throughput(), elapsed.toNanos() / 1e9));
+        appendPercentiles(out, "latency", latency);
+        appendPercentiles(out, "service", serviceTime);
+        out.append(String.format(Locale.ROOT, "gc %d collections, %d ms%n", gcCount, gcTime.toMillis()));
+        out.append(String.format(Locale.ROOT, "revenue %.2f%n", revenue));
+        return out.toString();
+    }
+
+    private static void appendPercentiles(StringBuilder out, String name, LatencyHistogram.Snapshot snapshot) {
+        out.append(String.format(Locale.ROOT, "%-8s", name));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            out.append(String.format(Locale.ROOT, " %s %.1f us,", PERCENTILE_NAMES[i],
+                    snapshot.getValueAtPercentile(PERCENTILES[i]) / 1e3));
+        }
+        out.append(String.format(Locale.ROOT, " max %.1f us%n", snapshot.getMaxValue() / 1e3));
+    }
+}
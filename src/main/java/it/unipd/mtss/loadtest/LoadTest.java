@@ -0,0 +1,234 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.FixedPointBillImpl;
+import it.unipd.mtss.business.GiftRandomSource;
+import it.unipd.mtss.business.InMemoryUnderageGiftQuota;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import it.unipd.mtss.business.UnderageGiftQuota;
+import it.unipd.mtss.business.metrics.LatencyHistogram;
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.exception.EException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link Bill} with an order stream at a fixed rate from several threads.
+ * <p>
+ * Order {@code i} is due {@code i / targetRate} seconds after the start and is sent by thread
+ * {@code i % threads} as soon as both it is due and the thread is done with its previous order. Latencies are
+ * measured from the due time, so an engine that stalls is charged for every order that queued up behind the
+ * stall instead of just for the slow one, avoiding the coordinated omission of closed loop testers.
+ * <p>
+ * Orders with an id are priced with {@link BillImpl#getOrderPrice(List, it.unipd.mtss.model.User,
+ * java.time.LocalTime, long)} when possible, and engines that {@link BillImpl#prefersCompactOrders() prefer}
+ * it are given the orders as {@link CompactOrder}s, built before the start. The {@code vector} engine of
+ * {@link #main} is only there when the {@code vector} profile built it. The engines of
+ * {@link #main} draw the gifts with {@link GiftRandomSource#deterministic(long)} on a fixed day and a fresh
+ * quota, so replaying a stream on one thread draws the same underage gifts; with more threads the draws are
+ * the same but the daily quota can run out on different orders.
+ */
+public final class LoadTest {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // the gift draws are seeded with the day, so every run prices on the same one
+    private static final Clock CLOCK = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+    private static final String VECTOR_ENGINE = "it.unipd.mtss.business.VectorBillImpl";
+    private static final Map<String, EngineFactory> ENGINES = engines();
+
+    private final Bill bill;
+    private final int threads;
+    private final double targetRate;
+
+    /**
+     * @param targetRate orders per second, across all threads
+     */
+    public LoadTest(Bill bill, int threads, double targetRate) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least a thread");
+        }
+        if (!(targetRate > 0) || Double.isInfinite(targetRate)) {
+            throw new IllegalArgumentException("Target rate must be positive");
+        }
+        this.bill = bill;
+        this.threads = threads;
+        this.targetRate = targetRate;
+    }
+
+    public LoadReport run(List<Order> orders) throws InterruptedException {
+        final var latency = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        final var serviceTime = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS);
+        final var errors = new LongAdder();
+        final var totals = new double[orders.size()];
+        final var compactOrders = bill instanceof BillImpl billImpl && billImpl.prefersCompactOrders()
+                ? toCompactOrders(orders)
+                : null;
+        final var intervalNanos = 1e9 / targetRate;
+
+        final var gcCountBefore = gcCount();
+        final var gcTimeBefore = gcTimeMillis();
+        final var start = System.nanoTime() + START_DELAY_NANOS;
+        final var workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final var first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < totals.length; i += threads) {
+                    final var due = start + (long) (i * intervalNanos);
+                    long now;
+                    while ((now = System.nanoTime()) < due) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                    totals[i] = price(orders.get(i), compactOrders == null ? null : compactOrders[i], errors);
+                    final var end = System.nanoTime();
+                    latency.record(end - due);
+                    serviceTime.record(end - now);
+                }
+            }, "load-test-" + t);
+            workers[t].start();
+        }
+        for (var worker : workers) {
+            worker.join();
+        }
+        final var elapsed = Duration.ofNanos(Math.max(0, System.nanoTime() - start));
+
+        var revenue = 0.0;
+        for (var total : totals) {
+            if (!Double.isNaN(total)) {
+                revenue += total;
+            }
+        }
+        return new LoadReport(totals.length, errors.sum(), elapsed, latency.snapshot(), serviceTime.snapshot(),
+                gcCount() - gcCountBefore, Duration.ofMillis(gcTimeMillis() - gcTimeBefore), revenue);
+    }
+
+    private double price(Order order, CompactOrder compactOrder, LongAdder errors) {
+        try {
+            if (compactOrder != null) {
+                return ((BillImpl) bill).getOrderPrice(compactOrder, order.user(), order.purchaseTime(), order.id());
+            }
+            if (order.id() != Order.NO_ID && bill instanceof BillImpl billImpl) {
+                return billImpl.getOrderPrice(order.items(), order.user(), order.purchaseTime(), order.id());
+            }
+            return bill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+        } catch (EException e) {
+            errors.increment();
+            return Double.NaN;
+        }
+    }
+
+    private static CompactOrder[] toCompactOrders(List<Order> orders) {
+        final var compactOrders = new CompactOrder[orders.size()];
+        for (int i = 0; i < compactOrders.length; i++) {
+            compactOrders[i] = CompactOrder.of(orders.get(i).items());
+        }
+        return compactOrders;
+    }
+
+    private static Map<String, EngineFactory> engines() {
+        final var engines = new HashMap<String, EngineFactory>();
+        engines.put("bill", BillImpl::new);
+        engines.put("single-pass", SinglePassBillImpl::new);
+        engines.put("fixed-point", FixedPointBillImpl::new);
+        try {
+            final var vector = Class.forName(VECTOR_ENGINE).asSubclass(BillImpl.class)
+                    .getConstructor(GiftRandomSource.class, UnderageGiftQuota.class, Clock.class);
+            engines.put("vector", (randomSource, giftQuota, clock) -> {
+                try {
+                    return vector.newInstance(randomSource, giftQuota, clock);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Can't create the vector engine", e);
+                }
+            });
+        } catch (ReflectiveOperationException e) {
+            // built without the vector profile
+        }
+        return Map.copyOf(engines);
+    }
+
+    private static long gcCount() {
+        var count = 0L;
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        var time = 0L;
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Runs a load test from the command line, e.g.
+     * {@code --engine bill --rate 20000 --threads 4 --orders 1000000 --record orders.bin}, then
+     * {@code --engine single-pass --rate 20000 --threads 4 --replay orders.bin} to compare an engine on the
+     * same orders.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var engine = "bill";
+        var rate = 10_000.0;
+        var threads = 1;
+        var orderCount = 100_000;
+        var seed = 0L;
+        Path record = null;
+        Path replay = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            final var value = args[i + 1];
+            switch (args[i]) {
+                case "--engine" -> engine = value;
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--orders" -> orderCount = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--record" -> record = Path.of(value);
+                case "--replay" -> replay = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value of " + args[args.length - 1]);
+        }
+        final var factory = ENGINES.get(engine);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown engine " + engine + ", expected one of " + ENGINES.keySet());
+        }
+
+        final var orders = replay != null
+                ? OrderStreams.replay(replay)
+                : new OrderGenerator(OrderStreamSpec.defaults(), seed).generate(orderCount);
+        if (record != null) {
+            OrderStreams.record(record, orders);
+        }
+        final var quota = new InMemoryUnderageGiftQuota(BillImpl.MAX_UNDERAGE_GIFTS_PER_DAY, CLOCK);
+        final var engineBill = factory.create(GiftRandomSource.deterministic(seed), quota, CLOCK);
+        final var report = new LoadTest(engineBill, threads, rate).run(orders);
+        System.out.print(report.format());
+    }
+
+    @FunctionalInterface
+    private interface EngineFactory {
+        BillImpl create(GiftRandomSource randomSource, UnderageGiftQuota giftQuota, Clock clock);
+    }
+}
@@ -0,0 +1,88 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic order stream following an {@link OrderStreamSpec}.
+ * <p>
+ * The stream only depends on the spec and the seed, orders being numbered from 0. Not thread safe.
+ */
+public class OrderGenerator {
+
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final int SECONDS_PER_HOUR = 3600;
+
+    private final OrderStreamSpec spec;
+    private final SplittableRandom random;
+    private final double[] typeCumulativeWeights;
+    private final double[] hourlyCumulativeWeights;
+    private final User[] users;
+    private final long minCents;
+    private final long maxCents;
+    private long nextId;
+
+    public OrderGenerator(OrderStreamSpec spec, long seed) {
+        this.spec = spec;
+        this.random = new SplittableRandom(seed);
+        this.typeCumulativeWeights = cumulative(spec.typeWeights());
+        this.hourlyCumulativeWeights = cumulative(spec.hourlyWeights());
+        this.users = new User[spec.userCount()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User(random.nextDouble() < spec.underageShare());
+        }
+        this.minCents = Math.round(spec.minPrice() * 100);
+        this.maxCents = Math.round(spec.maxPrice() * 100);
+    }
+
+    public Order next() {
+        final var itemCount = random.nextInt(spec.minItems(), spec.maxItems() + 1);
+        final var items = new ArrayList<EItem>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            final var type = TYPES[pick(typeCumulativeWeights)];
+            items.add(new EItem(type, "item" + i, random.nextLong(minCents, maxCents + 1) / 100.0));
+        }
+        final var hour = pick(hourlyCumulativeWeights);
+        final var time = LocalTime.ofSecondOfDay(hour * SECONDS_PER_HOUR + random.nextInt(SECONDS_PER_HOUR));
+        return new Order(List.copyOf(items), users[random.nextInt(users.length)], time, nextId++);
+    }
+
+    public List<Order> generate(int count) {
+        final var orders = new ArrayList<Order>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(next());
+        }
+        return orders;
+    }
+
+    private int pick(double[] cumulativeWeights) {
+        final var roll = random.nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        final var cumulative = new double[weights.length];
+        var total = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,106 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.model.ItemType;
+
+/**
+ * Distributions of a synthetic order stream, see {@link OrderGenerator}.
+ * <p>
+ * Item counts and prices are uniform in their ranges, prices being whole cents. {@code typeWeights} are
+ * indexed by {@link ItemType} ordinal and {@code hourlyWeights} by hour of the day, both relative. Each of the
+ * {@code userCount} users is underage with probability {@code underageShare}.
+ */
+public record OrderStreamSpec(int minItems,
+                              int maxItems,
+                              double[] typeWeights,
+                              double minPrice,
+                              double maxPrice,
+                              double underageShare,
+                              double[] hourlyWeights,
+                              int userCount) {
+
+    static final int HOURS_PER_DAY = 24;
+
+    // shop traffic with the evening peak over the 18:00-19:00 underage gift window
+    private static final double[] DEFAULT_HOURLY_WEIGHTS = {
+        0.2, 0.1, 0.1, 0.1, 0.1, 0.2, 0.5, 1, 2, 3, 3, 3,
+        4, 4, 3, 3, 3, 4, 6, 5, 4, 3, 2, 1,
+    };
+
+    public OrderStreamSpec {
+        if (minItems < 1 || maxItems < minItems || maxItems > BillImpl.MAX_ITEM_COUNT) {
+            throw new IllegalArgumentException("Items per order must be in [1, " + BillImpl.MAX_ITEM_COUNT + "]");
+        }
+        if (!(minPrice >= 0.01) || maxPrice < minPrice) {
+            throw new IllegalArgumentException("Prices must be in [0.01, maxPrice]");
+        }
+        if (!(underageShare >= 0 && underageShare <= 1)) {
+            throw new IllegalArgumentException("Underage share must be in [0, 1]");
+        }
+        if (userCount < 1) {
+            throw new IllegalArgumentException("There must be at least a user");
+        }
+        typeWeights = checkWeights(typeWeights, ItemType.values().length, "item type");
+        hourlyWeights = checkWeights(hourlyWeights, HOURS_PER_DAY, "hourly");
+    }
+
+    /**
+     * 1 to 30 items of evenly mixed types priced between 1.00 and 400.00, 10% of 10000 users underage, evening
+     * peak.
+     */
+    public static OrderStreamSpec defaults() {
+        return new OrderStreamSpec(1, BillImpl.MAX_ITEM_COUNT, new double[]{1, 1, 1, 1}, 1, 400, 0.1,
+                DEFAULT_HOURLY_WEIGHTS, 10_000);
+    }
+
+    public OrderStreamSpec withItems(int minItems, int maxItems) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    public OrderStreamSpec withTypeWeights(double... typeWeights) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    public OrderStreamSpec withPrices(double minPrice, double maxPrice) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    public OrderStreamSpec withUnderageShare(double underageShare) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    public OrderStreamSpec withHourlyWeights(double... hourlyWeights) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    public OrderStreamSpec withUserCount(int userCount) {
+        return new OrderStreamSpec(minItems, maxItems, typeWeights, minPrice, maxPrice, underageShare,
+                hourlyWeights, userCount);
+    }
+
+    private static double[] checkWeights(double[] weights, int length, String name) {
+        if (weights.length != length) {
+            throw new IllegalArgumentException("There must be " + length + " " + name + " weights");
+        }
+        var total = 0.0;
+        for (var weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be finite and non negative");
+            }
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least a " + name + " weight must be positive");
+        }
+        return weights.clone();
+    }
+}
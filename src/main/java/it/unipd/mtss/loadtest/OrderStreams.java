@@ -0,0 +1,96 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.OrderFileWriter;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.ItemException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Records and replays order streams in the {@link OrderFileWriter} format, so different engines can be loaded
+ * with the same orders.
+ * <p>
+ * The format doesn't store order ids, replayed orders are numbered from 0 in file order like the generated
+ * ones. Users are replayed with their recorded id, the same {@link User} for all their orders, so the
+ * underage gifts of a deterministic {@link it.unipd.mtss.business.GiftRandomSource} are drawn again.
+ */
+public final class OrderStreams {
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private OrderStreams() {
+    }
+
+    public static void record(Path file, List<Order> orders) throws IOException {
+        try (var writer = new OrderFileWriter(file)) {
+            for (var order : orders) {
+                final var user = order.user();
+                writer.write(user.getId(), user.isUnderage(), order.purchaseTime(), order.items());
+            }
+        }
+    }
+
+    public static List<Order> replay(Path file) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != OrderFileWriter.MAGIC || in.readShort() != OrderFileWriter.VERSION) {
+                throw new IOException("Not an order file: " + file);
+            }
+
+            final var users = new HashMap<Integer, User>();
+            final var orders = new ArrayList<Order>();
+            while (hasNext(in)) {
+                final var userId = in.readInt();
+                final var underage = (in.readByte() & OrderFileWriter.UNDERAGE_FLAG) != 0;
+                final var secondOfDay = in.readInt();
+                final var lines = in.readUnsignedShort();
+                final var items = new ArrayList<EItem>(lines);
+                for (int i = 0; i < lines; i++) {
+                    final var type = in.readByte();
+                    final var price = in.readDouble();
+                    if (type < 0 || type >= TYPES.length) {
+                        throw new IOException("Bad item type " + type + " in order " + orders.size());
+                    }
+                    try {
+                        items.add(new EItem(TYPES[type], "item" + i, price));
+                    } catch (ItemException e) {
+                        throw new IOException("Bad price " + price + " in order " + orders.size(), e);
+                    }
+                }
+                final LocalTime time;
+                try {
+                    time = LocalTime.ofSecondOfDay(secondOfDay);
+                } catch (DateTimeException e) {
+                    throw new IOException("Bad purchase time in order " + orders.size(), e);
+                }
+                final var user = users.computeIfAbsent(userId, id -> User.restore(id, underage));
+                orders.add(new Order(List.copyOf(items), user, time, orders.size()));
+            }
+            return orders;
+        }
+    }
+
+    private static boolean hasNext(DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) {
+            return false;
+        }
+        in.reset();
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import it.unipd.mtss.model.exception.ItemException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar representation of an order: item types and prices are kept in parallel primitive arrays
+ * instead of one {@link EItem} per line, and item names are dropped since pricing never reads them.
+ * <p>
+ * Instances are mutable so ingestion code can {@link #clear()} and refill them instead of allocating
+ * a new order each time. They are not thread safe.
+ */
+public final class CompactOrder {
+
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private byte[] typeOrdinals;
+    private double[] prices;
+    private int size;
+
+    public CompactOrder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CompactOrder(int capacity) {
+        typeOrdinals = new byte[capacity];
+        prices = new double[capacity];
+    }
+
+    public static CompactOrder of(List<EItem> items) {
+        final var order = new CompactOrder(items.size());
+        for (var item : items) {
+            order.append(item.itemType(), item.price());
+        }
+        return order;
+    }
+
+    public void add(ItemType type, double price) {
+        if (price <= 0) {
+            throw new ItemException("Item price must be >0");
+        }
+        append(type, price);
+    }
+
+    void append(ItemType type, double price) {
+        if (size == prices.length) {
+            final var capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+            typeOrdinals = Arrays.copyOf(typeOrdinals, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        typeOrdinals[size] = (byte) type.ordinal();
+        prices[size] = price;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ItemType itemType(int line) {
+        return TYPES[typeOrdinals[checkLine(line)]];
+    }
+
+    public double price(int line) {
+        return prices[checkLine(line)];
+    }
+
+    private int checkLine(int line) {
+        if (line < 0 || line >= size) {
+            throw new IndexOutOfBoundsException(line);
+        }
+        return line;
+    }
+
+    /**
+     * Backing array of {@link ItemType} ordinals, only the first {@link #size()} entries are meaningful.
+     */
+    public byte[] typeOrdinals() {
+        return typeOrdinals;
+    }
+
+    /**
+     * Backing array of prices, only the first {@link #size()} entries are meaningful.
+     */
+    public double[] prices() {
+        return prices;
+    }
+
+    public List<EItem> toItems() {
+        final var items = new ArrayList<EItem>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new EItem(TYPES[typeOrdinals[i]], "", prices[i]));
+        }
+        return items;
+    }
+}
@@ -12,4 +12,8 @@ public record EItem(ItemType itemType, String name, double price) {
             throw new ItemException("Item price must be >0");
         }
     }
+
+    public long priceInMillicents() {
+        return Money.toMillicents(price);
+    }
 }
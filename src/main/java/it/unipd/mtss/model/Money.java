@@ -0,0 +1,49 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+/**
+ * Fixed point money helpers: amounts are {@code long} millicents, a thousandth of a cent.
+ */
+public final class Money {
+
+    public static final long MILLICENTS_PER_UNIT = 100_000;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount to millicents, rounding to the nearest millicent.
+     *
+     * @throws ArithmeticException if the amount isn't finite or doesn't fit a {@code long} of millicents
+     */
+    public static long toMillicents(double amount) {
+        final var scaled = amount * MILLICENTS_PER_UNIT;
+        // Math.round would saturate, and turn NaN into 0
+        if (!(Math.abs(scaled) < 0x1p63)) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toDouble(long millicents) {
+        return millicents / (double) MILLICENTS_PER_UNIT;
+    }
+
+    /**
+     * Integer division rounding half to even, the rounding applied after each discount step.
+     */
+    public static long divideHalfEven(long dividend, long divisor) {
+        if (divisor <= 0) {
+            throw new IllegalArgumentException("Divisor must be >0");
+        }
+        final var quotient = Math.floorDiv(dividend, divisor);
+        final var twiceRemainder = 2 * Math.floorMod(dividend, divisor);
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            return quotient + 1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,20 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * An order of a batch, {@code id} seeds the underage gift draw when it is not {@link #NO_ID}.
+ */
+public record Order(List<EItem> items, User user, LocalTime purchaseTime, long id) {
+
+    public static final long NO_ID = -1;
+
+    public Order(List<EItem> items, User user, LocalTime purchaseTime) {
+        this(items, user, purchaseTime, NO_ID);
+    }
+}
@@ -0,0 +1,166 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import it.unipd.mtss.model.exception.ItemException;
+
+import java.util.Arrays;
+
+/**
+ * Products that can be ordered, each identified by an int id, so orders can be arrays of ids instead of
+ * {@link EItem} lists.
+ * <p>
+ * Types, names and prices are kept in parallel arrays. Every change publishes a new immutable
+ * {@link Snapshot} with a higher version: readers take the current snapshot with a single volatile read and
+ * never lock, while writers are serialized. Price updates copy the price array, so snapshots taken before an
+ * update keep the old prices; registrations only append past the end of the arrays, which older snapshots
+ * don't see, so they are shared.
+ */
+public final class ProductCatalog {
+
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private volatile Snapshot current = new Snapshot(0, 0, new byte[DEFAULT_CAPACITY],
+            new String[DEFAULT_CAPACITY], new double[DEFAULT_CAPACITY]);
+
+    /**
+     * Immutable view of the catalog at a version.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final int size;
+        private final byte[] typeOrdinals;
+        private final String[] names;
+        private final double[] prices;
+
+        private Snapshot(long version, int size, byte[] typeOrdinals, String[] names, double[] prices) {
+            this.version = version;
+            this.size = size;
+            this.typeOrdinals = typeOrdinals;
+            this.names = names;
+            this.prices = prices;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Number of products, ids go from 0 to {@code size() - 1}.
+         */
+        public int size() {
+            return size;
+        }
+
+        public ItemType itemType(int productId) {
+            return TYPES[typeOrdinals[checkId(productId)]];
+        }
+
+        public String name(int productId) {
+            return names[checkId(productId)];
+        }
+
+        public double price(int productId) {
+            return prices[checkId(productId)];
+        }
+
+        public EItem toItem(int productId) {
+            return new EItem(itemType(productId), name(productId), price(productId));
+        }
+
+        /**
+         * Replaces the lines of {@code order} with the given products, without validating the prices again.
+         *
+         * @throws ItemException if a product doesn't exist in this snapshot
+         */
+        public CompactOrder fill(CompactOrder order, int[] productIds) {
+            order.clear();
+            for (var productId : productIds) {
+                checkId(productId);
+                order.append(TYPES[typeOrdinals[productId]], prices[productId]);
+            }
+            return order;
+        }
+
+        public CompactOrder toCompactOrder(int[] productIds) {
+            return fill(new CompactOrder(productIds.length), productIds);
+        }
+
+        private int checkId(int productId) {
+            if (productId < 0 || productId >= size) {
+                throw new ItemException("Unknown product " + productId);
+            }
+            return productId;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Adds a product to the catalog.
+     *
+     * @return the id of the new product
+     */
+    public synchronized int register(ItemType itemType, String name, double price) {
+        checkPrice(price);
+        final var snapshot = current;
+        var typeOrdinals = snapshot.typeOrdinals;
+        var names = snapshot.names;
+        var prices = snapshot.prices;
+        final var id = snapshot.size;
+        if (id == prices.length) {
+            final var capacity = prices.length * 2;
+            typeOrdinals = Arrays.copyOf(typeOrdinals, capacity);
+            names = Arrays.copyOf(names, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        typeOrdinals[id] = (byte) itemType.ordinal();
+        names[id] = name;
+        prices[id] = price;
+        current = new Snapshot(snapshot.version + 1, id + 1, typeOrdinals, names, prices);
+        return id;
+    }
+
+    /**
+     * Changes the price of a product.
+     *
+     * @return the snapshot with the new price
+     */
+    public Snapshot updatePrice(int productId, double price) {
+        return updatePrices(new int[]{productId}, new double[]{price});
+    }
+
+    /**
+     * Changes the prices of several products at once, no snapshot has only some of the new prices.
+     *
+     * @return the snapshot with the new prices
+     */
+    public synchronized Snapshot updatePrices(int[] productIds, double[] prices) {
+        if (productIds.length != prices.length) {
+            throw new IllegalArgumentException("There must be a price for each product");
+        }
+        final var snapshot = current;
+        for (int i = 0; i < productIds.length; i++) {
+            snapshot.checkId(productIds[i]);
+            checkPrice(prices[i]);
+        }
+        final var updated = snapshot.prices.clone();
+        for (int i = 0; i < productIds.length; i++) {
+            updated[productIds[i]] = prices[i];
+        }
+        current = new Snapshot(snapshot.version + 1, snapshot.size, snapshot.typeOrdinals, snapshot.names,
+                updated);
+        return current;
+    }
+
+    private static void checkPrice(double price) {
+        if (!(price > 0)) {
+            throw new ItemException("Item price must be >0");
+        }
+    }
+}
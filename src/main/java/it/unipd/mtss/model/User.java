@@ -11,13 +11,31 @@ public final class User {
 
     private static final AtomicInteger ID_GENERATOR = new AtomicInteger();
 
-    private final int id = ID_GENERATOR.incrementAndGet();
+    private final int id;
     private final boolean isUnderage;
 
     public User(boolean isUnderage) {
+        this(ID_GENERATOR.incrementAndGet(), isUnderage);
+    }
+
+    private User(int id, boolean isUnderage) {
+        this.id = id;
         this.isUnderage = isUnderage;
     }
 
+    /**
+     * Restores a user known by id, e.g. from a recorded order stream. Users created afterwards get ids past the
+     * restored one, so they never collide with it.
+     */
+    public static User restore(int id, boolean isUnderage) {
+        ID_GENERATOR.accumulateAndGet(id, Math::max);
+        return new User(id, isUnderage);
+    }
+
+    public int getId() {
+        return id;
+    }
+
     public boolean isUnderage() {
         return isUnderage;
     }
@@ -5,7 +5,25 @@
 package it.unipd.mtss.model.exception;
 
 public class BillException extends EException {
+
+    public enum Reason {
+        EMPTY_ORDER,
+        TOO_MANY_ITEMS,
+        OTHER
+    }
+
+    private final Reason reason;
+
     public BillException(String message) {
+        this(Reason.OTHER, message);
+    }
+
+    public BillException(Reason reason, String message) {
         super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
     }
 }
@@ -0,0 +1,122 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncBillTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+    User adultUser = new User(false);
+
+    @DisplayName("Async totals match sync totals")
+    @Test
+    void testAsyncMatchesSync() {
+        var bill = new BillImpl(new Random(0));
+        try (var asyncBill = new AsyncBill(bill)) {
+            var random = new Random(1);
+            var futures = new ArrayList<CompletableFuture<Double>>();
+            var expected = new ArrayList<Double>();
+            for (int i = 0; i < 10_000; i++) {
+                var items = SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+                expected.add(bill.getOrderPrice(items, adultUser, orderTime));
+                futures.add(asyncBill.getOrderPriceAsync(items, adultUser, orderTime));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i), futures.get(i).join());
+            }
+            var items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+            assertEquals(bill.getOrderPrice(items, adultUser, orderTime),
+                    asyncBill.getOrderPrice(items, adultUser, orderTime));
+        }
+    }
+
+    @DisplayName("Pricing errors complete the future exceptionally")
+    @Test
+    void testErrors() {
+        try (var asyncBill = new AsyncBill(new BillImpl(new Random(0)))) {
+            var future = asyncBill.getOrderPriceAsync(List.of(), adultUser, orderTime);
+            var e = assertThrows(ExecutionException.class, future::get);
+            assertInstanceOf(BillException.class, e.getCause());
+        }
+    }
+
+    @DisplayName("Errors complete the future exceptionally and free the admission slot")
+    @Test
+    void testThrowableErrors() throws Exception {
+        Bill failing = (items, user, time) -> {
+            throw new OutOfMemoryError("no room to price");
+        };
+        var asyncBill = new AsyncBill(failing, Runnable::run, 1);
+        for (int i = 0; i < 2; i++) {
+            var future = asyncBill.getOrderPriceAsync(List.of(), adultUser, orderTime);
+            var e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, e.getCause());
+        }
+    }
+
+    @DisplayName("Orders over the concurrency limit are rejected")
+    @Test
+    void testAdmission() throws InterruptedException {
+        var started = new CountDownLatch(2);
+        var blocker = new CountDownLatch(1);
+        Bill slowBill = (items, user, time) -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        };
+        var executor = Executors.newCachedThreadPool();
+        try {
+            var asyncBill = new AsyncBill(slowBill, executor, 2);
+            var items = List.of(new EItem(ItemType.MOUSE, "foo", 1));
+            var first = asyncBill.getOrderPriceAsync(items, adultUser, orderTime);
+            var second = asyncBill.getOrderPriceAsync(items, adultUser, orderTime);
+            started.await();
+            var rejected = asyncBill.getOrderPriceAsync(items, adultUser, orderTime);
+            assertTrue(rejected.isCompletedExceptionally());
+            var e = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+            blocker.countDown();
+            assertEquals(1, first.join());
+            assertEquals(1, second.join());
+            assertEquals(1, asyncBill.getOrderPriceAsync(items, adultUser, orderTime).join());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @DisplayName("Negative concurrency limits are rejected")
+    @Test
+    void testInvalidLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncBill(new BillImpl(new Random(0)), Runnable::run, -1));
+    }
+}
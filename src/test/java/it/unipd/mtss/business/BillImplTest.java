@@ -4,8 +4,10 @@
 ////////////////////////////////////////////////////////////////////
 package it.unipd.mtss.business;
 
+import it.unipd.mtss.model.CompactOrder;
 import it.unipd.mtss.model.EItem;
 import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
 import it.unipd.mtss.model.User;
 import it.unipd.mtss.model.exception.BillException;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,8 +31,11 @@ import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,7 +46,7 @@ public class BillImplTest {
     LocalTime orderTime = LocalTime.of(12, 0);
     LocalTime underageGiftOrderTime = LocalTime.of(18, 30);
 
-    Bill bill;
+    BillImpl bill;
     User adultUser, underageUser;
     Random mockedRandom;
 
@@ -51,7 +56,6 @@ public class BillImplTest {
         bill = new BillImpl(mockedRandom);
         adultUser = new User(false);
         underageUser = new User(true);
-        BillImpl.resetUnderageGift();
     }
 
     @DisplayName("Empty order is rejected")
@@ -276,7 +280,7 @@ public class BillImplTest {
     void testNoUnderageGiftIfOnlyAdultUsers(int adultOrders) {
         generateOrders(0, adultOrders, false);
         verify(mockedRandom, Mockito.never()).nextBoolean();
-        assertEquals(0, BillImpl.getUnderageGiftCount());
+        assertEquals(0, bill.getUnderageGiftCount());
     }
 
     @DisplayName("no orders are gifted to underage users if outside time range")
@@ -286,7 +290,7 @@ public class BillImplTest {
         var items = generateItems(ItemType.MOTHERBOARD, 1, 1).toList();
         bill.getOrderPrice(items, underageUser, orderTime);
         verify(mockedRandom, Mockito.never()).nextBoolean();
-        assertEquals(0, BillImpl.getUnderageGiftCount());
+        assertEquals(0, bill.getUnderageGiftCount());
     }
     public static Stream<Arguments> generateTimesOutsideRange() {
         return Stream.of(
@@ -308,7 +312,7 @@ public class BillImplTest {
         when(mockedRandom.nextBoolean()).thenReturn(true);
         bill.getOrderPrice(items, underageUser, orderTime);
         verify(mockedRandom, times(1)).nextBoolean();
-        assertEquals(1, BillImpl.getUnderageGiftCount());
+        assertEquals(1, bill.getUnderageGiftCount());
     }
     public static Stream<Arguments> generateTimesInsideRange() {
         return Stream.of(
@@ -329,7 +333,7 @@ public class BillImplTest {
         when(mockedRandom.nextBoolean()).thenReturn(true);
         generateOrders(10, 0, true);
         verify(mockedRandom, times(1)).nextBoolean();
-        assertEquals(1, BillImpl.getUnderageGiftCount());
+        assertEquals(1, bill.getUnderageGiftCount());
     }
 
     @DisplayName("Allow less than 10 underage gifts per day")
@@ -339,7 +343,7 @@ public class BillImplTest {
         when(mockedRandom.nextBoolean()).thenReturn(true);
         generateOrders(orderCount, 0, false);
         verify(mockedRandom, times(orderCount)).nextBoolean();
-        assertEquals(orderCount, BillImpl.getUnderageGiftCount());
+        assertEquals(orderCount, bill.getUnderageGiftCount());
     }
 
     @DisplayName("Limit underage gifts to 10 per day")
@@ -349,7 +353,7 @@ public class BillImplTest {
         when(mockedRandom.nextBoolean()).thenReturn(true);
         generateOrders(orderCount, 0, false);
         verify(mockedRandom, times(10)).nextBoolean();
-        assertEquals(10, BillImpl.getUnderageGiftCount());
+        assertEquals(10, bill.getUnderageGiftCount());
     }
 
     @DisplayName("No underage gift when nextBoolean returns false")
@@ -358,6 +362,86 @@ public class BillImplTest {
         when(mockedRandom.nextBoolean()).thenReturn(false);
         generateOrders(1, 0, false);
         verify(mockedRandom, times(1)).nextBoolean();
-        assertEquals(0, BillImpl.getUnderageGiftCount());
+        assertEquals(0, bill.getUnderageGiftCount());
+    }
+
+    private static List<Order> generateBatch(int size, long seed) {
+        var random = new Random(seed);
+        var users = IntStream.range(0, 50).mapToObj(i -> new User(i % 2 == 0)).toList();
+        return IntStream.range(0, size).mapToObj(i -> new Order(
+                IntStream.range(0, random.nextInt(33))
+                        .mapToObj(j -> new EItem(ItemType.values()[random.nextInt(4)], "foo", 1 + random.nextInt(200)))
+                        .toList(),
+                users.get(random.nextInt(users.size())),
+                LocalTime.of(17 + random.nextInt(3), random.nextInt(60))
+        )).toList();
+    }
+
+    @DisplayName("Batch pricing matches sequential pricing, gifts included")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 5)
+    void testBatchMatchesSequential(int seed) {
+        var orders = generateBatch(5000, seed);
+        var sequentialBill = new BillImpl(new Random(seed));
+        var batchBill = new BillImpl(new Random(seed));
+
+        var result = batchBill.getOrderPrices(orders);
+
+        assertEquals(orders.size(), result.size());
+        var errors = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+            try {
+                var expected = sequentialBill.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+                assertTrue(result.isSuccessful(i));
+                assertEquals(expected, result.getTotal(i));
+            } catch (BillException e) {
+                errors++;
+                assertEquals(e.getMessage(), result.getError(i).getMessage());
+                assertTrue(Double.isNaN(result.getTotal(i)));
+            }
+        }
+        assertEquals(errors, result.getErrorCount());
+        assertEquals(sequentialBill.getUnderageGiftCount(), batchBill.getUnderageGiftCount());
+    }
+
+    @DisplayName("Batch pricing reports bad orders without throwing")
+    @Test
+    void testBatchCollectsErrors() {
+        var item = new EItem(ItemType.MOUSE, "foo", 20);
+        var orders = List.of(
+                new Order(List.of(item), adultUser, orderTime),
+                new Order(List.of(), adultUser, orderTime),
+                new Order(generateItems(ItemType.KEYBOARD, 31, 1).toList(), adultUser, orderTime),
+                new Order(List.of(item, item), adultUser, orderTime)
+        );
+        var result = bill.getOrderPrices(orders);
+        assertEquals(2, result.getErrorCount());
+        assertArrayEquals(new double[]{20, Double.NaN, Double.NaN, 40}, result.getTotals());
+        assertTrue(result.isSuccessful(0));
+        assertFalse(result.isSuccessful(1));
+        assertFalse(result.isSuccessful(2));
+    }
+
+    @DisplayName("Columnar orders are priced like the equivalent item lists")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 200)
+    void testCompactOrderMatchesItems(int seed) {
+        var random = new Random(seed);
+        var items = IntStream.range(0, 1 + random.nextInt(30))
+                .mapToObj(i -> new EItem(ItemType.values()[random.nextInt(4)], "foo", random.nextDouble() * 100 + 1))
+                .toList();
+        var expected = bill.getOrderPrice(items, adultUser, orderTime);
+        assertEquals(expected, bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime));
+        assertEquals(expected, ((Bill) (list, user, time) -> bill.getOrderPrice(list, user, time))
+                .getOrderPrice(CompactOrder.of(items), adultUser, orderTime));
+    }
+
+    @DisplayName("Columnar orders keep the order size checks")
+    @Test
+    void testCompactOrderSizeChecks() {
+        assertThrows(BillException.class, () -> bill.getOrderPrice(new CompactOrder(), adultUser, orderTime));
+        var order = CompactOrder.of(generateItems(ItemType.MOUSE, 31, 1).toList());
+        assertThrows(BillException.class, () -> bill.getOrderPrice(order, adultUser, orderTime));
     }
 }
@@ -0,0 +1,143 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.business.metrics.MeteredBill;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingBillTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    Bill delegate;
+    CachingBill bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        delegate = Mockito.spy(new BillImpl(new Random(0)));
+        bill = new CachingBill(delegate, 1024);
+        adultUser = new User(false);
+    }
+
+    @DisplayName("Orders with the same lines in any order and with any names share the cached total")
+    @Test
+    void testCanonicalKey() {
+        var first = List.of(
+                new EItem(ItemType.MOUSE, "a", 10),
+                new EItem(ItemType.KEYBOARD, "b", 20),
+                new EItem(ItemType.MOUSE, "c", 5)
+        );
+        var second = List.of(
+                new EItem(ItemType.MOUSE, "x", 5),
+                new EItem(ItemType.MOUSE, "y", 10),
+                new EItem(ItemType.KEYBOARD, "z", 20)
+        );
+        var expected = delegate.getOrderPrice(first, adultUser, orderTime);
+        assertEquals(expected, bill.getOrderPrice(first, adultUser, orderTime));
+        assertEquals(expected, bill.getOrderPrice(second, new User(false), orderTime));
+        verify(delegate, times(2)).getOrderPrice(any(List.class), any(), any());
+        assertEquals(new CachingBill.Stats(1, 1, 0, 0), bill.getStats());
+    }
+
+    @DisplayName("Orders with different lines don't share the cached total")
+    @Test
+    void testDifferentOrders() {
+        var mouse = List.of(new EItem(ItemType.MOUSE, "a", 10));
+        var keyboard = List.of(new EItem(ItemType.KEYBOARD, "a", 10));
+        var pricier = List.of(new EItem(ItemType.MOUSE, "a", 11));
+        bill.getOrderPrice(mouse, adultUser, orderTime);
+        bill.getOrderPrice(keyboard, adultUser, orderTime);
+        bill.getOrderPrice(pricier, adultUser, orderTime);
+        assertEquals(new CachingBill.Stats(0, 3, 0, 0), bill.getStats());
+        assertNotEquals(new CachingBill.OrderKey(mouse), new CachingBill.OrderKey(keyboard));
+    }
+
+    @DisplayName("Least recently used orders are evicted when the cache is full")
+    @Test
+    void testEviction() {
+        var smallCache = new CachingBill(delegate, 16);
+        for (int i = 1; i <= 200; i++) {
+            smallCache.getOrderPrice(List.of(new EItem(ItemType.MOTHERBOARD, "foo", i)), adultUser, orderTime);
+        }
+        assertTrue(smallCache.size() <= 16);
+        assertEquals(200 - smallCache.size(), smallCache.getStats().evictions());
+    }
+
+    @DisplayName("Underage users and orders inside the gift window bypass the cache")
+    @Test
+    void testBypass() {
+        var items = List.of(new EItem(ItemType.MOUSE, "foo", 10));
+        bill.getOrderPrice(items, new User(true), orderTime);
+        bill.getOrderPrice(items, adultUser, LocalTime.of(18, 15));
+        bill.getOrderPrice(items, adultUser, LocalTime.of(18, 15));
+        assertEquals(new CachingBill.Stats(0, 0, 0, 3), bill.getStats());
+        assertEquals(0, bill.size());
+    }
+
+    @DisplayName("Orders inside the windows of the engine under other decorators bypass the cache")
+    @Test
+    void testStackedDecorators() {
+        var engine = new BillImpl(new Random(0));
+        engine.setPromotionSchedule(PromotionSchedule.of(engine.getUnderageGift(),
+                new FlashDiscountPromotion("flash", LocalTime.of(11, 0), LocalTime.of(13, 0), 0.5)));
+        try (var async = new AsyncBill(new MeteredBill(engine))) {
+            var stacked = new CachingBill(async, 1024);
+            var items = List.of(new EItem(ItemType.MOTHERBOARD, "foo", 100));
+            assertEquals(50, stacked.getOrderPrice(items, adultUser, orderTime));
+            assertEquals(100, stacked.getOrderPrice(items, adultUser, LocalTime.of(14, 0)));
+            assertEquals(50, stacked.getOrderPrice(items, adultUser, orderTime));
+            assertEquals(new CachingBill.Stats(0, 1, 0, 2), stacked.getStats());
+        }
+    }
+
+    @DisplayName("Rejected orders are not cached")
+    @Test
+    void testRejectedOrders() {
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        assertEquals(0, bill.size());
+    }
+
+    @DisplayName("Too small caches are rejected")
+    @Test
+    void testMinimumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingBill(delegate, 1));
+    }
+
+    @DisplayName("Segments are picked by the bits the segment buckets don't use")
+    @Test
+    void testSegmentIndex() {
+        // keys sharing the low bits land in the same bucket of their segment, they must spread across segments
+        var segments = new HashSet<Integer>();
+        for (int high = 0; high < 16; high++) {
+            var index = CachingBill.segmentIndex(high << 28 | 0x5A5);
+            assertTrue(index >= 0 && index < 16);
+            segments.add(index);
+        }
+        assertEquals(16, segments.size());
+        assertEquals(CachingBill.segmentIndex(0x70000000), CachingBill.segmentIndex(0x7FFFFFFF));
+    }
+}
@@ -0,0 +1,200 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CartTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    BillImpl reference;
+    Cart cart;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        reference = new BillImpl(new Random(0));
+        cart = new Cart();
+        adultUser = new User(false);
+    }
+
+    private void assertMatchesReference() {
+        assertEquals(Double.doubleToLongBits(reference.getOrderPrice(cart.getItems(), adultUser, orderTime)),
+                Double.doubleToLongBits(cart.getTotal()));
+    }
+
+    @DisplayName("Cart total matches BillImpl after random adds and removes")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 300)
+    void testMatchesReference(int seed) {
+        var random = new Random(seed);
+        var types = random.nextBoolean()
+                ? ItemType.values()
+                : new ItemType[]{ItemType.MOUSE, ItemType.KEYBOARD, ItemType.PROCESSOR};
+        for (int step = 0; step < 200; step++) {
+            if (cart.size() < 30 && (cart.size() == 0 || random.nextInt(3) != 0)) {
+                var item = SinglePassBillImplTest.randomOrder(random, 1, types).get(0);
+                assertEquals(Double.doubleToLongBits(cart.add(item)),
+                        Double.doubleToLongBits(reference.getOrderPrice(cart.getItems(), adultUser, orderTime)));
+            } else {
+                cart.remove(random.nextInt(cart.size()));
+                if (cart.size() > 0) {
+                    assertMatchesReference();
+                }
+            }
+        }
+    }
+
+    @DisplayName("Cheapest prices and counts follow the cart content")
+    @Test
+    void testAggregates() {
+        cart.add(new EItem(ItemType.MOUSE, "a", 10));
+        cart.add(new EItem(ItemType.MOUSE, "b", 5));
+        cart.add(new EItem(ItemType.KEYBOARD, "c", 7));
+        assertEquals(2, cart.getCount(ItemType.MOUSE));
+        assertEquals(5, cart.getCheapestPrice(ItemType.MOUSE));
+        assertEquals(15, cart.getTypeTotal(ItemType.MOUSE));
+        assertTrue(Double.isNaN(cart.getCheapestPrice(ItemType.PROCESSOR)));
+
+        assertTrue(cart.remove(new EItem(ItemType.MOUSE, "b", 5)));
+        assertFalse(cart.remove(new EItem(ItemType.MOUSE, "b", 5)));
+        assertEquals(10, cart.getCheapestPrice(ItemType.MOUSE));
+        // one mouse and one keyboard, the keyboard is gifted
+        assertEquals(10, cart.getTotal());
+        assertMatchesReference();
+    }
+
+    @DisplayName("Cart enforces the order size rules")
+    @Test
+    void testOrderSize() {
+        var exception = assertThrows(BillException.class, cart::getTotal);
+        assertEquals(BillException.Reason.EMPTY_ORDER, exception.getReason());
+
+        var item = new EItem(ItemType.MOTHERBOARD, "foo", 1);
+        for (int i = 0; i < 30; i++) {
+            cart.add(item);
+        }
+        exception = assertThrows(BillException.class, () -> cart.add(item));
+        assertEquals(BillException.Reason.TOO_MANY_ITEMS, exception.getReason());
+        assertEquals(30, cart.size());
+        assertMatchesReference();
+
+        cart.clear();
+        assertThrows(BillException.class, cart::getTotal);
+        assertEquals(0, cart.getCount(ItemType.MOTHERBOARD));
+    }
+
+    @DisplayName("Added prices match repricing the cart with each candidate")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 300)
+    void testAddedPricesMatchReference(int seed) {
+        var random = new Random(seed);
+        var types = new ItemType[]{ItemType.MOUSE, ItemType.KEYBOARD, ItemType.PROCESSOR, ItemType.MOTHERBOARD};
+        for (var item : SinglePassBillImplTest.randomOrder(random, random.nextInt(30), types)) {
+            cart.add(item);
+        }
+        var candidates = SinglePassBillImplTest.randomOrder(random, 50, types);
+        var addedPrices = cart.getAddedPrices(candidates);
+        var total = cart.size() == 0 ? 0 : reference.getOrderPrice(cart.getItems(), adultUser, orderTime);
+        for (int i = 0; i < candidates.size(); i++) {
+            var items = new ArrayList<>(cart.getItems());
+            items.add(candidates.get(i));
+            assertEquals(Double.doubleToLongBits(reference.getOrderPrice(items, adultUser, orderTime) - total),
+                    Double.doubleToLongBits(addedPrices[i]));
+        }
+    }
+
+    @DisplayName("Added prices cross the promotion thresholds")
+    @Test
+    void testAddedPriceThresholds() {
+        assertEquals(5 + BillImpl.SMALL_ORDER_COMMISSION, cart.getAddedPrice(new EItem(ItemType.MOUSE, "mouse", 5)));
+        var mouse = new EItem(ItemType.MOUSE, "mouse", 10);
+        for (int i = 0; i < 10; i++) {
+            cart.add(mouse);
+        }
+        // the eleventh mouse gifts one
+        assertEquals(0, cart.getAddedPrice(mouse));
+        assertEquals(20, cart.getAddedPrice(new EItem(ItemType.KEYBOARD, "keyboard", 20)));
+
+        cart.clear();
+        cart.add(mouse);
+        // as many keyboards as mice, the cheapest of them is gifted
+        assertEquals(10, cart.getAddedPrice(new EItem(ItemType.KEYBOARD, "keyboard", 20)));
+        assertEquals(0, cart.getAddedPrice(new EItem(ItemType.KEYBOARD, "keyboard", 8)));
+
+        cart.clear();
+        var processor = new EItem(ItemType.PROCESSOR, "processor", 100);
+        for (int i = 0; i < 5; i++) {
+            cart.add(processor);
+        }
+        assertEquals(50, cart.getAddedPrice(processor));
+        assertEquals(70, cart.getAddedPrice(new EItem(ItemType.PROCESSOR, "processor", 120)));
+        assertEquals(40, cart.getAddedPrice(new EItem(ItemType.PROCESSOR, "processor", 80)));
+    }
+
+    @DisplayName("Best upsell is the candidate saving the most")
+    @Test
+    void testBestUpsell() {
+        for (int i = 0; i < 10; i++) {
+            cart.add(new EItem(ItemType.MOUSE, "mouse", 10));
+        }
+        var candidates = List.of(
+                new EItem(ItemType.MOTHERBOARD, "motherboard", 30),
+                new EItem(ItemType.MOUSE, "mouse", 12),
+                new EItem(ItemType.KEYBOARD, "keyboard", 5));
+        assertEquals(1, cart.getBestUpsell(candidates));
+        assertEquals(-1, cart.getBestUpsell(candidates.subList(0, 1)));
+        assertEquals(-1, cart.getBestUpsell(List.of()));
+        // the cart isn't touched
+        assertEquals(10, cart.size());
+        assertEquals(100, cart.getTotal());
+    }
+
+    @DisplayName("Added prices can't go past the item limit")
+    @Test
+    void testAddedPriceFullCart() {
+        var item = new EItem(ItemType.MOTHERBOARD, "foo", 1);
+        for (int i = 0; i < 29; i++) {
+            cart.add(item);
+        }
+        assertEquals(1, cart.getAddedPrice(item));
+        cart.add(item);
+        var exception = assertThrows(BillException.class, () -> cart.getAddedPrice(item));
+        assertEquals(BillException.Reason.TOO_MANY_ITEMS, exception.getReason());
+    }
+
+    @DisplayName("Checkout draws the underage gift")
+    @Test
+    void testCheckout() {
+        cart.add(new EItem(ItemType.MOUSE, "foo", 20));
+        var bill = new BillImpl(new Random(0) {
+            @Override
+            public boolean nextBoolean() {
+                return true;
+            }
+        });
+        assertEquals(0, cart.checkout(bill, new User(true), LocalTime.of(18, 30)));
+        assertEquals(20, cart.checkout(bill, adultUser, LocalTime.of(18, 30)));
+    }
+}
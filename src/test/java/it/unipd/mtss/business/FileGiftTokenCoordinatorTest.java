@@ -0,0 +1,131 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.business.GiftTokenCoordinator.ClaimResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileGiftTokenCoordinatorTest {
+
+    private static final long DAY = 19_000;
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    @TempDir
+    Path dir;
+
+    Path file;
+    MutableClock clock;
+    FileGiftTokenCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("gifts.tokens");
+        clock = new MutableClock(Instant.parse("2022-05-20T17:30:00Z"));
+        coordinator = new FileGiftTokenCoordinator(file, 10, clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        coordinator.close();
+    }
+
+    @DisplayName("Leased and claimed tokens never exceed the daily limit")
+    @Test
+    void testLimit() {
+        var first = coordinator.acquire(DAY, 4, LEASE);
+        var second = coordinator.acquire(DAY, 4, LEASE);
+        var third = coordinator.acquire(DAY, 4, LEASE);
+        assertEquals(4, first.tokens());
+        assertEquals(4, second.tokens());
+        assertEquals(2, third.tokens());
+        assertEquals(0, coordinator.acquire(DAY, 4, LEASE).tokens());
+
+        for (int user = 0; user < 4; user++) {
+            assertEquals(ClaimResult.CLAIMED, coordinator.claim(first, user));
+        }
+        assertEquals(ClaimResult.LEASE_EXPIRED, coordinator.claim(first, 4));
+        assertEquals(4, coordinator.getGrantedCount(DAY));
+        assertEquals(0, coordinator.acquire(DAY, 4, LEASE).tokens());
+    }
+
+    @DisplayName("A user is gifted once whatever the lease")
+    @Test
+    void testDuplicateUser() {
+        var first = coordinator.acquire(DAY, 2, LEASE);
+        var second = coordinator.acquire(DAY, 2, LEASE);
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(first, 1));
+        assertEquals(ClaimResult.ALREADY_GIFTED, coordinator.claim(second, 1));
+        // the token wasn't consumed
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(second, 2));
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(second, 3));
+        assertEquals(3, coordinator.getGrantedCount(DAY));
+    }
+
+    @DisplayName("Released and expired leases give their unused tokens back")
+    @Test
+    void testReleaseAndExpiry() {
+        var released = coordinator.acquire(DAY, 5, LEASE);
+        var expiring = coordinator.acquire(DAY, 5, LEASE);
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(released, 1));
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(expiring, 2));
+        coordinator.release(released);
+        assertEquals(ClaimResult.LEASE_EXPIRED, coordinator.claim(released, 3));
+        assertEquals(4, coordinator.acquire(DAY, 10, LEASE).tokens());
+
+        clock.advance(LEASE);
+        assertEquals(ClaimResult.LEASE_EXPIRED, coordinator.claim(expiring, 3));
+        // the first of the three leases has expired too, only the two gifts are left out
+        assertEquals(8, coordinator.acquire(DAY, 10, LEASE).tokens());
+        assertEquals(2, coordinator.getGrantedCount(DAY));
+    }
+
+    @DisplayName("A new day starts a new quota and ends the old leases")
+    @Test
+    void testNewDay() {
+        var old = coordinator.acquire(DAY, 10, LEASE);
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(old, 1));
+        assertEquals(10, coordinator.acquire(DAY + 1, 10, LEASE).tokens());
+        assertEquals(ClaimResult.LEASE_EXPIRED, coordinator.claim(old, 2));
+        assertEquals(0, coordinator.acquire(DAY, 10, LEASE).tokens());
+        assertEquals(0, coordinator.getGrantedCount(DAY));
+    }
+
+    @DisplayName("Instances sharing a file share the state")
+    @Test
+    void testSharedFile() throws IOException {
+        var lease = coordinator.acquire(DAY, 6, LEASE);
+        assertEquals(ClaimResult.CLAIMED, coordinator.claim(lease, 1));
+        try (var other = new FileGiftTokenCoordinator(file, 10, clock)) {
+            assertEquals(1, other.getGrantedCount(DAY));
+            var otherLease = other.acquire(DAY, 10, LEASE);
+            assertEquals(4, otherLease.tokens());
+            assertEquals(ClaimResult.ALREADY_GIFTED, other.claim(otherLease, 1));
+            assertEquals(ClaimResult.CLAIMED, other.claim(lease, 2));
+        }
+        assertEquals(2, coordinator.getGrantedCount(DAY));
+    }
+
+    @DisplayName("Files that are not token states are rejected")
+    @Test
+    void testBadHeader() throws IOException {
+        var other = dir.resolve("other");
+        Files.write(other, new byte[64]);
+        assertThrows(IOException.class, () -> new FileGiftTokenCoordinator(other, 10, clock));
+        assertThrows(IllegalArgumentException.class, () -> coordinator.acquire(DAY, 0, LEASE));
+    }
+}
@@ -0,0 +1,136 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FixedPointBillImplTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    FixedPointBillImpl bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        bill = new FixedPointBillImpl(new Random(0));
+        adultUser = new User(false);
+    }
+
+    // BillImpl rules in exact decimal arithmetic, rounding each discount to the millicent
+    private static BigDecimal referenceTotal(List<EItem> items) {
+        var total = BigDecimal.ZERO;
+        for (var item : items) {
+            total = total.add(BigDecimal.valueOf(item.price()));
+        }
+        var processors = prices(items, ItemType.PROCESSOR);
+        var mice = prices(items, ItemType.MOUSE);
+        var keyboards = prices(items, ItemType.KEYBOARD);
+        if (processors.size() > 5) {
+            total = total.subtract(processors.get(0).divide(BigDecimal.valueOf(2), 5, RoundingMode.HALF_EVEN));
+        }
+        var picks = new ArrayList<>(mice);
+        if (mice.size() > 10) {
+            total = total.subtract(picks.remove(0));
+        }
+        if (!mice.isEmpty() && mice.size() == keyboards.size()) {
+            picks.addAll(keyboards);
+            total = total.subtract(picks.stream().min(Comparator.naturalOrder()).orElseThrow());
+        }
+        if (total.compareTo(BigDecimal.valueOf(1000)) > 0) {
+            total = total.multiply(new BigDecimal("0.9")).setScale(5, RoundingMode.HALF_EVEN);
+        }
+        if (total.compareTo(BigDecimal.TEN) < 0) {
+            total = total.add(BigDecimal.valueOf(2));
+        }
+        return total;
+    }
+
+    private static List<BigDecimal> prices(List<EItem> items, ItemType type) {
+        return items.stream()
+                .filter(item -> item.itemType() == type)
+                .map(item -> BigDecimal.valueOf(item.price()))
+                .sorted()
+                .toList();
+    }
+
+    private static List<EItem> randomOrder(Random random) {
+        var items = new ArrayList<EItem>();
+        var size = 1 + random.nextInt(30);
+        for (int i = 0; i < size; i++) {
+            var type = ItemType.values()[random.nextInt(4)];
+            items.add(new EItem(type, "foo", (1 + random.nextInt(99_999)) / 100.0));
+        }
+        return items;
+    }
+
+    @DisplayName("Fixed point totals are exact")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testExactTotals(int seed) {
+        var items = randomOrder(new Random(seed));
+        var expected = referenceTotal(items).movePointRight(5).longValueExact();
+        assertEquals(expected, bill.getOrderPriceInMillicents(items, adultUser, orderTime));
+        assertEquals(expected, bill.getOrderPriceInMillicents(new LinkedList<>(items), adultUser, orderTime));
+        assertEquals(expected, bill.getOrderPriceInMillicents(CompactOrder.of(items), adultUser, orderTime));
+        assertEquals(expected / 100_000.0, bill.getOrderPrice(items, adultUser, orderTime));
+        assertEquals(expected / 100_000.0, bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime));
+    }
+
+    @DisplayName("Half price processor is rounded half to even")
+    @Test
+    void testProcessorRounding() {
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i < 6; i++) {
+            items.add(new EItem(ItemType.PROCESSOR, "foo", 0.00003));
+        }
+        // 18 millicents minus 1.5 rounded to 2
+        assertEquals(16 + 200_000, bill.getOrderPriceInMillicents(items, adultUser, orderTime));
+    }
+
+    @DisplayName("Fixed point mode keeps the order size checks")
+    @Test
+    void testOrderSizeChecks() {
+        assertThrows(BillException.class, () -> bill.getOrderPriceInMillicents(List.of(), adultUser, orderTime));
+        assertThrows(BillException.class,
+                () -> bill.getOrderPriceInMillicents(new CompactOrder(), adultUser, orderTime));
+    }
+
+    @DisplayName("Gifted orders are free in fixed point mode too")
+    @Test
+    void testUnderageGift() {
+        var giftedBill = new FixedPointBillImpl(new Random() {
+            @Override
+            public boolean nextBoolean() {
+                return true;
+            }
+        });
+        var items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+        assertEquals(0, giftedBill.getOrderPriceInMillicents(items, new User(true), LocalTime.of(18, 30)));
+        assertEquals(0, giftedBill.getOrderPriceInMillicents(CompactOrder.of(items), new User(true),
+                LocalTime.of(18, 30)));
+    }
+}
@@ -0,0 +1,103 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GiftRandomSourceTest {
+
+    Clock clock = Clock.fixed(Instant.parse("2022-05-20T18:30:00Z"), ZoneOffset.UTC);
+    long today = LocalDate.now(clock).toEpochDay();
+    LocalTime giftTime = LocalTime.of(18, 30);
+    List<EItem> items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+
+    @DisplayName("Deterministic generators only depend on the day, the user and the order")
+    @Test
+    void testDeterministic() {
+        var source = GiftRandomSource.deterministic(42);
+        for (int order = 0; order < 100; order++) {
+            assertEquals(source.forOrder(today, 7, order).nextLong(), source.forOrder(today, 7, order).nextLong());
+        }
+        assertNotEquals(source.forOrder(today, 7, 0).nextLong(), source.forOrder(today, 7, 1).nextLong());
+        assertNotEquals(source.forOrder(today, 7, 0).nextLong(), source.forOrder(today, 8, 0).nextLong());
+        assertNotEquals(source.forOrder(today, 7, 0).nextLong(), source.forOrder(today + 1, 7, 0).nextLong());
+        assertNotEquals(source.forOrder(today, 7, 0).nextLong(),
+                GiftRandomSource.deterministic(43).forOrder(today, 7, 0).nextLong());
+    }
+
+    @DisplayName("Deterministic draws keep even gift odds")
+    @Test
+    void testOdds() {
+        var source = GiftRandomSource.deterministic(0);
+        var draws = 200_000;
+        var gifted = 0;
+        for (int i = 0; i < draws; i++) {
+            if (source.forOrder(today + i % 7, i % 1000, i).nextBoolean()) {
+                gifted++;
+            }
+        }
+        // more than 6 standard deviations away from even odds
+        assertTrue(Math.abs(gifted - draws / 2) < 1400, "gifted " + gifted);
+    }
+
+    @DisplayName("Gift decisions can be replayed from the day, the user and the order")
+    @Test
+    void testReplay() {
+        var orders = new ArrayList<Order>();
+        for (int order = 0; order < 40; order++) {
+            orders.add(new Order(items, new User(true), giftTime, order));
+        }
+
+        var bill = new BillImpl(GiftRandomSource.deterministic(42), new InMemoryUnderageGiftQuota(10, clock), clock);
+        var gifted = new boolean[orders.size()];
+        var giftCount = 0;
+        for (var order : orders) {
+            var replayed = new SplittableRandom(
+                    GiftRandomSource.seed(42, today, order.user().getId(), order.id())).nextBoolean();
+            var expected = replayed && giftCount < 10;
+            gifted[(int) order.id()] = bill.getOrderPrice(items, order.user(), giftTime, order.id()) == 0;
+            assertEquals(expected, gifted[(int) order.id()]);
+            giftCount += expected ? 1 : 0;
+        }
+
+        var batchBill = new BillImpl(GiftRandomSource.deterministic(42), new InMemoryUnderageGiftQuota(10, clock),
+                clock);
+        var result = batchBill.getOrderPrices(orders);
+        for (int order = 0; order < orders.size(); order++) {
+            assertEquals(gifted[order], result.getTotal(order) == 0);
+        }
+        assertEquals(bill.getUnderageGiftCount(), batchBill.getUnderageGiftCount());
+    }
+
+    @DisplayName("Bills built from a Random keep drawing from it")
+    @Test
+    void testShared() {
+        var rnd = new Random(0);
+        var expected = new Random(0);
+        var bill = new BillImpl(rnd, new InMemoryUnderageGiftQuota(1000, clock));
+        for (int order = 0; order < 100; order++) {
+            assertEquals(expected.nextBoolean(), bill.getOrderPrice(items, new User(true), giftTime) == 0);
+        }
+    }
+}
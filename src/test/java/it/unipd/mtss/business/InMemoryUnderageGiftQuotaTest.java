@@ -0,0 +1,140 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryUnderageGiftQuotaTest {
+
+    private static final int THREADS = 64;
+
+    MutableClock clock;
+    InMemoryUnderageGiftQuota quota;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2022-05-20T17:30:00Z"));
+        quota = new InMemoryUnderageGiftQuota(10, clock);
+    }
+
+    @DisplayName("A user can only be gifted once per day")
+    @Test
+    void testSingleGiftPerUser() {
+        assertTrue(quota.canGrant(1));
+        assertTrue(quota.tryGrant(1));
+        assertFalse(quota.canGrant(1));
+        assertFalse(quota.tryGrant(1));
+        assertEquals(1, quota.getGrantedCount());
+    }
+
+    @DisplayName("Quota is reset when the day changes")
+    @Test
+    void testResetOnDayRollover() {
+        for (int user = 0; user < 10; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        assertFalse(quota.canGrant(10));
+        assertFalse(quota.tryGrant(10));
+
+        clock.advance(Duration.ofDays(1));
+        assertEquals(0, quota.getGrantedCount());
+        assertTrue(quota.tryGrant(0));
+        assertTrue(quota.tryGrant(10));
+    }
+
+    @DisplayName("Concurrent grants never exceed the daily limit")
+    @Test
+    void testConcurrentGrantsRespectLimit() throws InterruptedException {
+        var granted = runConcurrently(thread -> {
+            var count = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (quota.tryGrant(thread * 1000 + i)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        assertEquals(10, granted);
+        assertEquals(10, quota.getGrantedCount());
+    }
+
+    @DisplayName("Concurrent grants to the same user only succeed once")
+    @Test
+    void testConcurrentGrantsSameUser() throws InterruptedException {
+        var granted = runConcurrently(thread -> quota.tryGrant(42) ? 1 : 0);
+        assertEquals(1, granted);
+        assertEquals(1, quota.getGrantedCount());
+    }
+
+    @DisplayName("Concurrent underage orders are gifted at most 10 times")
+    @Test
+    void testConcurrentOrders() throws InterruptedException {
+        var bill = new BillImpl(new AlwaysTrueRandom(), quota);
+        var items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+        var gifted = runConcurrently(thread -> {
+            var count = 0;
+            for (int i = 0; i < 100; i++) {
+                if (bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30)) == 0) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        assertEquals(10, gifted);
+        assertEquals(10, bill.getUnderageGiftCount());
+    }
+
+    private interface Task {
+        int run(int thread);
+    }
+
+    private static int runConcurrently(Task task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        var start = new CountDownLatch(1);
+        var total = new AtomicInteger();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final var id = thread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    total.addAndGet(task.run(id));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return total.get();
+    }
+
+    private static final class AlwaysTrueRandom extends Random {
+        @Override
+        public boolean nextBoolean() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LargeOrderBillImplTest {
+
+    private static final int MAX_LINES = 1_000_000;
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    BillImpl reference;
+    ForkJoinPool pool;
+    LargeOrderBillImpl bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        reference = new BillImpl(new Random(0));
+        pool = new ForkJoinPool(4);
+        bill = new LargeOrderBillImpl(new Random(0),
+                new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()), MAX_LINES, pool);
+        adultUser = new User(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @DisplayName("Orders BillImpl accepts get exactly the same total")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 300)
+    void testMatchesReference(int seed) {
+        var random = new Random(seed);
+        var items = SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+        assertEquals(Double.doubleToLongBits(reference.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)));
+        assertEquals(Double.doubleToLongBits(reference.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime)));
+    }
+
+    @DisplayName("Large orders are priced with the same rules")
+    @Test
+    void testLargeOrder() {
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i < 100_000; i++) {
+            items.add(new EItem(ItemType.MOUSE, "foo", 2 + i % 7));
+            items.add(new EItem(ItemType.KEYBOARD, "foo", 1.5 + i % 3));
+            items.add(new EItem(ItemType.PROCESSOR, "foo", 100 + i % 11));
+        }
+        items.add(new EItem(ItemType.MOTHERBOARD, "foo", 0.25));
+
+        var expected = BigDecimal.ZERO;
+        for (var item : items) {
+            expected = expected.add(BigDecimal.valueOf(item.price()));
+        }
+        // half of the cheapest processor, the cheapest mouse and the cheapest keyboard are gifted
+        var total = (expected.doubleValue() - 50 - 2 - 1.5) * 0.9;
+        assertEquals(total, bill.getOrderPrice(items, adultUser, orderTime), 1e-6);
+        assertEquals(total, bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime), 1e-6);
+    }
+
+    @DisplayName("Totals don't depend on the pool parallelism")
+    @Test
+    void testDeterministic() {
+        var items = SinglePassBillImplTest.randomOrder(new Random(42), 200_000, ItemType.values());
+        var sequential = new ForkJoinPool(1);
+        try {
+            var other = new LargeOrderBillImpl(new Random(0),
+                    new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()), MAX_LINES, sequential);
+            assertEquals(Double.doubleToLongBits(other.getOrderPrice(items, adultUser, orderTime)),
+                    Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)));
+            assertEquals(Double.doubleToLongBits(bill.getOrderPrice(new LinkedList<>(items), adultUser, orderTime)),
+                    Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)));
+        } finally {
+            sequential.shutdown();
+        }
+    }
+
+    @DisplayName("Large orders keep their own size limit")
+    @Test
+    void testLimits() {
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i <= MAX_LINES; i++) {
+            items.add(new EItem(ItemType.MOTHERBOARD, "foo", 1));
+        }
+        var exception = assertThrows(BillException.class, () -> bill.getOrderPrice(items, adultUser, orderTime));
+        assertEquals(BillException.Reason.TOO_MANY_ITEMS, exception.getReason());
+        assertThrows(IllegalArgumentException.class, () -> new LargeOrderBillImpl(new Random(0), 29));
+    }
+}
@@ -0,0 +1,289 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeasedUnderageGiftQuotaTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+    private static final Duration RETRY = Duration.ofSeconds(1);
+
+    @TempDir
+    Path dir;
+
+    MutableClock clock;
+    FileGiftTokenCoordinator coordinator;
+    CountingCoordinator counting;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        clock = new MutableClock(Instant.parse("2022-05-20T17:30:00Z"));
+        coordinator = new FileGiftTokenCoordinator(dir.resolve("gifts.tokens"), 10, clock);
+        counting = new CountingCoordinator(coordinator);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        coordinator.close();
+    }
+
+    private LeasedUnderageGiftQuota node(int blockSize) {
+        return new LeasedUnderageGiftQuota(counting, blockSize, LEASE, RETRY, clock);
+    }
+
+    @DisplayName("Checks are answered locally and blocks are leased only when needed")
+    @Test
+    void testLocalBlock() {
+        var quota = node(4);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(quota.canGrant(i));
+        }
+        assertEquals(0, counting.calls.get());
+
+        for (int user = 0; user < 10; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        assertFalse(quota.tryGrant(10));
+        // three blocks and a claim per gift, then a failed lease
+        assertEquals(3 + 10 + 1, counting.calls.get());
+
+        // the coordinator isn't asked again before the retry interval
+        assertFalse(quota.canGrant(11));
+        assertFalse(quota.tryGrant(11));
+        assertEquals(3 + 10 + 1, counting.calls.get());
+        assertEquals(10, quota.getGrantedCount());
+    }
+
+    @DisplayName("A slow claim doesn't hold up the checks and the other gifts")
+    @Test
+    void testSlowClaim() throws InterruptedException {
+        var claiming = new CountDownLatch(1);
+        var resume = new CountDownLatch(1);
+        var slow = new CountingCoordinator(coordinator) {
+            @Override
+            public ClaimResult claim(Lease lease, int userId) {
+                if (userId == 1) {
+                    claiming.countDown();
+                    await(resume);
+                }
+                return super.claim(lease, userId);
+            }
+        };
+        var quota = new LeasedUnderageGiftQuota(slow, 4, LEASE, RETRY, clock);
+        var firstGranted = new AtomicBoolean();
+        var first = new Thread(() -> firstGranted.set(quota.tryGrant(1)));
+        first.start();
+        assertTrue(claiming.await(10, TimeUnit.SECONDS));
+
+        assertTrue(quota.canGrant(2));
+        assertTrue(quota.tryGrant(2));
+        resume.countDown();
+        first.join();
+        assertTrue(firstGranted.get());
+        assertFalse(quota.canGrant(1));
+        assertEquals(2, quota.getGrantedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @DisplayName("A user gifted by a node can't be gifted by another")
+    @Test
+    void testDuplicateAcrossNodes() {
+        var first = node(2);
+        var second = node(2);
+        assertTrue(first.tryGrant(1));
+        assertTrue(second.canGrant(1));
+        assertFalse(second.tryGrant(1));
+        // known to the node from now on
+        assertFalse(second.canGrant(1));
+        assertTrue(second.tryGrant(2));
+        assertFalse(first.canGrant(1));
+    }
+
+    @DisplayName("Nodes share the daily limit, tokens of closed or dead nodes come back")
+    @Test
+    void testSharedLimit() {
+        var first = node(4);
+        var second = node(4);
+        var dead = node(4);
+        assertTrue(first.tryGrant(1));
+        assertTrue(second.tryGrant(2));
+        assertTrue(dead.tryGrant(3));
+        // all the tokens are leased, the blocks of the others aren't available yet
+        for (int user = 10; user < 13; user++) {
+            assertTrue(first.tryGrant(user));
+        }
+        assertFalse(first.tryGrant(13));
+        assertEquals(6, first.getGrantedCount());
+
+        second.close();
+        clock.advance(RETRY);
+        for (int user = 13; user < 16; user++) {
+            assertTrue(first.tryGrant(user));
+        }
+        assertFalse(first.tryGrant(16));
+
+        // the dead node never gives its last token back, it comes back when its lease expires
+        clock.advance(LEASE);
+        assertTrue(first.tryGrant(16));
+        assertFalse(first.tryGrant(17));
+        assertEquals(10, first.getGrantedCount());
+    }
+
+    @DisplayName("A lease expired on the coordinator is replaced")
+    @Test
+    void testExpiredLease() {
+        // the node's clock lags behind the coordinator's, so the lease expires there first
+        var late = new MutableClock(clock.instant());
+        var quota = new LeasedUnderageGiftQuota(counting, 4, LEASE, RETRY, late);
+        assertTrue(quota.tryGrant(1));
+        clock.advance(LEASE);
+        assertTrue(quota.tryGrant(2));
+        // a block, a claim, then a rejected claim, a new block and its claim
+        assertEquals(5, counting.calls.get());
+        assertEquals(2, quota.getGrantedCount());
+    }
+
+    @DisplayName("Quota is reset when the day changes")
+    @Test
+    void testNewDay() {
+        var quota = node(10);
+        for (int user = 0; user < 10; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        assertFalse(quota.tryGrant(10));
+        assertFalse(quota.canGrant(10));
+        clock.advance(Duration.ofDays(1));
+        assertTrue(quota.canGrant(0));
+        assertTrue(quota.tryGrant(0));
+        assertEquals(1, quota.getGrantedCount());
+    }
+
+    @DisplayName("Concurrent nodes in separate processes never exceed the daily limit")
+    @Test
+    void testMultiProcess() throws IOException, InterruptedException {
+        var file = dir.resolve("shared.tokens");
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        var processes = new ArrayList<Process>();
+        for (int node = 0; node < 4; node++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Node.class.getName(), file.toString(), "4", "200")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+
+        var gifted = new ArrayList<Integer>();
+        for (var process : processes) {
+            var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+            for (var line : output.lines().toList()) {
+                gifted.add(Integer.parseInt(line));
+            }
+        }
+
+        // every node tried the same users, so duplicates would show up
+        assertEquals(10, gifted.size());
+        assertEquals(10, new HashSet<>(gifted).size());
+        try (var shared = new FileGiftTokenCoordinator(file, 10, Clock.systemUTC())) {
+            assertEquals(10, shared.getGrantedCount(LocalDate.now(Clock.systemUTC()).toEpochDay()));
+        }
+    }
+
+    /**
+     * Pricing node of {@link #testMultiProcess()}: its threads try to gift the same users as every other
+     * node, then it prints the users it gifted.
+     */
+    public static final class Node {
+        public static void main(String[] args) throws IOException, InterruptedException {
+            final var threads = Integer.parseInt(args[1]);
+            final var users = Integer.parseInt(args[2]);
+            final var gifted = new ConcurrentLinkedQueue<Integer>();
+            try (var coordinator = new FileGiftTokenCoordinator(Paths.get(args[0]), 10, Clock.systemUTC());
+                 var quota = new LeasedUnderageGiftQuota(coordinator, 2, LEASE, Duration.ofMillis(1),
+                         Clock.systemUTC())) {
+                final var workers = new ArrayList<Thread>();
+                for (int thread = 0; thread < threads; thread++) {
+                    final var first = thread;
+                    workers.add(new Thread(() -> {
+                        for (int user = first; user < users; user += threads) {
+                            if (quota.canGrant(user) && quota.tryGrant(user)) {
+                                gifted.add(user);
+                            }
+                        }
+                    }));
+                }
+                workers.forEach(Thread::start);
+                for (var worker : workers) {
+                    worker.join();
+                }
+            }
+            gifted.forEach(System.out::println);
+        }
+    }
+
+    private static class CountingCoordinator implements GiftTokenCoordinator {
+        private final GiftTokenCoordinator delegate;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingCoordinator(GiftTokenCoordinator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Lease acquire(long day, int tokens, Duration duration) {
+            calls.incrementAndGet();
+            return delegate.acquire(day, tokens, duration);
+        }
+
+        @Override
+        public ClaimResult claim(Lease lease, int userId) {
+            calls.incrementAndGet();
+            return delegate.claim(lease, userId);
+        }
+
+        @Override
+        public void release(Lease lease) {
+            calls.incrementAndGet();
+            delegate.release(lease);
+        }
+
+        @Override
+        public int getGrantedCount(long day) {
+            return delegate.getGrantedCount(day);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedUnderageGiftQuotaTest {
+
+    @TempDir
+    Path dir;
+
+    Path file;
+    MutableClock clock;
+    MappedUnderageGiftQuota quota;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("gifts.ledger");
+        clock = new MutableClock(Instant.parse("2022-05-20T17:30:00Z"));
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        quota.close();
+    }
+
+    @DisplayName("A user can only be gifted once per day")
+    @Test
+    void testSingleGiftPerUser() {
+        assertTrue(quota.canGrant(1));
+        assertTrue(quota.tryGrant(1));
+        assertFalse(quota.canGrant(1));
+        assertFalse(quota.tryGrant(1));
+        assertEquals(1, quota.getGrantedCount());
+    }
+
+    @DisplayName("Grants survive a restart")
+    @Test
+    void testRecovery() throws IOException {
+        for (int user = 0; user < 6; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        quota.close();
+
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+        assertEquals(6, quota.getGrantedCount());
+        assertFalse(quota.tryGrant(3));
+        for (int user = 6; user < 10; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        assertFalse(quota.tryGrant(10));
+    }
+
+    @DisplayName("Quota is reset when the day changes")
+    @Test
+    void testResetOnDayRollover() throws IOException {
+        for (int user = 0; user < 10; user++) {
+            assertTrue(quota.tryGrant(user));
+        }
+        assertFalse(quota.canGrant(10));
+
+        clock.advance(Duration.ofDays(1));
+        assertEquals(0, quota.getGrantedCount());
+        assertTrue(quota.tryGrant(0));
+        quota.close();
+
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+        assertEquals(1, quota.getGrantedCount());
+        assertFalse(quota.canGrant(0));
+    }
+
+    @DisplayName("A torn record is discarded and overwritten")
+    @Test
+    void testTornRecord() throws IOException {
+        assertTrue(quota.tryGrant(1));
+        quota.close();
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // day and user id of a second grant, without its checksum
+            final var torn = ByteBuffer.allocate(12).putLong(LocalDate.now(clock).toEpochDay()).putInt(2).flip();
+            channel.write(torn, MappedUnderageGiftQuota.HEADER_BYTES + MappedUnderageGiftQuota.RECORD_BYTES);
+        }
+
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+        assertEquals(1, quota.getGrantedCount());
+        assertTrue(quota.tryGrant(3));
+        quota.close();
+
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+        assertEquals(2, quota.getGrantedCount());
+        assertTrue(quota.canGrant(2));
+        assertFalse(quota.canGrant(3));
+    }
+
+    @DisplayName("The ledger grows past its initial mapping")
+    @Test
+    void testGrowth() throws IOException {
+        for (int day = 0; day < 100; day++) {
+            for (int user = 0; user < 10; user++) {
+                assertTrue(quota.tryGrant(user));
+            }
+            clock.advance(Duration.ofDays(1));
+        }
+        quota.flush();
+        assertTrue(Files.size(file) > MappedUnderageGiftQuota.HEADER_BYTES
+                + 1000 * MappedUnderageGiftQuota.RECORD_BYTES);
+        quota.close();
+
+        quota = new MappedUnderageGiftQuota(file, 10, clock);
+        assertEquals(0, quota.getGrantedCount());
+        clock.advance(Duration.ofDays(-1));
+        assertEquals(0, quota.getGrantedCount());
+    }
+
+    @DisplayName("Instances sharing a file share the quota")
+    @Test
+    void testSharedFile() throws IOException, InterruptedException {
+        try (var other = new MappedUnderageGiftQuota(file, 10, clock)) {
+            assertTrue(quota.tryGrant(1));
+            assertFalse(other.canGrant(1));
+            assertFalse(other.tryGrant(1));
+
+            final var granted = new AtomicInteger();
+            final var executor = Executors.newFixedThreadPool(16);
+            final var start = new CountDownLatch(1);
+            for (int thread = 0; thread < 16; thread++) {
+                final var target = thread % 2 == 0 ? quota : other;
+                final var id = thread;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 100; i++) {
+                            if (target.tryGrant(1000 + id * 100 + i)) {
+                                granted.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            assertEquals(9, granted.get());
+            assertEquals(10, quota.getGrantedCount());
+            assertEquals(10, other.getGrantedCount());
+        }
+    }
+
+    @DisplayName("Files that are not gift ledgers are rejected")
+    @Test
+    void testBadHeader() throws IOException {
+        final var other = dir.resolve("other");
+        Files.write(other, new byte[64]);
+        assertThrows(IOException.class, () -> new MappedUnderageGiftQuota(other, 10, clock));
+    }
+}
@@ -0,0 +1,154 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderFilePricerTest {
+
+    private static final long RECORD_WINDOW_FLOOR = OrderFileWriter.RECORD_HEADER_BYTES
+            + (long) OrderFileWriter.MAX_LINES * OrderFileWriter.LINE_BYTES;
+
+    @TempDir
+    Path directory;
+
+    private static double[] readTotals(Path file) throws IOException {
+        var totals = new double[(int) (Files.size(file) / Double.BYTES)];
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] = in.readDouble();
+            }
+        }
+        return totals;
+    }
+
+    @DisplayName("File totals match BillImpl totals, across mapping windows")
+    @Test
+    void testMatchesBillImpl() throws IOException {
+        var random = new Random(7);
+        var users = new ArrayList<User>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User(i % 3 == 0));
+        }
+        var reference = new BillImpl(new Random(42));
+        var expected = new ArrayList<Double>();
+
+        var input = directory.resolve("orders.bin");
+        try (var writer = new OrderFileWriter(input)) {
+            for (int i = 0; i < 10_000; i++) {
+                var user = users.get(random.nextInt(users.size()));
+                var time = LocalTime.ofSecondOfDay(17 * 3600 + random.nextInt(3 * 3600));
+                var items = SinglePassBillImplTest.randomOrder(random, random.nextInt(32), ItemType.values());
+                if (i % 2 == 0) {
+                    writer.write(user.getId(), user.isUnderage(), time, items);
+                } else {
+                    writer.write(user.getId(), user.isUnderage(), time, CompactOrder.of(items));
+                }
+                try {
+                    expected.add(reference.getOrderPrice(items, user, time));
+                } catch (BillException e) {
+                    expected.add(Double.NaN);
+                }
+            }
+        }
+
+        var output = directory.resolve("totals.bin");
+        var summary = new OrderFilePricer(new BillImpl(new Random(42)), 1).price(input, output);
+
+        var totals = readTotals(output);
+        assertEquals(expected.size(), totals.length);
+        assertEquals(expected.size(), summary.orders());
+        assertEquals(expected.stream().filter(total -> total.isNaN()).count(), summary.rejected());
+        assertTrue(Files.size(input) > 2 * RECORD_WINDOW_FLOOR);
+        for (int i = 0; i < totals.length; i++) {
+            assertEquals(expected.get(i), totals[i]);
+        }
+    }
+
+    @DisplayName("Orders with invalid lines are rejected")
+    @Test
+    void testInvalidLines() throws IOException {
+        var input = directory.resolve("orders.bin");
+        try (var writer = new OrderFileWriter(input)) {
+            var order = new CompactOrder();
+            order.add(ItemType.MOUSE, 5);
+            writer.write(1, false, LocalTime.NOON, order);
+            order.typeOrdinals()[0] = 42;
+            writer.write(1, false, LocalTime.NOON, order);
+            writer.write(1, false, LocalTime.NOON, List.of(new EItem(ItemType.KEYBOARD, "foo", 20)));
+        }
+        var output = directory.resolve("totals.bin");
+        var summary = new OrderFilePricer(new BillImpl(new Random(0))).price(input, output);
+        assertEquals(new OrderFilePricer.Summary(3, 1), summary);
+        var totals = readTotals(output);
+        assertEquals(7, totals[0]);
+        assertTrue(Double.isNaN(totals[1]));
+        assertEquals(20, totals[2]);
+    }
+
+    @DisplayName("Orders with a purchase time outside the day are rejected")
+    @Test
+    void testInvalidTime() throws IOException {
+        var input = directory.resolve("orders.bin");
+        try (var writer = new OrderFileWriter(input)) {
+            for (int i = 0; i < 3; i++) {
+                writer.write(1, false, LocalTime.NOON, List.of(new EItem(ItemType.KEYBOARD, "foo", 20)));
+            }
+        }
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(input));
+        var record = OrderFileWriter.RECORD_HEADER_BYTES + OrderFileWriter.LINE_BYTES;
+        var secondOfDay = OrderFileWriter.FILE_HEADER_BYTES + Integer.BYTES + Byte.BYTES;
+        bytes.putInt(secondOfDay, -1);
+        bytes.putInt(secondOfDay + record, 24 * 60 * 60);
+        Files.write(input, bytes.array());
+
+        var output = directory.resolve("totals.bin");
+        var summary = new OrderFilePricer(new BillImpl(new Random(0))).price(input, output);
+        assertEquals(new OrderFilePricer.Summary(3, 2), summary);
+        var totals = readTotals(output);
+        assertTrue(Double.isNaN(totals[0]));
+        assertTrue(Double.isNaN(totals[1]));
+        assertEquals(20, totals[2]);
+    }
+
+    @DisplayName("Files that aren't order files are rejected")
+    @Test
+    void testBadFiles() throws IOException {
+        var input = directory.resolve("garbage.bin");
+        Files.write(input, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        var pricer = new OrderFilePricer(new BillImpl(new Random(0)));
+        assertThrows(IOException.class, () -> pricer.price(input, directory.resolve("totals.bin")));
+
+        var truncated = directory.resolve("truncated.bin");
+        try (var writer = new OrderFileWriter(truncated)) {
+            writer.write(1, false, LocalTime.NOON, List.of(new EItem(ItemType.KEYBOARD, "foo", 20)));
+        }
+        var bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> pricer.price(truncated, directory.resolve("totals.bin")));
+    }
+}
@@ -0,0 +1,200 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PricingResultTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    BillImpl bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        bill = new BillImpl(new Random(0));
+        adultUser = new User(false);
+    }
+
+    @DisplayName("Receipts reproduce the totals of BillImpl")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testReceiptMatchesTotal(int seed) {
+        var random = new Random(seed);
+        var items = random.nextBoolean()
+                ? SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values())
+                : mouseKeyboardOrder(random);
+        var result = bill.getOrderPricing(items, adultUser, orderTime);
+        assertEquals(Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(result.getTotal()));
+
+        var receipt = result.getReceipt().orElseThrow();
+        assertEquals(Double.doubleToLongBits(result.getTotal()), Double.doubleToLongBits(receipt.subtotal()));
+        assertEquals(items, receipt.items());
+        receipt.giftedMouseOrKeyboard().ifPresent(index -> assertFalse(receipt.giftedMouse().equals(
+                OptionalInt.of(index))));
+    }
+
+    @DisplayName("Receipts reproduce the totals and decisions of each engine")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 50)
+    void testReceiptMatchesEngine(int seed) {
+        var random = new Random(seed);
+        var items = random.nextBoolean()
+                ? SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values())
+                : mouseKeyboardOrder(random);
+        var engines = List.of(new SinglePassBillImpl(new Random(0)),
+                new FixedPointBillImpl(new Random(0)), new LargeOrderBillImpl(new Random(0), 100),
+                new RuleChainBillImpl(new Random(0), DefaultDiscountRules.chain()));
+        var expected = bill.getOrderPricing(items, adultUser, orderTime).getReceipt().orElseThrow();
+        for (var engine : engines) {
+            var result = engine.getOrderPricing(items, adultUser, orderTime);
+            assertEquals(Double.doubleToLongBits(engine.getOrderPrice(items, adultUser, orderTime)),
+                    Double.doubleToLongBits(result.getTotal()));
+            var receipt = result.getReceipt().orElseThrow();
+            assertEquals(Double.doubleToLongBits(result.getTotal()), Double.doubleToLongBits(receipt.subtotal()));
+            assertEquals(expected.halvedProcessor(), receipt.halvedProcessor());
+            assertEquals(expected.giftedMouse(), receipt.giftedMouse());
+            assertEquals(expected.giftedMouseOrKeyboard(), receipt.giftedMouseOrKeyboard());
+            assertEquals(expected.bulkDiscount(), receipt.bulkDiscount());
+            assertEquals(expected.smallOrderCommission(), receipt.smallOrderCommission());
+        }
+    }
+
+    @DisplayName("Fixed point receipts report the totals computed in millicents")
+    @Test
+    void testFixedPointReceipt() {
+        var engine = new FixedPointBillImpl(new Random(0));
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new EItem(ItemType.MOTHERBOARD, "board" + i, 0.1));
+        }
+        var receipt = engine.getOrderPricing(items, adultUser, orderTime).getReceipt().orElseThrow();
+        // the doubles of BillImpl add up to 0.9999999999999999 instead
+        assertEquals(1, receipt.itemsTotal());
+        assertEquals(3, receipt.subtotal());
+        assertTrue(receipt.smallOrderCommission());
+    }
+
+    @DisplayName("Receipts of large orders come from the parallel aggregation")
+    @Test
+    void testLargeOrderReceipt() {
+        var engine = new LargeOrderBillImpl(new Random(0), 2 * LargeOrderBillImpl.LEAF_SIZE);
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i < LargeOrderBillImpl.LEAF_SIZE + 10; i++) {
+            items.add(new EItem(ItemType.PROCESSOR, "cpu" + i, 1000 - i % 500));
+        }
+        var result = engine.getOrderPricing(items, adultUser, orderTime);
+        var receipt = result.getReceipt().orElseThrow();
+        assertEquals(Double.doubleToLongBits(engine.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(receipt.subtotal()));
+        assertEquals(OptionalInt.of(499), receipt.halvedProcessor());
+        assertTrue(receipt.bulkDiscount());
+    }
+
+    @DisplayName("Engines with custom rules price orders without receipts")
+    @Test
+    void testCustomRulesHaveNoReceipts() {
+        var engine = new RuleChainBillImpl(new Random(0), RuleChain.builder()
+                .add(DefaultDiscountRules.MOUSE_GIFT).build());
+        assertFalse(engine.hasReceipts());
+        var items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+        var result = engine.getOrderPricing(items, adultUser, orderTime);
+        assertEquals(engine.getOrderPrice(items, adultUser, orderTime), result.getTotal());
+        assertEquals(List.of(), result.getPromotions());
+        assertTrue(result.getReceipt().isEmpty());
+        assertTrue(new RuleChainBillImpl(new Random(0), DefaultDiscountRules.chain()).hasReceipts());
+    }
+
+    private static List<EItem> mouseKeyboardOrder(Random random) {
+        var items = new ArrayList<>(SinglePassBillImplTest.randomOrder(random, 11 + random.nextInt(4),
+                ItemType.MOUSE));
+        items.addAll(SinglePassBillImplTest.randomOrder(random, items.size(), ItemType.KEYBOARD));
+        return items;
+    }
+
+    @DisplayName("Receipts point at the discounted items")
+    @Test
+    void testAttribution() {
+        var items = new ArrayList<EItem>();
+        for (int i = 0; i < 6; i++) {
+            items.add(new EItem(ItemType.PROCESSOR, "cpu" + i, 100 - i));
+        }
+        for (int i = 0; i < 11; i++) {
+            items.add(new EItem(ItemType.MOUSE, "mouse" + i, 10 + i));
+        }
+        for (int i = 0; i < 11; i++) {
+            items.add(new EItem(ItemType.KEYBOARD, "keyboard" + i, 30 + i));
+        }
+        var receipt = bill.getOrderPricing(items, adultUser, orderTime).getReceipt().orElseThrow();
+        assertEquals(OptionalInt.of(5), receipt.halvedProcessor());
+        assertEquals(OptionalInt.of(6), receipt.giftedMouse());
+        // the cheapest mouse is already gifted, so the next one is
+        assertEquals(OptionalInt.of(7), receipt.giftedMouseOrKeyboard());
+        assertTrue(receipt.bulkDiscount());
+        assertFalse(receipt.smallOrderCommission());
+        assertFalse(receipt.isUnderageGift());
+        assertEquals(List.of(), receipt.promotions());
+    }
+
+    @DisplayName("Receipts report the commission and the promotions")
+    @Test
+    void testCommissionAndPromotions() {
+        var flash = new FlashDiscountPromotion("flash", LocalTime.of(11, 0), LocalTime.of(13, 0), 0.5);
+        bill.setPromotionSchedule(PromotionSchedule.of(flash, bill.getUnderageGift()));
+        var result = bill.getOrderPricing(List.of(new EItem(ItemType.MOTHERBOARD, "foo", 4)), adultUser, orderTime);
+        assertEquals(3, result.getTotal());
+        assertEquals(List.of(flash), result.getPromotions());
+        var receipt = result.getReceipt().orElseThrow();
+        assertTrue(receipt.smallOrderCommission());
+        assertEquals(6, receipt.subtotal());
+        assertEquals(3, receipt.total());
+        assertSame(receipt, result.getReceipt().orElseThrow());
+    }
+
+    @DisplayName("Receipts take the underage gift from the pricing instead of drawing it again")
+    @Test
+    void testGiftIsNotDrawnAgain() {
+        var draws = new int[1];
+        var giftBill = new BillImpl(new Random(0) {
+            @Override
+            public boolean nextBoolean() {
+                draws[0]++;
+                return draws[0] == 1;
+            }
+        }, new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()));
+        var items = List.of(new EItem(ItemType.MOUSE, "foo", 20));
+        var result = giftBill.getOrderPricing(items, new User(true), LocalTime.of(18, 30));
+        assertEquals(0, result.getTotal());
+        assertTrue(result.isUnderageGift());
+
+        var receipt = result.getReceipt().orElseThrow();
+        assertTrue(receipt.isUnderageGift());
+        assertEquals(20, receipt.subtotal());
+        assertEquals(0, receipt.total());
+        assertEquals(1, draws[0]);
+        assertEquals(1, giftBill.getUnderageGiftCount());
+    }
+}
@@ -0,0 +1,244 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PricingServerTest {
+
+    private static final LocalTime OUTSIDE_WINDOW = LocalTime.of(10, 15);
+
+    private PricingServer server;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new PricingServer(new BillImpl(new Random(0)),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        address = server.getAddress();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    private static List<EItem> randomOrder(Random random, int maxItems) {
+        var items = new ArrayList<EItem>();
+        var types = ItemType.values();
+        var count = 1 + random.nextInt(maxItems);
+        for (int i = 0; i < count; i++) {
+            items.add(new EItem(types[random.nextInt(types.length)], "item" + i, 1 + random.nextInt(20_000) / 100.0));
+        }
+        return items;
+    }
+
+    @DisplayName("Single requests get the BillImpl totals")
+    @Test
+    void testSingleRequests() throws IOException {
+        var random = new Random(1);
+        var reference = new BillImpl(new Random(0));
+        try (var client = new PricingClient(address)) {
+            for (int i = 0; i < 500; i++) {
+                var items = randomOrder(random, 30);
+                var user = new User(false);
+                assertEquals(reference.getOrderPrice(items, user, OUTSIDE_WINDOW),
+                        client.getOrderPrice(items, user, OUTSIDE_WINDOW));
+            }
+        }
+    }
+
+    @DisplayName("Pipelined batches get the BillImpl totals and errors, in order")
+    @Test
+    void testPipelinedBatch() throws IOException {
+        var random = new Random(2);
+        var reference = new BillImpl(new Random(0));
+        var orders = new ArrayList<Order>();
+        for (int i = 0; i < 5000; i++) {
+            orders.add(new Order(randomOrder(random, 31), new User(false), OUTSIDE_WINDOW));
+        }
+        var hugeOrder = Collections.nCopies(PricingServer.MAX_LINES + 1, new EItem(ItemType.MOUSE, "mouse", 1));
+        orders.add(100, new Order(List.of(), new User(false), OUTSIDE_WINDOW));
+        orders.add(200, new Order(hugeOrder, new User(false), OUTSIDE_WINDOW));
+        var expected = reference.getOrderPrices(orders);
+
+        try (var client = new PricingClient(address, 64)) {
+            var result = client.getOrderPrices(orders);
+            assertEquals(expected.size(), result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(expected.getTotals()[i], result.getTotals()[i]);
+                var error = expected.getError(i);
+                if (error == null) {
+                    assertNull(result.getError(i));
+                } else {
+                    assertEquals(error.getReason(), result.getError(i).getReason());
+                }
+            }
+            assertEquals(BillException.Reason.EMPTY_ORDER, result.getError(100).getReason());
+            assertEquals(BillException.Reason.TOO_MANY_ITEMS, result.getError(200).getReason());
+
+            // the connection is still usable after a batch
+            var items = List.of(new EItem(ItemType.KEYBOARD, "keyboard", 20));
+            assertEquals(20, client.getOrderPrice(items, new User(false), OUTSIDE_WINDOW));
+            var exception = assertThrows(BillException.class,
+                    () -> client.getOrderPrice(List.of(), new User(false), OUTSIDE_WINDOW));
+            assertEquals(BillException.Reason.EMPTY_ORDER, exception.getReason());
+        }
+    }
+
+    @DisplayName("Concurrent connections are served independently")
+    @Test
+    void testConcurrentClients() throws Exception {
+        var reference = new BillImpl(new Random(0));
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; t++) {
+                var seed = t;
+                futures.add(executor.submit(() -> {
+                    var random = new Random(seed);
+                    var orders = new ArrayList<Order>();
+                    for (int i = 0; i < 2000; i++) {
+                        orders.add(new Order(randomOrder(random, 30), new User(false), OUTSIDE_WINDOW));
+                    }
+                    try (var client = new PricingClient(address)) {
+                        var totals = client.getOrderPrices(orders).getTotals();
+                        for (int i = 0; i < totals.length; i++) {
+                            var order = orders.get(i);
+                            assertEquals(reference.getOrderPrice(order.items(), order.user(), OUTSIDE_WINDOW),
+                                    totals[i]);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @DisplayName("Invalid orders are rejected, malformed frames close the connection")
+    @Test
+    void testInvalidRequests() throws IOException {
+        try (var channel = SocketChannel.open(address)) {
+            var request = ByteBuffer.allocate(64);
+            request.putInt(PricingServer.REQUEST_HEADER_BYTES + PricingServer.LINE_BYTES)
+                    .putLong(7).putInt(1).put((byte) 0).putInt(0).putShort((short) 1)
+                    .put((byte) 42).putDouble(10);
+            write(channel, request.flip());
+            var response = read(channel, PricingServer.RESPONSE_BYTES);
+            assertEquals(7, response.getLong());
+            assertEquals(PricingServer.STATUS_INVALID_ORDER, response.get());
+            assertTrue(Double.isNaN(response.getDouble()));
+
+            // the length doesn't match the lines
+            request.clear().putInt(PricingServer.REQUEST_HEADER_BYTES)
+                    .putLong(8).putInt(1).put((byte) 0).putInt(0).putShort((short) 1);
+            write(channel, request.flip());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+
+        try (var channel = SocketChannel.open(address)) {
+            write(channel, ByteBuffer.allocate(Integer.BYTES).putInt(3).flip());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @DisplayName("Engine failures reject the order and keep the server running")
+    @Test
+    void testEngineFailure() throws IOException {
+        var failingQuota = new UnderageGiftQuota() {
+            @Override
+            public boolean canGrant(int userId) {
+                throw new UncheckedIOException(new IOException("quota file unavailable"));
+            }
+
+            @Override
+            public boolean tryGrant(int userId) {
+                return canGrant(userId);
+            }
+
+            @Override
+            public int getGrantedCount() {
+                return 0;
+            }
+        };
+        try (var failing = new PricingServer(new BillImpl(new Random(0), failingQuota),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            failing.start();
+            try (var client = new PricingClient(failing.getAddress())) {
+                var items = List.of(new EItem(ItemType.KEYBOARD, "keyboard", 20));
+                var exception = assertThrows(BillException.class,
+                        () -> client.getOrderPrice(items, new User(true), LocalTime.of(18, 30)));
+                assertEquals(BillException.Reason.OTHER, exception.getReason());
+                assertEquals(20, client.getOrderPrice(items, new User(false), OUTSIDE_WINDOW));
+            }
+            try (var client = new PricingClient(failing.getAddress())) {
+                assertEquals(20, client.getOrderPrice(List.of(new EItem(ItemType.KEYBOARD, "keyboard", 20)),
+                        new User(true), OUTSIDE_WINDOW));
+            }
+        }
+    }
+
+    @DisplayName("Clients fail once the server is closed")
+    @Test
+    void testClose() throws IOException {
+        try (var client = new PricingClient(address)) {
+            var items = List.of(new EItem(ItemType.KEYBOARD, "keyboard", 20));
+            assertEquals(20, client.getOrderPrice(items, new User(false), OUTSIDE_WINDOW));
+            server.close();
+            assertThrows(UncheckedIOException.class,
+                    () -> client.getOrderPrice(items, new User(false), OUTSIDE_WINDOW));
+        }
+        assertThrows(IllegalStateException.class, server::start);
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer read(SocketChannel channel, int bytes) throws IOException {
+        var buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("closed");
+            }
+        }
+        return buffer.flip();
+    }
+}
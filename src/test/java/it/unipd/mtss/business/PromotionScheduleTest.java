@@ -0,0 +1,128 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PromotionScheduleTest {
+
+    List<EItem> items = List.of(new EItem(ItemType.MOTHERBOARD, "foo", 100));
+    User adultUser = new User(false);
+
+    BillImpl bill;
+
+    @BeforeEach
+    void setUp() {
+        bill = new BillImpl(new AlwaysTrueRandom(), new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()));
+    }
+
+    @DisplayName("Indexed lookup finds the same promotions of a full scan")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 20)
+    void testLookupMatchesScan(int seed) {
+        var random = new Random(seed);
+        var promotions = new ArrayList<Promotion>();
+        for (int i = 0; i < 300; i++) {
+            var start = LocalTime.ofSecondOfDay(random.nextInt(86_400));
+            var end = start.plusSeconds(1 + random.nextInt(random.nextBoolean() ? 600 : 86_399));
+            promotions.add(new FlashDiscountPromotion("flash" + i, start, end, 0.01));
+        }
+        var schedule = PromotionSchedule.of(promotions);
+        for (int i = 0; i < 2000; i++) {
+            var time = LocalTime.ofSecondOfDay(random.nextInt(86_400));
+            var expected = promotions.stream().filter(promotion -> isActive(promotion, time)).toList();
+            assertEquals(expected, schedule.getActivePromotions(time));
+            assertEquals(!expected.isEmpty(), schedule.hasActivePromotions(time));
+        }
+    }
+
+    private static boolean isActive(Promotion promotion, LocalTime time) {
+        var start = promotion.startTime();
+        var end = promotion.endTime();
+        return start.isBefore(end)
+                ? !time.isBefore(start) && time.isBefore(end)
+                : !time.isBefore(start) || time.isBefore(end);
+    }
+
+    @DisplayName("Windows spanning midnight are active on both days")
+    @Test
+    void testMidnight() {
+        var schedule = PromotionSchedule.of(
+                new FlashDiscountPromotion("night", LocalTime.of(23, 30), LocalTime.of(0, 30), 0.5));
+        assertTrue(schedule.hasActivePromotions(LocalTime.of(23, 30)));
+        assertTrue(schedule.hasActivePromotions(LocalTime.of(0, 29, 59)));
+        assertFalse(schedule.hasActivePromotions(LocalTime.of(0, 30)));
+        assertFalse(schedule.hasActivePromotions(LocalTime.of(23, 29, 59)));
+    }
+
+    @DisplayName("Invalid schedules are rejected")
+    @Test
+    void testInvalidSchedules() {
+        var promotion = new FlashDiscountPromotion("flash", LocalTime.of(10, 0), LocalTime.of(11, 0), 0.5);
+        assertThrows(IllegalArgumentException.class, () -> PromotionSchedule.of(promotion, promotion));
+        assertThrows(IllegalArgumentException.class, () -> PromotionSchedule.of(
+                new FlashDiscountPromotion("empty", LocalTime.of(10, 0), LocalTime.of(10, 0), 0.5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FlashDiscountPromotion("free", LocalTime.of(10, 0), LocalTime.of(11, 0), 1.5));
+    }
+
+    @DisplayName("The underage gift is the only promotion by default")
+    @Test
+    void testDefaultSchedule() {
+        assertEquals(List.of(bill.getUnderageGift()), bill.getPromotionSchedule().getPromotions());
+        assertEquals(List.of(bill.getUnderageGift()),
+                bill.getPromotionSchedule().getActivePromotions(LocalTime.of(18, 0)));
+        assertFalse(bill.getPromotionSchedule().hasActivePromotions(LocalTime.of(19, 0)));
+    }
+
+    @DisplayName("Promotions apply in order inside their windows")
+    @Test
+    void testFlashPromotions() {
+        bill.setPromotionSchedule(PromotionSchedule.of(
+                new FlashDiscountPromotion("morning", LocalTime.of(9, 0), LocalTime.of(12, 0), 0.5),
+                new FlashDiscountPromotion("lunch", LocalTime.of(11, 0), LocalTime.of(14, 0), 0.2),
+                bill.getUnderageGift()));
+        assertEquals(100, bill.getOrderPrice(items, adultUser, LocalTime.of(8, 59)));
+        assertEquals(50, bill.getOrderPrice(items, adultUser, LocalTime.of(10, 0)));
+        assertEquals(40, bill.getOrderPrice(items, adultUser, LocalTime.of(11, 30)));
+        assertEquals(80, bill.getOrderPrice(items, adultUser, LocalTime.of(12, 0)));
+        assertEquals(0, bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30)));
+        assertEquals(1, bill.getUnderageGiftCount());
+    }
+
+    @DisplayName("Swapping the schedule takes effect on the next order")
+    @Test
+    void testHotSwap() {
+        assertEquals(0, bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30)));
+        bill.setPromotionSchedule(PromotionSchedule.of());
+        assertEquals(100, bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30)));
+        assertEquals(1, bill.getUnderageGiftCount());
+    }
+
+    private static final class AlwaysTrueRandom extends Random {
+        @Override
+        public boolean nextBoolean() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RuleChainTest {
+
+    private record TestRule(String name, Set<String> dependsOn, double discount) implements DiscountRule {
+        @Override
+        public double apply(double orderTotal, PricingContext context) {
+            return orderTotal - discount;
+        }
+    }
+
+    @DisplayName("Default rule chain prices like BillImpl, fused or rule by rule")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testDefaultChainMatchesBillImpl(int seed) {
+        var random = new Random(seed);
+        var items = SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+        if (seed % 2 == 0) {
+            var mice = SinglePassBillImplTest.randomOrder(random, 11, ItemType.MOUSE);
+            items = new ArrayList<>(mice);
+            items.addAll(SinglePassBillImplTest.randomOrder(random, 11, ItemType.KEYBOARD));
+        }
+        var expected = new BillImpl(random).computeOrderTotal(items);
+        var chain = DefaultDiscountRules.chain();
+        assertTrue(chain.isDefault());
+        assertEquals(expected, chain.price(items));
+        assertEquals(expected, chain.price(new LinkedList<>(items)));
+        assertEquals(expected, chain.price(CompactOrder.of(items)));
+
+        // a rule that changes nothing keeps the chain from being fused
+        var unfused = DefaultDiscountRules.builder().add(new TestRule("noop", Set.of(), 0)).build();
+        assertFalse(unfused.isDefault());
+        assertEquals(expected, unfused.price(items));
+        assertEquals(expected, unfused.price(new LinkedList<>(items)));
+        assertEquals(expected, unfused.price(CompactOrder.of(items)));
+        var trace = new PricingTrace();
+        chain.price(items, trace);
+        assertEquals(trace.getAppliedRules(), unfused.getAppliedRules(items));
+    }
+
+    @DisplayName("Rules are applied after their dependencies, otherwise in insertion order")
+    @Test
+    void testDependencyOrder() {
+        var chain = RuleChain.builder()
+                .add(new TestRule("c", Set.of("b"), 0))
+                .add(new TestRule("a", Set.of(), 0))
+                .add(new TestRule("b", Set.of("a"), 0))
+                .add(new TestRule("d", Set.of(), 0))
+                .build();
+        assertEquals(List.of("a", "b", "c", "d"), chain.getRuleNames());
+    }
+
+    @DisplayName("Invalid rule chains are rejected")
+    @Test
+    void testInvalidChains() {
+        assertThrows(IllegalArgumentException.class, () -> RuleChain.builder()
+                .add(new TestRule("a", Set.of("missing"), 0)).build());
+        assertThrows(IllegalArgumentException.class, () -> RuleChain.builder()
+                .add(new TestRule("a", Set.of("b"), 0))
+                .add(new TestRule("b", Set.of("a"), 0)).build());
+        assertThrows(IllegalArgumentException.class, () -> RuleChain.builder()
+                .add(new TestRule("a", Set.of(), 0))
+                .add(new TestRule("a", Set.of(), 0)));
+    }
+
+    @DisplayName("Custom rules can be added to the default ones")
+    @Test
+    void testCustomRule() {
+        var chain = DefaultDiscountRules.builder()
+                .add(new TestRule("motherboardPromo", Set.of(), 5))
+                .build();
+        var bill = new RuleChainBillImpl(new Random(0), chain);
+        var items = List.of(new EItem(ItemType.MOTHERBOARD, "foo", 100));
+        assertEquals(95, bill.getOrderPrice(items, new User(false), LocalTime.NOON));
+    }
+
+    @DisplayName("Gifted items are not gifted twice")
+    @Test
+    void testGiftedItemsAreExcluded() {
+        var context = new PricingContext();
+        context.add(ItemType.MOUSE.ordinal(), 3);
+        context.add(ItemType.MOUSE.ordinal(), 5);
+        context.add(ItemType.KEYBOARD.ordinal(), 4);
+        assertEquals(3, context.giftCheapest(ItemType.MOUSE));
+        assertEquals(4, context.giftCheapest(ItemType.MOUSE, ItemType.KEYBOARD));
+        assertEquals(5, context.giftCheapest(ItemType.MOUSE, ItemType.KEYBOARD));
+        assertThrows(IllegalStateException.class, () -> context.giftCheapest(ItemType.MOUSE));
+    }
+}
@@ -0,0 +1,227 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShadowBillTest {
+
+    private static final LocalTime OUTSIDE_WINDOW = LocalTime.of(12, 0);
+    private static final LocalTime INSIDE_WINDOW = LocalTime.of(18, 30);
+
+    private static List<EItem> randomOrder(Random random) {
+        var items = new ArrayList<EItem>();
+        var types = ItemType.values();
+        var count = 1 + random.nextInt(30);
+        for (int i = 0; i < count; i++) {
+            items.add(new EItem(types[random.nextInt(types.length)], "item" + i, 1 + random.nextInt(20_000) / 100.0));
+        }
+        return items;
+    }
+
+    private static void awaitProcessed(ShadowBill bill, long count) throws InterruptedException {
+        var deadline = System.nanoTime() + 10_000_000_000L;
+        while (true) {
+            var stats = bill.getStats();
+            if (stats.compared() + stats.skipped() + stats.dropped() >= count) {
+                return;
+            }
+            assertTrue(System.nanoTime() < deadline, "Shadow thread didn't catch up");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitMismatches(ShadowBill bill, int count) throws InterruptedException {
+        var deadline = System.nanoTime() + 10_000_000_000L;
+        while (bill.getMismatches().size() < count) {
+            assertTrue(System.nanoTime() < deadline, "Shadow thread didn't record the mismatch");
+            Thread.sleep(1);
+        }
+    }
+
+    @DisplayName("Equivalent engines never mismatch")
+    @Test
+    void testEquivalentEngines() throws InterruptedException {
+        var random = new Random(3);
+        var reference = new BillImpl(new Random(0));
+        try (var bill = new ShadowBill(new BillImpl(new Random(0)), new SinglePassBillImpl(new Random(0)), 1,
+                4096, mismatch -> {
+                })) {
+            for (int i = 0; i < 2000; i++) {
+                var items = randomOrder(random);
+                var user = new User(false);
+                assertEquals(reference.getOrderPrice(items, user, OUTSIDE_WINDOW),
+                        bill.getOrderPrice(items, user, OUTSIDE_WINDOW));
+            }
+            awaitProcessed(bill, 2000);
+            var stats = bill.getStats();
+            assertEquals(2000, stats.sampled());
+            assertEquals(2000, stats.compared());
+            assertEquals(0, stats.mismatches());
+            assertTrue(bill.getMismatches().isEmpty());
+        }
+    }
+
+    @DisplayName("Mismatches are recorded with the full input and reported")
+    @Test
+    void testMismatch() throws InterruptedException {
+        var reported = new CopyOnWriteArrayList<ShadowBill.Mismatch>();
+        Bill candidate = (items, user, time) -> 42;
+        try (var bill = new ShadowBill(new BillImpl(new Random(0)), candidate, 1, 16, reported::add)) {
+            var items = new ArrayList<>(List.of(new EItem(ItemType.MOUSE, "mouse", 20)));
+            var user = new User(false);
+            assertEquals(20, bill.getOrderPrice(items, user, OUTSIDE_WINDOW));
+            // the recorded input doesn't change with the caller's list
+            items.clear();
+            awaitProcessed(bill, 1);
+            awaitMismatches(bill, 1);
+
+            assertEquals(1, bill.getStats().mismatches());
+            assertEquals(reported, bill.getMismatches());
+            var mismatch = bill.getMismatches().get(0);
+            assertEquals(List.of(new EItem(ItemType.MOUSE, "mouse", 20)), mismatch.items());
+            assertEquals(user, mismatch.user());
+            assertEquals(OUTSIDE_WINDOW, mismatch.purchaseTime());
+            assertEquals(20, mismatch.primaryTotal());
+            assertEquals(42, mismatch.candidateTotal());
+            assertNull(mismatch.primaryError());
+            assertFalse(mismatch.beforePromotions());
+        }
+    }
+
+    @DisplayName("Errors are compared by reason")
+    @Test
+    void testErrors() throws InterruptedException {
+        Bill lenient = (items, user, time) -> 1;
+        try (var same = new ShadowBill(new BillImpl(new Random(0)), new SinglePassBillImpl(new Random(0)), 1);
+             var different = new ShadowBill(new BillImpl(new Random(0)), lenient, 1)) {
+            var user = new User(false);
+            var exception = assertThrows(BillException.class, () -> same.getOrderPrice(List.of(), user,
+                    OUTSIDE_WINDOW));
+            assertEquals(BillException.Reason.EMPTY_ORDER, exception.getReason());
+            assertThrows(BillException.class, () -> different.getOrderPrice(List.of(), user, OUTSIDE_WINDOW));
+
+            awaitProcessed(same, 1);
+            awaitProcessed(different, 1);
+            awaitMismatches(different, 1);
+            assertEquals(0, same.getStats().mismatches());
+            assertEquals(1, different.getStats().mismatches());
+            var mismatch = different.getMismatches().get(0);
+            assertTrue(Double.isNaN(mismatch.primaryTotal()));
+            assertEquals(BillException.Reason.EMPTY_ORDER, ((BillException) mismatch.primaryError()).getReason());
+            assertEquals(1, mismatch.candidateTotal());
+        }
+    }
+
+    @DisplayName("Gift window orders don't reach the candidate's quota")
+    @Test
+    void testGiftWindow() throws InterruptedException {
+        var primary = new BillImpl(new Random(0));
+        var candidate = new BillImpl(new Random(0));
+        try (var bill = new ShadowBill(primary, candidate, 1)) {
+            var items = List.of(new EItem(ItemType.KEYBOARD, "keyboard", 50));
+            for (int i = 0; i < 20; i++) {
+                bill.getOrderPrice(items, new User(true), INSIDE_WINDOW);
+            }
+            awaitProcessed(bill, 20);
+
+            assertTrue(primary.getUnderageGiftCount() > 0);
+            assertEquals(0, candidate.getUnderageGiftCount());
+            assertEquals(20, bill.getStats().compared());
+            assertEquals(0, bill.getStats().mismatches());
+        }
+    }
+
+    @DisplayName("Gift window orders are skipped when the candidate can't price them without side effects")
+    @Test
+    void testGiftWindowSkipped() throws InterruptedException {
+        var calls = new CountDownLatch(1);
+        Bill candidate = (items, user, time) -> {
+            calls.countDown();
+            return 0;
+        };
+        try (var bill = new ShadowBill(new BillImpl(new Random(0)), candidate, 1)) {
+            bill.getOrderPrice(List.of(new EItem(ItemType.KEYBOARD, "keyboard", 50)), new User(true), INSIDE_WINDOW);
+            awaitProcessed(bill, 1);
+            assertEquals(1, bill.getStats().skipped());
+            assertEquals(0, bill.getStats().compared());
+            assertEquals(1, calls.getCount());
+        }
+    }
+
+    @DisplayName("Orders are dropped when the candidate falls behind, never sampled at rate 0")
+    @Test
+    void testDropAndSampleRate() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Bill slow = (items, user, time) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 10;
+        };
+        var items = List.of(new EItem(ItemType.KEYBOARD, "keyboard", 10));
+        try (var bill = new ShadowBill(new BillImpl(new Random(0)), slow, 1, 1, mismatch -> {
+        })) {
+            bill.getOrderPrice(items, new User(false), OUTSIDE_WINDOW);
+            started.await();
+            // one waits in the queue, the other is dropped
+            bill.getOrderPrice(items, new User(false), OUTSIDE_WINDOW);
+            bill.getOrderPrice(items, new User(false), OUTSIDE_WINDOW);
+            assertEquals(1, bill.getStats().dropped());
+            release.countDown();
+            awaitProcessed(bill, 3);
+            assertEquals(2, bill.getStats().compared());
+        }
+
+        try (var bill = new ShadowBill(new BillImpl(new Random(0)), slow, 0)) {
+            assertEquals(10, bill.getOrderPrice(items, new User(false), OUTSIDE_WINDOW));
+            assertEquals(0, bill.getStats().sampled());
+        }
+    }
+
+    @DisplayName("The idle shadow thread waits for samples without waking up, and stops on close")
+    @Test
+    void testIdleAndClose() throws InterruptedException {
+        var bill = new ShadowBill(new BillImpl(new Random(0)), new BillImpl(new Random(0)), 1);
+        var worker = bill.getWorker();
+        while (worker.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        bill.close();
+        worker.join(10_000);
+        assertFalse(worker.isAlive());
+    }
+
+    @DisplayName("Invalid sample rates are rejected")
+    @Test
+    void testInvalidSampleRate() {
+        var primary = new BillImpl(new Random(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShadowBill(primary, primary, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> new ShadowBill(primary, primary, 1.1));
+        assertThrows(IllegalArgumentException.class, () -> new ShadowBill(primary, primary, Double.NaN));
+    }
+}
@@ -0,0 +1,89 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SinglePassBillImplTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    BillImpl reference;
+    Bill bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        reference = new BillImpl(new Random(0));
+        bill = new SinglePassBillImpl(new Random(0));
+        adultUser = new User(false);
+    }
+
+    static List<EItem> randomOrder(Random random, int size, ItemType... types) {
+        var items = new ArrayList<EItem>(size);
+        for (int i = 0; i < size; i++) {
+            var type = types[random.nextInt(types.length)];
+            // few distinct cents values so that ties between mouses and keyboards happen often
+            var price = random.nextBoolean() ? 1 + random.nextInt(20) / 4.0 : random.nextDouble() * 300 + 0.01;
+            items.add(new EItem(type, "foo", price));
+        }
+        return items;
+    }
+
+    @DisplayName("Single pass engine matches BillImpl on random orders")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testMatchesReferenceOnRandomOrders(int seed) {
+        var random = new Random(seed);
+        var items = randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+        assertEquals(Double.doubleToLongBits(reference.computeOrderTotal(items)),
+                Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)));
+    }
+
+    @DisplayName("Single pass engine matches BillImpl on mouse and keyboard heavy orders")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testMatchesReferenceOnMouseKeyboardOrders(int seed) {
+        var random = new Random(seed);
+        var mice = randomOrder(random, 8 + random.nextInt(8), ItemType.MOUSE);
+        var items = new ArrayList<>(mice);
+        items.addAll(randomOrder(random, mice.size(), ItemType.KEYBOARD));
+        items.add(new EItem(ItemType.PROCESSOR, "foo", 1 + random.nextInt(100)));
+        assertEquals(Double.doubleToLongBits(reference.computeOrderTotal(items)),
+                Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)));
+    }
+
+    @DisplayName("Single pass engine handles non random access lists")
+    @Test
+    void testLinkedList() {
+        var items = new LinkedList<>(randomOrder(new Random(42), 30, ItemType.values()));
+        assertEquals(reference.computeOrderTotal(items), bill.getOrderPrice(items, adultUser, orderTime));
+    }
+
+    @DisplayName("Single pass engine keeps the order size checks")
+    @Test
+    void testOrderSizeChecks() {
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        var items = randomOrder(new Random(0), 31, ItemType.values());
+        assertThrows(BillException.class, () -> bill.getOrderPrice(items, adultUser, orderTime));
+    }
+}
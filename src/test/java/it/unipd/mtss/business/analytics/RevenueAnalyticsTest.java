@@ -0,0 +1,179 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.analytics;
+
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.DefaultDiscountRules;
+import it.unipd.mtss.business.InMemoryUnderageGiftQuota;
+import it.unipd.mtss.business.MutableClock;
+import it.unipd.mtss.business.RuleChain;
+import it.unipd.mtss.business.RuleChainBillImpl;
+import it.unipd.mtss.business.analytics.RevenueAnalytics.Metric;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RevenueAnalyticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    MutableClock clock;
+    RevenueAnalytics analytics;
+    AnalyticsBill bill;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2022-05-20T18:30:30Z"));
+        analytics = new RevenueAnalytics(clock, 60);
+        // every underage order in the gift window is gifted
+        var alwaysGift = (RandomGenerator) () -> -1L;
+        bill = new AnalyticsBill(new BillImpl((day, userId, orderId) -> alwaysGift,
+                new InMemoryUnderageGiftQuota(10, clock), clock), analytics);
+    }
+
+    private static List<EItem> items(ItemType type, int count, double price) {
+        return new ArrayList<>(Collections.nCopies(count, new EItem(type, type.name(), price)));
+    }
+
+    @DisplayName("Every rule is accounted for, per type")
+    @Test
+    void testRules() {
+        var adult = new User(false);
+        var time = LocalTime.of(18, 29, 10);
+
+        var processors = items(ItemType.PROCESSOR, 6, 200);
+        processors.add(new EItem(ItemType.PROCESSOR, "cheap", 40));
+        assertEquals(1220 * 0.9, bill.getOrderPrice(processors, adult, time), DELTA);
+
+        var peripherals = items(ItemType.MOUSE, 11, 5);
+        peripherals.addAll(items(ItemType.KEYBOARD, 11, 20));
+        assertEquals(275 - 5 - 5, bill.getOrderPrice(peripherals, adult, time), DELTA);
+
+        assertEquals(7, bill.getOrderPrice(items(ItemType.MOTHERBOARD, 1, 5), adult, time), DELTA);
+        assertEquals(0, bill.getOrderPrice(items(ItemType.MOUSE, 1, 50), new User(true), time));
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adult, time));
+
+        var rollup = analytics.lastMinutes(5);
+        assertEquals(4, rollup.getOrderCount());
+        assertEquals(1098 + 265 + 7, rollup.getAmount(Metric.REVENUE), DELTA);
+        assertEquals(1, rollup.getCount(Metric.PROCESSOR_HALF_PRICE));
+        assertEquals(20, rollup.getAmount(Metric.PROCESSOR_HALF_PRICE), DELTA);
+        assertEquals(5, rollup.getAmount(Metric.GIFTED_MOUSE), DELTA);
+        assertEquals(5, rollup.getAmount(Metric.GIFTED_MOUSE_OR_KEYBOARD), DELTA);
+        assertEquals(1, rollup.getCount(Metric.BULK_DISCOUNT));
+        assertEquals(122, rollup.getAmount(Metric.BULK_DISCOUNT), DELTA);
+        assertEquals(2, rollup.getAmount(Metric.SMALL_ORDER_COMMISSION), DELTA);
+        assertEquals(1, rollup.getCount(Metric.UNDERAGE_GIFT));
+        assertEquals(50, rollup.getAmount(Metric.UNDERAGE_GIFT), DELTA);
+        assertEquals(0, rollup.getCount(Metric.OTHER_PROMOTIONS));
+
+        assertEquals(7, rollup.getItemCount(ItemType.PROCESSOR));
+        assertEquals(1240, rollup.getSales(ItemType.PROCESSOR), DELTA);
+        assertEquals(20, rollup.getDiscount(ItemType.PROCESSOR), DELTA);
+        assertEquals(12, rollup.getItemCount(ItemType.MOUSE));
+        assertEquals(105, rollup.getSales(ItemType.MOUSE), DELTA);
+        assertEquals(10, rollup.getDiscount(ItemType.MOUSE), DELTA);
+        assertEquals(0, rollup.getDiscount(ItemType.KEYBOARD), DELTA);
+    }
+
+    @DisplayName("Orders are bucketed by minute of purchase")
+    @Test
+    void testWindows() {
+        var adult = new User(false);
+        var order = items(ItemType.KEYBOARD, 1, 20);
+        bill.getOrderPrice(order, adult, LocalTime.of(18, 30, 5));
+        bill.getOrderPrice(order, adult, LocalTime.of(18, 29, 59));
+        bill.getOrderPrice(order, adult, LocalTime.of(18, 0, 0));
+
+        assertEquals(1, analytics.lastMinutes(1).getOrderCount());
+        assertEquals(2, analytics.lastMinutes(2).getOrderCount());
+        assertEquals(3, analytics.lastHours(1).getOrderCount());
+        var day = LocalDateTime.of(2022, 5, 20, 18, 0);
+        assertEquals(1, analytics.between(day, day.plusMinutes(1)).getOrderCount());
+        assertEquals(3, analytics.between(day, day.plusHours(1)).getOrderCount());
+
+        // out of the retained hour
+        bill.getOrderPrice(order, adult, LocalTime.of(17, 30, 0));
+        assertEquals(1, analytics.getLateCount());
+
+        clock.advance(Duration.ofMinutes(30));
+        assertEquals(2, analytics.lastHours(1).getOrderCount());
+        clock.advance(Duration.ofHours(1));
+        assertEquals(0, analytics.lastHours(1).getOrderCount());
+        // reusing the slots of the old minutes
+        bill.getOrderPrice(order, adult, LocalTime.of(20, 0, 0));
+        assertEquals(1, analytics.lastHours(1).getOrderCount());
+        assertEquals(20, analytics.lastHours(1).getAmount(Metric.REVENUE), DELTA);
+    }
+
+    @DisplayName("Orders purchased before midnight and priced after go to the previous day")
+    @Test
+    void testMidnight() {
+        clock = new MutableClock(Instant.parse("2022-05-21T00:00:30Z"));
+        analytics = new RevenueAnalytics(clock);
+        bill = new AnalyticsBill(new BillImpl(new Random(0)), analytics);
+        bill.getOrderPrice(items(ItemType.KEYBOARD, 1, 20), new User(false), LocalTime.of(23, 59, 50));
+
+        assertEquals(1, analytics.lastMinutes(2).getOrderCount());
+        var minute = LocalDateTime.of(2022, 5, 20, 23, 59);
+        assertEquals(1, analytics.between(minute, minute.plusMinutes(1)).getOrderCount());
+    }
+
+    @DisplayName("Concurrent recording loses nothing")
+    @Test
+    void testConcurrent() throws InterruptedException {
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var thread = new Thread(() -> {
+                var order = items(ItemType.KEYBOARD, 1, 20);
+                for (int i = 0; i < 5000; i++) {
+                    bill.getOrderPrice(order, new User(false), LocalTime.of(18, 30 - i % 30, 0));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        var rollup = analytics.lastHours(1);
+        assertEquals(20_000, rollup.getOrderCount());
+        assertEquals(400_000, rollup.getAmount(Metric.REVENUE), DELTA);
+        assertEquals(20_000, rollup.getItemCount(ItemType.KEYBOARD));
+    }
+
+    @DisplayName("The retained window can't be empty")
+    @Test
+    void testInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new RevenueAnalytics(clock, 0));
+    }
+
+    @DisplayName("Engines whose orders can't be explained are rejected")
+    @Test
+    void testEngineWithoutReceipts() {
+        var rules = RuleChain.builder().add(DefaultDiscountRules.MOUSE_GIFT).build();
+        var engine = new RuleChainBillImpl(new Random(0), rules);
+        assertThrows(IllegalArgumentException.class, () -> new AnalyticsBill(engine, analytics));
+        var result = engine.getOrderPricing(items(ItemType.MOUSE, 1, 5), new User(false), LocalTime.of(18, 0));
+        assertThrows(IllegalArgumentException.class, () -> analytics.record(result, LocalTime.of(18, 0)));
+    }
+}
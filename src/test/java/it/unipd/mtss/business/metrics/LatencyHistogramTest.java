@@ -0,0 +1,64 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @DisplayName("Buckets cover values with less than 1/32 relative error")
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 63, 64, 65, 127, 128, 1000, 12_345, 1_000_000, 987_654_321, Long.MAX_VALUE / 2})
+    void testBucketPrecision(long value) {
+        var index = LatencyHistogram.bucketIndex(value);
+        var highest = LatencyHistogram.highestEquivalentValue(index);
+        assertTrue(highest >= value);
+        assertTrue(highest - value <= value / 32);
+        if (index > 0) {
+            assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < value);
+        }
+    }
+
+    @DisplayName("Percentiles are read from the recorded values")
+    @Test
+    void testPercentiles() {
+        var histogram = new LatencyHistogram(1_000_000);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        var snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getTotalCount());
+        assertEquals(500, snapshot.getValueAtPercentile(50), 500 / 32);
+        assertEquals(990, snapshot.getValueAtPercentile(99), 990 / 32);
+        assertEquals(1000, snapshot.getMaxValue(), 1000 / 32);
+    }
+
+    @DisplayName("Values are clamped to the trackable range")
+    @Test
+    void testClamping() {
+        var histogram = new LatencyHistogram(1000);
+        histogram.record(-5);
+        histogram.record(1_000_000);
+        var snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(1000, snapshot.getMaxValue(), 1000 / 32);
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getTotalCount());
+        assertEquals(0, histogram.snapshot().getMaxValue());
+    }
+
+    @DisplayName("Too small histograms are rejected")
+    @Test
+    void testMinimumRange() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(10));
+    }
+}
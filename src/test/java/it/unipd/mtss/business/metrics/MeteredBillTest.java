@@ -0,0 +1,167 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business.metrics;
+
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.DefaultDiscountRules;
+import it.unipd.mtss.business.DiscountRule;
+import it.unipd.mtss.business.FlashDiscountPromotion;
+import it.unipd.mtss.business.PricingContext;
+import it.unipd.mtss.business.PromotionSchedule;
+import it.unipd.mtss.business.RuleChain;
+import it.unipd.mtss.business.RuleChainBillImpl;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import it.unipd.mtss.model.exception.BillException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeteredBillTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    MeteredBill bill;
+    BillMetrics metrics;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        bill = new MeteredBill(new BillImpl(new Random() {
+            @Override
+            public boolean nextBoolean() {
+                return true;
+            }
+        }));
+        metrics = bill.getMetrics();
+        adultUser = new User(false);
+    }
+
+    private static List<EItem> items(ItemType type, int count, double price) {
+        return IntStream.range(0, count).mapToObj(i -> new EItem(type, "foo", price)).toList();
+    }
+
+    @DisplayName("Rule hits are counted per rule")
+    @Test
+    void testRuleHits() {
+        var processors = items(ItemType.PROCESSOR, 6, 300);
+        var mouseKeyboard = Stream.concat(items(ItemType.MOUSE, 11, 5).stream(),
+                items(ItemType.KEYBOARD, 11, 5).stream()).toList();
+        assertEquals(1485, bill.getOrderPrice(processors, adultUser, orderTime));
+        bill.getOrderPrice(mouseKeyboard, adultUser, orderTime);
+        bill.getOrderPrice(items(ItemType.MOTHERBOARD, 1, 5), adultUser, orderTime);
+
+        var hits = metrics.getRuleHits();
+        assertEquals(1L, hits.get("PROCESSOR_HALF_PRICE"));
+        assertEquals(1L, hits.get("MOUSE_GIFT"));
+        assertEquals(1L, hits.get("MOUSE_KEYBOARD_GIFT"));
+        assertEquals(1L, hits.get("BULK_DISCOUNT"));
+        assertEquals(1L, hits.get("SMALL_ORDER_COMMISSION_FEE"));
+        assertEquals(3, metrics.getPricedOrders());
+        assertEquals(3, metrics.getLatencySnapshot().getTotalCount());
+    }
+
+    @DisplayName("Rejected orders are counted by reason")
+    @Test
+    void testRejections() {
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        assertThrows(BillException.class,
+                () -> bill.getOrderPrice(items(ItemType.MOUSE, 31, 1), adultUser, orderTime));
+        assertThrows(BillException.class,
+                () -> bill.getOrderPrice(items(ItemType.MOUSE, 40, 1), adultUser, orderTime));
+        assertEquals(1, metrics.getEmptyOrderRejections());
+        assertEquals(2, metrics.getTooManyItemsRejections());
+        assertEquals(0, metrics.getPricedOrders());
+    }
+
+    @DisplayName("Underage gifts are counted")
+    @Test
+    void testUnderageGifts() {
+        var items = items(ItemType.MOUSE, 1, 20);
+        bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30));
+        bill.getOrderPrice(items, new User(true), LocalTime.of(18, 30));
+        assertEquals(2, metrics.getUnderageGiftsGranted());
+        assertEquals(2, metrics.getUnderageGiftsToday());
+        assertEquals(0L, metrics.getRuleHits().get("SMALL_ORDER_COMMISSION_FEE"));
+    }
+
+    @DisplayName("Free orders are only counted as gifts when the underage gift applied")
+    @Test
+    void testFreeOrderIsNotAGift() {
+        var engine = new BillImpl(new Random(0));
+        engine.setPromotionSchedule(PromotionSchedule.of(engine.getUnderageGift(),
+                new FlashDiscountPromotion("FREE", LocalTime.of(12, 0), LocalTime.of(13, 0), 1)));
+        var metered = new MeteredBill(engine);
+        assertEquals(0, metered.getOrderPrice(items(ItemType.MOUSE, 1, 20), adultUser, orderTime));
+        assertEquals(1, metered.getMetrics().getPricedOrders());
+        assertEquals(0, metered.getMetrics().getUnderageGiftsGranted());
+    }
+
+    @DisplayName("Rule hits are reported with the rules of the metered engine")
+    @Test
+    void testEngineRules() {
+        DiscountRule flatFee = new DiscountRule() {
+            @Override
+            public String name() {
+                return "FLAT_FEE";
+            }
+
+            @Override
+            public double apply(double orderTotal, PricingContext context) {
+                return orderTotal + 1;
+            }
+        };
+        var metered = new MeteredBill(new RuleChainBillImpl(new Random(0),
+                RuleChain.builder().add(DefaultDiscountRules.MOUSE_GIFT).add(flatFee).build()));
+        assertEquals(21, metered.getOrderPrice(items(ItemType.MOUSE, 1, 20), adultUser, orderTime));
+        var hits = metered.getMetrics().getRuleHits();
+        assertEquals(List.of("MOUSE_GIFT", "FLAT_FEE"), List.copyOf(hits.keySet()));
+        assertEquals(0L, hits.get("MOUSE_GIFT"));
+        assertEquals(1L, hits.get("FLAT_FEE"));
+    }
+
+    @DisplayName("Disabled metrics record nothing")
+    @Test
+    void testDisabled() {
+        metrics.setEnabled(false);
+        bill.getOrderPrice(items(ItemType.MOUSE, 1, 20), adultUser, orderTime);
+        assertThrows(BillException.class, () -> bill.getOrderPrice(List.of(), adultUser, orderTime));
+        assertEquals(0, metrics.getPricedOrders());
+        assertEquals(0, metrics.getEmptyOrderRejections());
+        metrics.setEnabled(true);
+        bill.getOrderPrice(items(ItemType.MOUSE, 1, 20), adultUser, orderTime);
+        assertEquals(1, metrics.getPricedOrders());
+        metrics.reset();
+        assertEquals(0, metrics.getPricedOrders());
+        assertEquals(0, metrics.getLatencyMaxNanos());
+    }
+
+    @DisplayName("Metrics are readable through JMX")
+    @Test
+    void testJmx() throws Exception {
+        bill.getOrderPrice(items(ItemType.MOUSE, 1, 20), adultUser, orderTime);
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "PricedOrders"));
+            assertTrue((Long) server.getAttribute(name, "LatencyP99Nanos") >= 0);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
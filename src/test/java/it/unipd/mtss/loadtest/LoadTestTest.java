@@ -0,0 +1,135 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.Bill;
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.GiftRandomSource;
+import it.unipd.mtss.business.InMemoryUnderageGiftQuota;
+import it.unipd.mtss.business.SinglePassBillImpl;
+import it.unipd.mtss.business.UnderageGiftQuota;
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+
+    @DisplayName("Every order is priced, revenue matches a sequential run")
+    @Test
+    void testPricesEveryOrder() throws InterruptedException {
+        // adults only, so no gift is drawn and the revenue doesn't depend on the interleaving
+        var spec = OrderStreamSpec.defaults().withUnderageShare(0);
+        var orders = new OrderGenerator(spec, 5).generate(2000);
+        var reference = new BillImpl(new Random(0));
+        var expected = 0.0;
+        for (var order : orders) {
+            expected += reference.getOrderPrice(order.items(), order.user(), order.purchaseTime());
+        }
+
+        var report = new LoadTest(new BillImpl(new Random(0)), 3, 50_000).run(orders);
+        assertEquals(2000, report.orders());
+        assertEquals(0, report.errors());
+        assertEquals(expected, report.revenue());
+        assertEquals(2000, report.latency().getTotalCount());
+        assertEquals(2000, report.serviceTime().getTotalCount());
+        assertTrue(report.throughput() > 0);
+        assertTrue(report.format().contains("p99.9"));
+    }
+
+    @DisplayName("Replaying a recorded stream draws the same underage gifts")
+    @Test
+    void testReplayDrawsSameGifts(@TempDir Path directory) throws IOException, InterruptedException {
+        var orders = new OrderGenerator(OrderStreamSpec.defaults().withUnderageShare(1).withUserCount(20), 3)
+                .generate(500);
+        var file = directory.resolve("orders.bin");
+        OrderStreams.record(file, orders);
+
+        var recordingBill = new SinglePassBillImpl(GiftRandomSource.deterministic(7), quota(), CLOCK);
+        var recorded = new LoadTest(recordingBill, 1, 50_000).run(orders);
+        assertTrue(recordingBill.getUnderageGiftCount() > 0);
+        // a replay on another engine, fed with columnar orders
+        var columnarBill = new BillImpl(GiftRandomSource.deterministic(7), quota(), CLOCK) {
+            @Override
+            public boolean prefersCompactOrders() {
+                return true;
+            }
+        };
+        var replayed = new LoadTest(columnarBill, 1, 50_000).run(OrderStreams.replay(file));
+        assertEquals(recorded.revenue(), replayed.revenue());
+    }
+
+    @DisplayName("Rejected orders are counted as errors")
+    @Test
+    void testErrors() throws InterruptedException {
+        var order = new Order(List.of(), new User(false), LocalTime.NOON);
+        var report = new LoadTest(new BillImpl(new Random(0)), 1, 1000).run(List.of(order, order));
+        assertEquals(2, report.errors());
+        assertEquals(0, report.revenue());
+    }
+
+    @DisplayName("Latency includes the wait behind a stalled order")
+    @Test
+    void testCoordinatedOmission() throws InterruptedException {
+        var stallNanos = TimeUnit.MILLISECONDS.toNanos(200);
+        var first = new boolean[]{true};
+        Bill stalling = (items, user, time) -> {
+            if (first[0]) {
+                first[0] = false;
+                sleep(stallNanos);
+            }
+            return 1;
+        };
+        var order = new Order(List.of(new EItem(ItemType.MOUSE, "mouse", 1)), new User(false), LocalTime.NOON);
+        // 100 orders due every millisecond on a single thread, the first one stalls for 200ms
+        var report = new LoadTest(stalling, 1, 1000).run(Collections.nCopies(100, order));
+
+        // the orders that queued up behind the stall are charged for it, their service time is not
+        assertTrue(report.latency().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(report.serviceTime().getValueAtPercentile(50) < TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(report.serviceTime().getMaxValue() >= stallNanos);
+    }
+
+    @DisplayName("Invalid configurations are rejected")
+    @Test
+    void testInvalidConfiguration() {
+        var bill = new BillImpl(new Random(0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadTest(bill, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new LoadTest(bill, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadTest(bill, 1, Double.NaN));
+    }
+
+    private static UnderageGiftQuota quota() {
+        return new InMemoryUnderageGiftQuota(BillImpl.MAX_UNDERAGE_GIFTS_PER_DAY, CLOCK);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
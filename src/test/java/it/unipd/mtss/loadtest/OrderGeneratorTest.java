@@ -0,0 +1,79 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.model.EItem;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.Order;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderGeneratorTest {
+
+    @DisplayName("Same seed, same stream")
+    @Test
+    void testDeterministic() {
+        var first = new OrderGenerator(OrderStreamSpec.defaults(), 3).generate(1000);
+        var second = new OrderGenerator(OrderStreamSpec.defaults(), 3).generate(1000);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(i, first.get(i).id());
+            assertEquals(first.get(i).items(), second.get(i).items());
+            assertEquals(first.get(i).purchaseTime(), second.get(i).purchaseTime());
+            assertEquals(first.get(i).user().isUnderage(), second.get(i).user().isUnderage());
+        }
+    }
+
+    @DisplayName("Orders follow the spec")
+    @Test
+    void testFollowsSpec() {
+        var hours = new double[24];
+        hours[18] = 1;
+        var spec = OrderStreamSpec.defaults()
+                .withItems(5, 10)
+                .withTypeWeights(0, 1, 3, 0)
+                .withPrices(2, 3)
+                .withUnderageShare(1)
+                .withHourlyWeights(hours)
+                .withUserCount(7);
+        var users = new HashSet<Integer>();
+        var mouses = 0;
+        var items = 0;
+        for (Order order : new OrderGenerator(spec, 1).generate(2000)) {
+            assertTrue(order.items().size() >= 5 && order.items().size() <= 10);
+            assertEquals(18, order.purchaseTime().getHour());
+            assertTrue(order.user().isUnderage());
+            users.add(order.user().getId());
+            for (EItem item : order.items()) {
+                assertTrue(item.itemType() == ItemType.MOTHERBOARD || item.itemType() == ItemType.MOUSE);
+                assertTrue(item.price() >= 2 && item.price() <= 3);
+                assertEquals(item.price(), Math.round(item.price() * 100) / 100.0);
+                mouses += item.itemType() == ItemType.MOUSE ? 1 : 0;
+                items++;
+            }
+        }
+        assertEquals(7, users.size());
+        assertEquals(0.75, (double) mouses / items, 0.02);
+    }
+
+    @DisplayName("Invalid specs are rejected")
+    @Test
+    void testInvalidSpec() {
+        var spec = OrderStreamSpec.defaults();
+        assertThrows(IllegalArgumentException.class, () -> spec.withItems(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> spec.withItems(1, 31));
+        assertThrows(IllegalArgumentException.class, () -> spec.withPrices(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> spec.withUnderageShare(1.5));
+        assertThrows(IllegalArgumentException.class, () -> spec.withTypeWeights(1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> spec.withTypeWeights(0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> spec.withHourlyWeights(new double[24]));
+        assertThrows(IllegalArgumentException.class, () -> spec.withUserCount(0));
+    }
+}
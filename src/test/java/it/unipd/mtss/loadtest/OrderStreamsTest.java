@@ -0,0 +1,79 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.loadtest;
+
+import it.unipd.mtss.business.OrderFileWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OrderStreamsTest {
+
+    @TempDir
+    Path directory;
+
+    @DisplayName("Replayed stream matches the recorded one")
+    @Test
+    void testRecordReplay() throws IOException {
+        var orders = new OrderGenerator(OrderStreamSpec.defaults().withUserCount(50), 9).generate(5000);
+        var file = directory.resolve("orders.bin");
+        OrderStreams.record(file, orders);
+
+        var replayed = OrderStreams.replay(file);
+        assertEquals(orders.size(), replayed.size());
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+            var replay = replayed.get(i);
+            assertEquals(order.id(), replay.id());
+            assertEquals(order.items(), replay.items());
+            assertEquals(order.purchaseTime(), replay.purchaseTime());
+            assertEquals(order.user().getId(), replay.user().getId());
+            assertEquals(order.user().isUnderage(), replay.user().isUnderage());
+        }
+        // orders of the same recorded user share the replayed user
+        for (int i = 1; i < orders.size(); i++) {
+            if (orders.get(i).user() == orders.get(0).user()) {
+                assertSame(replayed.get(0).user(), replayed.get(i).user());
+            }
+        }
+    }
+
+    @DisplayName("Files that are not order streams are rejected")
+    @Test
+    void testInvalidFile() throws IOException {
+        var file = directory.resolve("bad.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6});
+        assertThrows(IOException.class, () -> OrderStreams.replay(file));
+
+        var truncated = directory.resolve("truncated.bin");
+        OrderStreams.record(truncated, new OrderGenerator(OrderStreamSpec.defaults(), 1).generate(3));
+        var bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> OrderStreams.replay(truncated));
+
+        var badType = directory.resolve("type.bin");
+        try (var out = new DataOutputStream(Files.newOutputStream(badType))) {
+            out.writeInt(OrderFileWriter.MAGIC);
+            out.writeShort(OrderFileWriter.VERSION);
+            out.writeInt(1);
+            out.writeByte(0);
+            out.writeInt(0);
+            out.writeShort(1);
+            out.writeByte(42);
+            out.writeDouble(1);
+        }
+        assertThrows(IOException.class, () -> OrderStreams.replay(badType));
+    }
+}
@@ -0,0 +1,69 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import it.unipd.mtss.model.exception.ItemException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactOrderTest {
+
+    @DisplayName("Order built from items keeps types and prices in order")
+    @Test
+    void testOfItems() {
+        var items = List.of(
+                new EItem(ItemType.MOUSE, "foo", 10),
+                new EItem(ItemType.PROCESSOR, "bar", 250.5),
+                new EItem(ItemType.KEYBOARD, "baz", 30)
+        );
+        var order = CompactOrder.of(items);
+        assertEquals(3, order.size());
+        assertEquals(ItemType.PROCESSOR, order.itemType(1));
+        assertEquals(250.5, order.price(1));
+        assertEquals(ItemType.PROCESSOR.ordinal(), order.typeOrdinals()[1]);
+        assertEquals(items.stream().map(EItem::price).toList(),
+                order.toItems().stream().map(EItem::price).toList());
+    }
+
+    @DisplayName("Order grows past its initial capacity")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 100, step = 7)
+    void testGrowth(int count) {
+        var order = new CompactOrder(1);
+        for (int i = 0; i < count; i++) {
+            order.add(ItemType.MOTHERBOARD, i + 1);
+        }
+        assertEquals(count, order.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, order.price(i));
+        }
+    }
+
+    @DisplayName("Cleared order can be refilled")
+    @Test
+    void testClear() {
+        var order = new CompactOrder();
+        order.add(ItemType.MOUSE, 5);
+        order.clear();
+        assertEquals(0, order.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> order.price(0));
+        order.add(ItemType.KEYBOARD, 7);
+        assertEquals(ItemType.KEYBOARD, order.itemType(0));
+    }
+
+    @DisplayName("Negative prices should be rejected")
+    @ParameterizedTest
+    @IntRangeSource(from = -1000, to = 1, step = 100)
+    void testNegativePrice(int price) {
+        assertThrows(ItemException.class, () -> new CompactOrder().add(ItemType.MOUSE, price));
+    }
+}
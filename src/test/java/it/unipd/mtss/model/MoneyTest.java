@@ -0,0 +1,69 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTest {
+
+    @DisplayName("Amounts are converted to the nearest millicent")
+    @ParameterizedTest
+    @CsvSource(value = {
+            "12.34,1234000",
+            "0.1,10000",
+            "1000.00001,100000001",
+            "0.000004,0",
+            "0.000005,1"
+    })
+    void testToMillicents(double amount, long millicents) {
+        assertEquals(millicents, Money.toMillicents(amount));
+        assertEquals(millicents, new EItem(ItemType.MOUSE, "foo", amount).priceInMillicents());
+    }
+
+    @DisplayName("Amounts that don't fit millicents are rejected")
+    @Test
+    void testToMillicentsOutOfRange() {
+        assertThrows(ArithmeticException.class, () -> Money.toMillicents(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> Money.toMillicents(Double.POSITIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.toMillicents(Double.NEGATIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.toMillicents(1e14));
+        assertThrows(ArithmeticException.class, () -> Money.toMillicents(-1e14));
+        assertEquals(9_000_000_000_000_000_000L, Money.toMillicents(9e13));
+    }
+
+    @DisplayName("Division rounds half to even")
+    @ParameterizedTest
+    @CsvSource(value = {
+            "10,4,2",
+            "14,4,4",
+            "15,2,8",
+            "13,2,6",
+            "11,3,4",
+            "-15,2,-8",
+            "-13,2,-6",
+            "-11,3,-4"
+    })
+    void testDivideHalfEven(long dividend, long divisor, long expected) {
+        assertEquals(expected, Money.divideHalfEven(dividend, divisor));
+    }
+
+    @DisplayName("Division by non positive numbers is rejected")
+    @Test
+    void testDivideByZero() {
+        assertThrows(IllegalArgumentException.class, () -> Money.divideHalfEven(1, 0));
+    }
+
+    @DisplayName("Millicents are converted back to amounts")
+    @Test
+    void testToDouble() {
+        assertEquals(12.34, Money.toDouble(1234000));
+    }
+}
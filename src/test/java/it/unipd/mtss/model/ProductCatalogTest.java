@@ -0,0 +1,146 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.model.exception.BillException;
+import it.unipd.mtss.model.exception.ItemException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProductCatalogTest {
+
+    @DisplayName("Products get sequential ids, past the initial capacity")
+    @Test
+    void testRegister() {
+        var catalog = new ProductCatalog();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, catalog.register(ItemType.values()[i % 4], "product" + i, i + 1));
+        }
+        var snapshot = catalog.snapshot();
+        assertEquals(200, snapshot.size());
+        assertEquals(200, snapshot.version());
+        assertEquals(ItemType.KEYBOARD, snapshot.itemType(123));
+        assertEquals("product123", snapshot.name(123));
+        assertEquals(124, snapshot.price(123));
+        assertEquals(new EItem(ItemType.KEYBOARD, "product123", 124), snapshot.toItem(123));
+    }
+
+    @DisplayName("Price updates don't change older snapshots")
+    @Test
+    void testCopyOnWrite() {
+        var catalog = new ProductCatalog();
+        var mouse = catalog.register(ItemType.MOUSE, "mouse", 10);
+        var keyboard = catalog.register(ItemType.KEYBOARD, "keyboard", 20);
+        var before = catalog.snapshot();
+
+        var after = catalog.updatePrices(new int[]{mouse, keyboard}, new double[]{11, 21});
+        assertSame(after, catalog.snapshot());
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(10, before.price(mouse));
+        assertEquals(20, before.price(keyboard));
+        assertEquals(11, after.price(mouse));
+        assertEquals(21, after.price(keyboard));
+
+        // products registered later are not in older snapshots
+        var processor = catalog.register(ItemType.PROCESSOR, "processor", 100);
+        assertThrows(ItemException.class, () -> after.price(processor));
+        assertEquals(100, catalog.snapshot().price(processor));
+        assertEquals(12, catalog.updatePrice(mouse, 12).price(mouse));
+    }
+
+    @DisplayName("Invalid products and prices are rejected")
+    @Test
+    void testInvalid() {
+        var catalog = new ProductCatalog();
+        var mouse = catalog.register(ItemType.MOUSE, "mouse", 10);
+        assertThrows(ItemException.class, () -> catalog.register(ItemType.MOUSE, "free", 0));
+        assertThrows(ItemException.class, () -> catalog.register(ItemType.MOUSE, "nan", Double.NaN));
+        assertThrows(ItemException.class, () -> catalog.updatePrice(mouse, -1));
+        assertThrows(ItemException.class, () -> catalog.updatePrice(1, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.updatePrices(new int[]{mouse}, new double[]{1, 2}));
+        // a rejected batch changes nothing
+        assertThrows(ItemException.class, () -> catalog.updatePrices(new int[]{mouse, 7}, new double[]{5, 5}));
+        assertEquals(10, catalog.snapshot().price(mouse));
+        assertEquals(1, catalog.snapshot().version());
+        assertThrows(ItemException.class, () -> catalog.snapshot().toCompactOrder(new int[]{mouse, -1}));
+    }
+
+    @DisplayName("Orders of product ids get the totals of the same items")
+    @Test
+    void testPricing() {
+        var random = new Random(5);
+        var catalog = new ProductCatalog();
+        for (int i = 0; i < 100; i++) {
+            catalog.register(ItemType.values()[random.nextInt(4)], "product" + i, 1 + random.nextInt(20_000) / 100.0);
+        }
+        var bill = new BillImpl(new Random(0));
+        var user = new User(false);
+        var time = LocalTime.of(9, 0);
+        var snapshot = catalog.snapshot();
+        for (int i = 0; i < 1000; i++) {
+            var ids = random.ints(1 + random.nextInt(30), 0, 100).toArray();
+            var items = new ArrayList<EItem>();
+            for (var id : ids) {
+                items.add(snapshot.toItem(id));
+            }
+            assertEquals(bill.getOrderPrice(items, user, time), bill.getOrderPrice(snapshot, ids, user, time));
+        }
+        var exception = assertThrows(BillException.class,
+                () -> bill.getOrderPrice(snapshot, new int[0], user, time));
+        assertEquals(BillException.Reason.EMPTY_ORDER, exception.getReason());
+    }
+
+    @DisplayName("Readers never see half applied updates")
+    @Test
+    void testConcurrentReads() throws InterruptedException {
+        var catalog = new ProductCatalog();
+        var ids = new int[50];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = catalog.register(ItemType.MOUSE, "mouse" + i, 1);
+        }
+        var done = new AtomicBoolean();
+        var failure = new AtomicReference<String>();
+        var readers = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var reader = new Thread(() -> {
+                while (!done.get()) {
+                    var snapshot = catalog.snapshot();
+                    var price = snapshot.price(0);
+                    for (var id : ids) {
+                        if (snapshot.price(id) != price) {
+                            failure.set("Snapshot " + snapshot.version() + " mixes prices");
+                        }
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        var prices = new double[ids.length];
+        for (int version = 2; version < 2000; version++) {
+            Arrays.fill(prices, version);
+            catalog.updatePrices(ids, prices);
+        }
+        done.set(true);
+        for (var reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,29 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserTest {
+
+    @DisplayName("Users created after a restored one get ids past it")
+    @Test
+    void testRestore() {
+        var id = new User(false).getId() + 1000;
+        var restored = User.restore(id, true);
+        assertEquals(id, restored.getId());
+        assertTrue(restored.isUnderage());
+        assertTrue(new User(false).getId() > id);
+
+        // restoring an older id doesn't move the generator back
+        var next = new User(false).getId();
+        User.restore(1, false);
+        assertTrue(new User(false).getId() > next);
+    }
+}
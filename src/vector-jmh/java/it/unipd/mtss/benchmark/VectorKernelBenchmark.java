@@ -0,0 +1,93 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.benchmark;
+
+import it.unipd.mtss.business.BillImpl;
+import it.unipd.mtss.business.InMemoryUnderageGiftQuota;
+import it.unipd.mtss.business.VectorBillImpl;
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The vector kernel of {@link VectorBillImpl} against its scalar one, on single orders of {@code size} lines
+ * and on batches of 30 items orders.
+ * <p>
+ * Only compiled when the {@code vector} profile is active too, e.g. {@code mvn -P benchmark,vector verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorKernelBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"30", "1024", "65536"})
+    public int size;
+
+    private CompactOrder order;
+    private VectorBillImpl bill;
+    private CompactOrder[] batch;
+    private final User user = new User(false);
+    private final LocalTime purchaseTime = LocalTime.of(12, 0);
+
+    @Setup
+    public void setUp() {
+        final var random = new Random(42);
+        order = new CompactOrder();
+        for (int i = 0; i < size; i++) {
+            order.add(ItemType.values()[random.nextInt(ItemType.values().length)],
+                    (100 + random.nextInt(39_901)) / 100.0);
+        }
+
+        bill = new VectorBillImpl(new Random(42),
+                new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()), kernel.equals("vector"));
+        batch = new CompactOrder[BATCH_SIZE];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new CompactOrder();
+            for (int j = 0; j < BillImpl.MAX_ITEM_COUNT; j++) {
+                batch[i].add(ItemType.values()[random.nextInt(ItemType.values().length)],
+                        (100 + random.nextInt(39_901)) / 100.0);
+            }
+        }
+    }
+
+    @Benchmark
+    public double array() {
+        return bill.getRulesTotal(order);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double batch() {
+        var total = 0.0;
+        for (final var batchOrder : batch) {
+            total += bill.getOrderPrice(batchOrder, user, purchaseTime);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,109 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.ItemType;
+import it.unipd.mtss.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junitpioneer.jupiter.params.IntRangeSource;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VectorBillImplTest {
+
+    LocalTime orderTime = LocalTime.of(12, 0);
+
+    BillImpl reference;
+    VectorBillImpl bill;
+    User adultUser;
+
+    @BeforeEach
+    void setUp() {
+        reference = new BillImpl(new Random(0));
+        bill = new VectorBillImpl(new Random(0));
+        adultUser = new User(false);
+    }
+
+    @DisplayName("Tests run with the Vector API enabled")
+    @Test
+    void testVectorized() {
+        assertTrue(VectorBillImpl.isVectorApiAvailable());
+        assertTrue(bill.isVectorized());
+        var scalar = new VectorBillImpl(new Random(0),
+                new InMemoryUnderageGiftQuota(10, Clock.systemDefaultZone()), false);
+        assertFalse(scalar.isVectorized());
+        var order = CompactOrder.of(SinglePassBillImplTest.randomOrder(new Random(0), 30, ItemType.values()));
+        assertEquals(bill.getOrderPrice(order, adultUser, orderTime),
+                scalar.getOrderPrice(order, adultUser, orderTime));
+    }
+
+    @DisplayName("Vector engine matches BillImpl on random orders")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testMatchesReferenceOnRandomOrders(int seed) {
+        var random = new Random(seed);
+        var items = SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+        assertEquals(Double.doubleToLongBits(reference.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime)));
+    }
+
+    @DisplayName("Receipts of the vector engine report the decisions of BillImpl")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 50)
+    void testReceiptMatchesReference(int seed) {
+        var random = new Random(seed);
+        var items = SinglePassBillImplTest.randomOrder(random, 1 + random.nextInt(30), ItemType.values());
+        var expected = reference.getOrderPricing(items, adultUser, orderTime).getReceipt().orElseThrow();
+        var result = bill.getOrderPricing(items, adultUser, orderTime);
+        assertEquals(Double.doubleToLongBits(bill.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(result.getTotal()));
+        var receipt = result.getReceipt().orElseThrow();
+        assertEquals(expected.halvedProcessor(), receipt.halvedProcessor());
+        assertEquals(expected.giftedMouse(), receipt.giftedMouse());
+        assertEquals(expected.giftedMouseOrKeyboard(), receipt.giftedMouseOrKeyboard());
+        assertEquals(expected.bulkDiscount(), receipt.bulkDiscount());
+        assertEquals(expected.smallOrderCommission(), receipt.smallOrderCommission());
+    }
+
+    @DisplayName("Vector engine matches BillImpl on mouse and keyboard heavy orders")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 500)
+    void testMatchesReferenceOnMouseKeyboardOrders(int seed) {
+        var random = new Random(seed);
+        var mice = SinglePassBillImplTest.randomOrder(random, 8 + random.nextInt(8), ItemType.MOUSE);
+        var items = new ArrayList<>(mice);
+        items.addAll(SinglePassBillImplTest.randomOrder(random, mice.size(), ItemType.KEYBOARD));
+        items.add(SinglePassBillImplTest.randomOrder(random, 1, ItemType.PROCESSOR).get(0));
+        assertEquals(Double.doubleToLongBits(reference.getOrderPrice(items, adultUser, orderTime)),
+                Double.doubleToLongBits(bill.getOrderPrice(CompactOrder.of(items), adultUser, orderTime)));
+    }
+
+    @DisplayName("Vector kernel matches the scalar kernel on large arrays")
+    @ParameterizedTest
+    @IntRangeSource(from = 0, to = 50)
+    void testKernelOnLargeArrays(int seed) {
+        var random = new Random(seed);
+        var size = random.nextInt(5000);
+        var types = new byte[size];
+        var prices = new double[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = (byte) random.nextInt(ItemType.values().length);
+            prices[i] = 1 + random.nextInt(400);
+        }
+        assertEquals(Double.doubleToLongBits(PricingKernel.price(types, prices, size)),
+                Double.doubleToLongBits(VectorPricingKernel.price(types, prices, size)));
+    }
+}
@@ -0,0 +1,82 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import it.unipd.mtss.model.CompactOrder;
+import it.unipd.mtss.model.EItem;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link BillImpl} pricing columnar orders with {@link VectorPricingKernel} when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and with {@link PricingKernel} otherwise. Totals are the same
+ * of {@link BillImpl} either way.
+ * <p>
+ * Only built by the {@code vector} Maven profile, as compiling against an incubator module makes javac warn.
+ */
+public class VectorBillImpl extends BillImpl {
+
+    private static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final boolean vectorized;
+
+    public VectorBillImpl(Random rnd) {
+        this(rnd, new InMemoryUnderageGiftQuota(MAX_UNDERAGE_GIFTS_PER_DAY, Clock.systemDefaultZone()));
+    }
+
+    public VectorBillImpl(Random rnd, UnderageGiftQuota giftQuota) {
+        this(rnd, giftQuota, VECTOR_API_AVAILABLE);
+    }
+
+    public VectorBillImpl(GiftRandomSource randomSource, UnderageGiftQuota giftQuota, Clock clock) {
+        super(randomSource, giftQuota, clock);
+        this.vectorized = VECTOR_API_AVAILABLE;
+    }
+
+    /**
+     * @param vectorized false to price with {@link PricingKernel} even when the Vector API is available
+     */
+    public VectorBillImpl(Random rnd, UnderageGiftQuota giftQuota, boolean vectorized) {
+        super(rnd, giftQuota);
+        this.vectorized = vectorized && VECTOR_API_AVAILABLE;
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    @Override
+    public boolean prefersCompactOrders() {
+        return vectorized;
+    }
+
+    /**
+     * Total of the pricing rules on an order of any size, with no size check and no promotions, to measure the
+     * kernel alone.
+     */
+    public double getRulesTotal(CompactOrder order) {
+        return computeOrderTotal(order);
+    }
+
+    @Override
+    double computeOrderTotal(CompactOrder order) {
+        if (vectorized) {
+            return VectorPricingKernel.price(order.typeOrdinals(), order.prices(), order.size());
+        }
+        return PricingKernel.price(order.typeOrdinals(), order.prices(), order.size());
+    }
+
+    @Override
+    double computeOrderTotal(List<EItem> itemsOrdered, PricingTrace trace) {
+        return PricingKernel.price(itemsOrdered, trace);
+    }
+}
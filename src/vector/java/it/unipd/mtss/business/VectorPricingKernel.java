@@ -0,0 +1,128 @@
+////////////////////////////////////////////////////////////////////
+// Augusto Zanellato 2000555
+// Stefano Zanovello 2008459
+////////////////////////////////////////////////////////////////////
+package it.unipd.mtss.business;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PricingKernel} counterpart computing the per type counts and minimums with the Vector API.
+ * <p>
+ * Types are loaded 8 at a time as bytes and widened to as many double vectors as needed, so the kernel works
+ * with any double vector size up to 512 bits. The order total is still accumulated by a scalar compensated
+ * summation, since reordering it would change the last bits of the totals; the second mouse/keyboard pick is
+ * only looked for, with a scalar pass, in the rare orders where it is gifted.
+ * <p>
+ * Only load this class when the {@code jdk.incubator.vector} module is available, see {@link VectorBillImpl}.
+ */
+final class VectorPricingKernel {
+
+    private static final VectorSpecies<Byte> TYPE_SPECIES = ByteVector.SPECIES_64;
+    private static final VectorSpecies<Double> PRICE_SPECIES =
+            DoubleVector.SPECIES_PREFERRED.length() <= TYPE_SPECIES.length()
+                    ? DoubleVector.SPECIES_PREFERRED
+                    : DoubleVector.SPECIES_512;
+    private static final int PARTS = TYPE_SPECIES.length() / PRICE_SPECIES.length();
+
+    private VectorPricingKernel() {
+    }
+
+    static double price(byte[] typeOrdinals, double[] prices, int size) {
+        final var infinity = DoubleVector.broadcast(PRICE_SPECIES, Double.POSITIVE_INFINITY);
+        var processorMinimums = infinity;
+        var mouseMinimums = infinity;
+        var keyboardMinimums = infinity;
+        int processorCount = 0;
+        int mouseCount = 0;
+        int keyboardCount = 0;
+
+        final var bound = TYPE_SPECIES.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += TYPE_SPECIES.length()) {
+            final var types = ByteVector.fromArray(TYPE_SPECIES, typeOrdinals, i);
+            for (int part = 0; part < PARTS; part++) {
+                final var partTypes = (DoubleVector) types.convertShape(VectorOperators.B2D, PRICE_SPECIES, part);
+                final var partPrices = DoubleVector.fromArray(PRICE_SPECIES, prices,
+                        i + part * PRICE_SPECIES.length());
+
+                final var processors = partTypes.eq(PricingKernel.PROCESSOR);
+                processorCount += processors.trueCount();
+                processorMinimums = processorMinimums.lanewise(VectorOperators.MIN, partPrices, processors);
+
+                final var mice = partTypes.eq(PricingKernel.MOUSE);
+                mouseCount += mice.trueCount();
+                mouseMinimums = mouseMinimums.lanewise(VectorOperators.MIN, partPrices, mice);
+
+                final var keyboards = partTypes.eq(PricingKernel.KEYBOARD);
+                keyboardCount += keyboards.trueCount();
+                keyboardMinimums = keyboardMinimums.lanewise(VectorOperators.MIN, partPrices, keyboards);
+            }
+        }
+
+        var cheapestProcessor = processorMinimums.reduceLanes(VectorOperators.MIN);
+        var cheapestMouse = mouseMinimums.reduceLanes(VectorOperators.MIN);
+        var cheapestKeyboard = keyboardMinimums.reduceLanes(VectorOperators.MIN);
+        for (; i < size; i++) {
+            final var type = typeOrdinals[i];
+            if (type == PricingKernel.PROCESSOR) {
+                cheapestProcessor = Math.min(cheapestProcessor, prices[i]);
+                processorCount++;
+            } else if (type == PricingKernel.MOUSE) {
+                cheapestMouse = Math.min(cheapestMouse, prices[i]);
+                mouseCount++;
+            } else if (type == PricingKernel.KEYBOARD) {
+                cheapestKeyboard = Math.min(cheapestKeyboard, prices[i]);
+                keyboardCount++;
+            }
+        }
+
+        var firstPick = Double.NaN;
+        var secondPick = Double.NaN;
+        if (mouseCount != 0 && mouseCount == keyboardCount) {
+            firstPick = Math.min(cheapestMouse, cheapestKeyboard);
+            if (mouseCount > BillImpl.MIN_MOUSES_FOR_DISCOUNT && firstPick == cheapestMouse) {
+                // the cheapest mouse is gifted on its own, the gifted pick is the next cheapest one
+                secondPick = Math.min(cheapestKeyboard, secondCheapestMouse(typeOrdinals, prices, size));
+            }
+        }
+
+        return PricingKernel.applyRules(sum(prices, size), processorCount, cheapestProcessor,
+                mouseCount, cheapestMouse, keyboardCount, firstPick, secondPick);
+    }
+
+    private static double secondCheapestMouse(byte[] typeOrdinals, double[] prices, int size) {
+        var first = Double.POSITIVE_INFINITY;
+        var second = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (typeOrdinals[i] == PricingKernel.MOUSE) {
+                final var price = prices[i];
+                if (price < first) {
+                    second = first;
+                    first = price;
+                } else if (price < second) {
+                    second = price;
+                }
+            }
+        }
+        return second;
+    }
+
+    private static double sum(double[] prices, int size) {
+        double sum = 0;
+        double compensation = 0;
+        double simpleSum = 0;
+        for (int i = 0; i < size; i++) {
+            final var price = prices[i];
+            final var tmp = price - compensation;
+            final var next = sum + tmp;
+            compensation = (next - sum) - tmp;
+            sum = next;
+            simpleSum += price;
+        }
+        return PricingKernel.finalSum(sum, compensation, simpleSum);
+    }
+}